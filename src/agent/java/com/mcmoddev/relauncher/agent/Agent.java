@@ -20,7 +20,11 @@
  */
 package com.mcmoddev.relauncher.agent;
 
+import com.mcmoddev.relauncher.agent.dump.AutoDumper;
+import com.mcmoddev.relauncher.agent.jfr.JfrMetricsCollector;
 import com.mcmoddev.relauncher.agent.logback.DiscordLogbackAppender;
+import com.mcmoddev.relauncher.agent.timing.MethodTimer;
+import com.mcmoddev.relauncher.agent.watchdog.TickWatchdog;
 import com.mcmoddev.relauncher.api.StatusListener;
 import com.mcmoddev.relauncher.api.connector.ProcessConnector;
 
@@ -50,6 +54,10 @@ public final class Agent {
     // Keep a "strong" reference to the connector and its registry, to avoid GC picking it up
     private static Registry registry;
     private static ProcessConnector server;
+    private static AutoDumper dumper;
+    private static TickWatchdog watchdog;
+    private static JfrMetricsCollector metrics;
+    private static MethodTimer timer;
 
     public static void premain(String args, Instrumentation inst) {
         final var split = args.split("/;/");
@@ -85,6 +93,28 @@ public final class Agent {
             }));
             System.out.println(colour("Process Connector ready!"));
 
+            dumper = AutoDumper.setup();
+            if (dumper != null) {
+                System.out.println(colour("Automatic dumps enabled."));
+            }
+            watchdog = TickWatchdog.setup(inst, dumper);
+            if (watchdog != null) {
+                System.out.println(colour("Tick watchdog enabled."));
+            }
+            try {
+                metrics = JfrMetricsCollector.setup();
+                if (metrics != null) {
+                    System.out.println(colour("JFR metrics stream started."));
+                }
+            } catch (Exception e) {
+                System.err.println("Could not start the JFR metrics stream: " + e);
+            }
+
+            timer = MethodTimer.setup(inst);
+            if (timer.report() != null) {
+                System.out.println(colour("Method timing enabled."));
+            }
+
             executeOnListeners(StatusListener::onStartup);
         } catch (Exception e) {
             System.err.println("Exception starting RMI server: " + e.getLocalizedMessage());
@@ -92,6 +122,22 @@ public final class Agent {
         }
     }
 
+    public static AutoDumper getDumper() {
+        return dumper;
+    }
+
+    public static TickWatchdog getWatchdog() {
+        return watchdog;
+    }
+
+    public static JfrMetricsCollector getMetrics() {
+        return metrics;
+    }
+
+    public static MethodTimer getMethodTimer() {
+        return timer;
+    }
+
     public static String colour(String text) {
         return "\033[94;1m==== \033[36;1m" + text
                 + " \033[94;1m====\033[0m";
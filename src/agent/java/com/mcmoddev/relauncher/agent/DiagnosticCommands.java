@@ -0,0 +1,49 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.agent;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Invokes diagnostic commands (the ones {@code jcmd} runs) through the DiagnosticCommand MBean.
+ */
+public final class DiagnosticCommands {
+    private static final String MBEAN_NAME = "com.sun.management:type=DiagnosticCommand";
+
+    /**
+     * Invokes a diagnostic command.
+     *
+     * @param operation the MBean operation of the command, e.g. {@code gcClassHistogram} for {@code GC.class_histogram}
+     * @param arguments the arguments of the command
+     * @return the output of the command
+     */
+    public static String invoke(final String operation, final String... arguments) throws Exception {
+        return (String) ManagementFactory.getPlatformMBeanServer().invoke(
+                new ObjectName(MBEAN_NAME), operation,
+                new Object[]{arguments}, new String[]{String[].class.getName()}
+        );
+    }
+
+    private DiagnosticCommands() {
+        throw new UnsupportedOperationException("Cannot instantiate a utility class");
+    }
+}
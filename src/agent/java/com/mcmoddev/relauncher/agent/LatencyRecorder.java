@@ -0,0 +1,55 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.agent;
+
+import com.mcmoddev.relauncher.api.connector.LatencyHistogram;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A thread-safe recorder of latencies, whose data can be {@link #snapshot() snapshotted} into a {@link LatencyHistogram}.
+ */
+public final class LatencyRecorder {
+    private final TimeUnit unit;
+    private final long[] bounds;
+    private final long[] counts;
+    private long total, sum, max;
+
+    public LatencyRecorder(final TimeUnit unit, final long[] bounds) {
+        this.unit = unit;
+        this.bounds = bounds;
+        this.counts = new long[bounds.length];
+    }
+
+    public synchronized void record(final long value) {
+        var index = Arrays.binarySearch(bounds, value);
+        if (index < 0) index = -index - 1;
+        counts[Math.min(index, counts.length - 1)]++;
+        total++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    public synchronized LatencyHistogram snapshot() {
+        return new LatencyHistogram(unit, bounds.clone(), counts.clone(), total, sum, max);
+    }
+}
@@ -21,18 +21,32 @@
 package com.mcmoddev.relauncher.agent;
 
 import com.mcmoddev.relauncher.Properties;
+import com.mcmoddev.relauncher.agent.jfr.AllocationProfiler;
+import com.mcmoddev.relauncher.agent.jfr.JfrController;
+import com.mcmoddev.relauncher.agent.profiler.SamplingProfiler;
 import com.mcmoddev.relauncher.api.StatusListener;
+import com.mcmoddev.relauncher.api.connector.AllocationReport;
+import com.mcmoddev.relauncher.api.connector.ClassHistogram;
+import com.mcmoddev.relauncher.api.connector.JfrMetrics;
+import com.mcmoddev.relauncher.api.connector.MemorySnapshot;
 import com.mcmoddev.relauncher.api.connector.MemoryUsage;
+import com.mcmoddev.relauncher.api.connector.MethodTimingReport;
+import com.mcmoddev.relauncher.api.connector.Payloads;
 import com.mcmoddev.relauncher.api.connector.ProcessConnector;
 import com.mcmoddev.relauncher.api.connector.ThreadInfo;
+import com.mcmoddev.relauncher.api.connector.WatchdogReport;
 
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
 import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
 import java.lang.management.RuntimeMXBean;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.rmi.RemoteException;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.jar.JarFile;
@@ -40,10 +54,47 @@ import java.util.jar.JarFile;
 public class ProcessConnectorServer implements ProcessConnector {
     @Override
     public ThreadInfo[] getThreads() throws RemoteException {
-        return Thread.getAllStackTraces()
-                .entrySet()
-                .stream()
-                .map(e -> ThreadInfo.fromThread(e.getKey(), e.getValue())).toArray(ThreadInfo[]::new);
+        // The management info doesn't include the thread group, so enumerate the threads (which, unlike
+        // Thread.getAllStackTraces, doesn't walk their stacks)
+        var root = Thread.currentThread().getThreadGroup();
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        final var threads = new Thread[root.activeCount() * 2];
+        final var count = root.enumerate(threads, true);
+        final var groups = new HashMap<Long, ThreadInfo.Group>();
+        for (var i = 0; i < count; i++) {
+            final var group = threads[i].getThreadGroup();
+            if (group != null) {
+                groups.put(threads[i].threadId(), new ThreadInfo.Group(group.getName()));
+            }
+        }
+        return Arrays.stream(ManagementFactory.getThreadMXBean().dumpAllThreads(true, true))
+                .map(info -> ThreadInfo.fromManagement(info, groups.get(info.getThreadId())))
+                .toArray(ThreadInfo[]::new);
+    }
+
+    @Override
+    public byte[] getThreadsCompressed() throws RemoteException {
+        try {
+            return Payloads.compressThreads(new ThreadInfo[][]{getThreads()});
+        } catch (IOException e) {
+            throw new RemoteException("Could not compress threads", e);
+        }
+    }
+
+    @Override
+    public byte[] sampleThreads(final int samples, final long interval) throws RemoteException {
+        final var dumps = new ThreadInfo[Math.max(1, samples)][];
+        try {
+            for (var i = 0; i < dumps.length; i++) {
+                if (i > 0) Thread.sleep(interval);
+                dumps[i] = getThreads();
+            }
+            return Payloads.compressThreads(dumps);
+        } catch (IOException | InterruptedException e) {
+            throw new RemoteException("Could not sample threads", e);
+        }
     }
 
     @Override
@@ -58,7 +109,83 @@ public class ProcessConnectorServer implements ProcessConnector {
     }
 
     @Override
-    public HashMap<String, Object> getProcessInfoProfiling() throws RemoteException {
+    public MemorySnapshot getMemorySnapshot() throws RemoteException {
+        final var memory = ManagementFactory.getMemoryMXBean();
+        final var pools = new ArrayList<MemorySnapshot.Pool>();
+        var liveSet = 0L;
+        for (final var pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            final var usage = pool.getUsage();
+            final var heap = pool.getType() == MemoryType.HEAP;
+            final var afterGc = pool.getCollectionUsage() == null ? -1 : pool.getCollectionUsage().getUsed();
+            if (heap && afterGc > 0) {
+                liveSet += afterGc;
+            }
+            pools.add(new MemorySnapshot.Pool(
+                    pool.getName(), heap, usage.getUsed(), usage.getCommitted(), usage.getMax(),
+                    pool.getPeakUsage().getUsed(), afterGc
+            ));
+        }
+        final var collectors = ManagementFactory.getGarbageCollectorMXBeans()
+                .stream()
+                .map(gc -> new MemorySnapshot.Collector(gc.getName(), gc.getCollectionCount(), gc.getCollectionTime(), List.of(gc.getMemoryPoolNames())))
+                .toList();
+        final var bufferPools = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)
+                .stream()
+                .map(pool -> new MemorySnapshot.BufferPool(pool.getName(), pool.getCount(), pool.getTotalCapacity(), pool.getMemoryUsed()))
+                .toList();
+
+        String nativeMemory;
+        try {
+            nativeMemory = DiagnosticCommands.invoke("vmNativeMemory", "summary");
+            if (nativeMemory.contains("not enabled")) {
+                nativeMemory = null;
+            }
+        } catch (Exception e) {
+            nativeMemory = null;
+        }
+
+        // The collection usage of the pools is 0 until they are first collected, which would understate the live set
+        final var collected = collectors.stream().anyMatch(gc -> gc.count() > 0);
+        final var heap = memory.getHeapMemoryUsage();
+        return new MemorySnapshot(
+                System.currentTimeMillis(), heap.getUsed(), heap.getCommitted(), heap.getMax(),
+                memory.getNonHeapMemoryUsage().getUsed(), collected ? liveSet : -1,
+                List.copyOf(pools), collectors, bufferPools, nativeMemory
+        );
+    }
+
+    @Override
+    public ClassHistogram getClassHistogram(int limit) throws RemoteException {
+        try {
+            return ClassHistogram.parse(DiagnosticCommands.invoke("gcClassHistogram"), limit);
+        } catch (Exception e) {
+            throw new RemoteException("Could not take class histogram", e);
+        }
+    }
+
+    @Override
+    public WatchdogReport getWatchdogReport() throws RemoteException {
+        final var watchdog = Agent.getWatchdog();
+        return watchdog == null ? null : watchdog.report();
+    }
+
+    @Override
+    public JfrMetrics getJfrMetrics() throws RemoteException {
+        final var metrics = Agent.getMetrics();
+        return metrics == null ? null : metrics.snapshot();
+    }
+
+    @Override
+    public byte[] getProcessInfoProfilingCompressed() throws RemoteException {
+        try {
+            // The classpath and arguments of modded servers are long but very repetitive, so they compress well
+            return Payloads.compress(getProcessInfoProfiling());
+        } catch (IOException e) {
+            throw new RemoteException("Could not compress the process info", e);
+        }
+    }
+
+    private HashMap<String, Object> getProcessInfoProfiling() {
         final HashMap<String, Object> map = new HashMap<>();
         map.put("agentVersion", Agent.VERSION);
 
@@ -95,6 +222,83 @@ public class ProcessConnectorServer implements ProcessConnector {
         return map;
     }
 
+    @Override
+    public String profileCpu(final long duration, final long interval, final String threads) throws RemoteException {
+        try {
+            return SamplingProfiler.profile(duration, interval, threads);
+        } catch (IllegalStateException | InterruptedException e) {
+            throw new RemoteException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public AllocationReport profileAllocations(final long duration, final int rate) throws RemoteException {
+        try {
+            return AllocationProfiler.profile(duration, rate);
+        } catch (IllegalStateException | InterruptedException e) {
+            throw new RemoteException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public long startRecording(final String name, final String settings, final long maxSize, final long maxAge) throws RemoteException {
+        try {
+            return JfrController.start(name, settings, maxSize, maxAge);
+        } catch (Exception e) {
+            throw new RemoteException("Could not start recording: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public long dumpRecording(final long id, final boolean stop) throws RemoteException {
+        try {
+            return JfrController.dump(id, stop);
+        } catch (Exception e) {
+            throw new RemoteException("Could not dump recording: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public byte[] readRecording(final long id, final long offset, final int length) throws RemoteException {
+        try {
+            return JfrController.read(id, offset, length);
+        } catch (Exception e) {
+            throw new RemoteException("Could not read recording: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void closeRecording(final long id) throws RemoteException {
+        try {
+            JfrController.close(id);
+        } catch (Exception e) {
+            throw new RemoteException("Could not close recording: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void startMethodTiming(final List<String> methods) throws RemoteException {
+        try {
+            Agent.getMethodTimer().start(methods);
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            throw new RemoteException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public MethodTimingReport getMethodTimings() throws RemoteException {
+        return Agent.getMethodTimer().report();
+    }
+
+    @Override
+    public MethodTimingReport stopMethodTiming() throws RemoteException {
+        try {
+            return Agent.getMethodTimer().stop();
+        } catch (IllegalStateException e) {
+            throw new RemoteException(e.getMessage(), e);
+        }
+    }
+
     @Override
     public void onShutdown() throws RemoteException {
         Agent.executeOnListeners(StatusListener::onShutdown);
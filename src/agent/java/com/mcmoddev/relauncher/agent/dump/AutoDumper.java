@@ -0,0 +1,167 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.agent.dump;
+
+import com.mcmoddev.relauncher.Properties;
+import com.mcmoddev.relauncher.agent.Agent;
+import com.mcmoddev.relauncher.dump.DumpRetention;
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Automatically captures thread dumps, and optionally heap dumps, when the heap occupancy after a GC
+ * crosses the configured threshold or when the {@link com.mcmoddev.relauncher.agent.watchdog.TickWatchdog watched thread} hangs. <br>
+ * The dumps are written to the directory given by the {@link Properties#DUMPS_DIRECTORY} property, which is
+ * pruned according to the retention limits after each capture.
+ */
+public final class AutoDumper {
+    private static final long HEAP_COOLDOWN = TimeUnit.MINUTES.toMillis(10);
+
+    private final Path directory;
+    private final double heapThreshold;
+    private final boolean dumpHeap;
+    private final long hangTimeout;
+    private final int maxFiles;
+    private final long maxBytes;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final Set<String> heapPools = ManagementFactory.getMemoryPoolMXBeans()
+            .stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .map(MemoryPoolMXBean::getName)
+            .collect(Collectors.toSet());
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        final var thread = new Thread(r, "RLAutoDumper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile long lastHeapCapture;
+
+    private AutoDumper(final Path directory) {
+        this.directory = directory;
+        this.heapThreshold = Double.parseDouble(System.getProperty(Properties.DUMPS_HEAP_THRESHOLD, "-1"));
+        this.dumpHeap = Boolean.getBoolean(Properties.DUMPS_HEAP);
+        this.hangTimeout = TimeUnit.SECONDS.toMillis(Long.getLong(Properties.DUMPS_HANG_TIMEOUT, -1));
+        this.maxFiles = Integer.getInteger(Properties.DUMPS_MAX_FILES, -1);
+        this.maxBytes = Long.getLong(Properties.DUMPS_MAX_SIZE, -1);
+    }
+
+    /**
+     * Sets up automatic dumps, if the dumps directory is configured.
+     *
+     * @return the dumper, or {@code null} if automatic dumps are disabled
+     */
+    public static AutoDumper setup() {
+        final var dir = System.getProperty(Properties.DUMPS_DIRECTORY);
+        if (dir == null || dir.isBlank()) return null;
+        final var dumper = new AutoDumper(Path.of(dir));
+        dumper.start();
+        return dumper;
+    }
+
+    private void start() {
+        if (heapThreshold > 0) {
+            for (final var gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (gc instanceof NotificationEmitter emitter) {
+                    emitter.addNotificationListener(
+                            (notification, handback) -> onGc(notification),
+                            notification -> notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION),
+                            null
+                    );
+                }
+            }
+        }
+    }
+
+    private void onGc(final Notification notification) {
+        final var info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        final var used = info.getGcInfo().getMemoryUsageAfterGc().entrySet()
+                .stream()
+                .filter(e -> heapPools.contains(e.getKey()))
+                .mapToLong(e -> e.getValue().getUsed())
+                .sum();
+        final var occupancy = used * 100d / Runtime.getRuntime().maxMemory();
+        final var now = System.currentTimeMillis();
+        if (occupancy >= heapThreshold && now - lastHeapCapture > HEAP_COOLDOWN) {
+            lastHeapCapture = now;
+            captureAsync("heap" + (int) occupancy, dumpHeap);
+        }
+    }
+
+    /**
+     * @return the amount of milliseconds the watched thread may be busy before a hang dump is captured, or a non-positive number if hang dumps are disabled
+     */
+    public long getHangTimeout() {
+        return hangTimeout;
+    }
+
+    /**
+     * Captures dumps on the dumper thread.
+     *
+     * @param reason the reason of the capture, used in the file names
+     * @param heap   if a heap dump should be captured too
+     * @see #capture(String, boolean)
+     */
+    public void captureAsync(final String reason, final boolean heap) {
+        executor.execute(() -> capture(reason, heap));
+    }
+
+    /**
+     * Captures a thread dump, and a heap dump if requested.
+     *
+     * @param reason the reason of the capture, used in the file names
+     * @param heap   if a heap dump should be captured too
+     */
+    public synchronized void capture(final String reason, final boolean heap) {
+        final var prefix = Instant.now().getEpochSecond() + "-" + reason;
+        try {
+            Files.createDirectories(directory);
+            final var threadDump = directory.resolve(prefix + "-threads.txt");
+            final var heapDump = directory.resolve(prefix + "-heap.hprof");
+            Files.writeString(threadDump, ThreadDumps.format(threads.dumpAllThreads(true, true)));
+            if (heap) {
+                ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class)
+                        .dumpHeap(heapDump.toAbsolutePath().toString(), true);
+            }
+            System.out.println(Agent.colour("Captured " + (heap ? "thread and heap dumps" : "thread dump") + " (" + reason + ") in " + directory));
+            DumpRetention.prune(directory, maxFiles, maxBytes, Set.of(threadDump, heapDump));
+        } catch (Exception e) {
+            System.err.println("Exception capturing dumps (" + reason + "): " + e);
+        }
+    }
+}
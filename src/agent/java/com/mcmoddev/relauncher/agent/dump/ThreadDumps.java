@@ -0,0 +1,88 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.agent.dump;
+
+import java.lang.management.LockInfo;
+import java.lang.management.MonitorInfo;
+import java.lang.management.ThreadInfo;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Formats thread dumps in a {@code jstack}-like format. Unlike {@link ThreadInfo#toString()}, stacks are not truncated.
+ */
+public final class ThreadDumps {
+
+    public static String format(final ThreadInfo[] threads) {
+        final var builder = new StringBuilder();
+        builder.append("Thread dump at ").append(DateTimeFormatter.ISO_INSTANT.format(Instant.now()))
+                .append(System.lineSeparator());
+        for (final var info : threads) {
+            builder.append(System.lineSeparator())
+                    .append('"').append(info.getThreadName()).append('"')
+                    .append(" #").append(info.getThreadId())
+                    .append(info.isDaemon() ? " daemon" : "")
+                    .append(" prio=").append(info.getPriority())
+                    .append(' ').append(info.getThreadState());
+            if (info.getLockName() != null) {
+                builder.append(" on ").append(info.getLockName());
+            }
+            if (info.getLockOwnerName() != null) {
+                builder.append(" owned by \"").append(info.getLockOwnerName()).append("\" #").append(info.getLockOwnerId());
+            }
+            builder.append(System.lineSeparator());
+
+            final var stack = info.getStackTrace();
+            final var monitors = info.getLockedMonitors();
+            for (var i = 0; i < stack.length; i++) {
+                builder.append("\tat ").append(stack[i]).append(System.lineSeparator());
+                if (i == 0 && info.getLockInfo() != null) {
+                    builder.append("\t- ")
+                            .append(info.getThreadState() == Thread.State.BLOCKED ? "waiting to lock " : "waiting on ")
+                            .append(lock(info.getLockInfo()))
+                            .append(System.lineSeparator());
+                }
+                for (final MonitorInfo monitor : monitors) {
+                    if (monitor.getLockedStackDepth() == i) {
+                        builder.append("\t- locked ").append(lock(monitor)).append(System.lineSeparator());
+                    }
+                }
+            }
+
+            final var synchronizers = info.getLockedSynchronizers();
+            if (synchronizers.length > 0) {
+                builder.append(System.lineSeparator()).append("\tLocked ownable synchronizers:").append(System.lineSeparator());
+                for (final var sync : synchronizers) {
+                    builder.append("\t- ").append(lock(sync)).append(System.lineSeparator());
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String lock(final LockInfo lock) {
+        return "<0x" + Integer.toHexString(lock.getIdentityHashCode()) + "> (a " + lock.getClassName() + ")";
+    }
+
+    private ThreadDumps() {
+        throw new UnsupportedOperationException("Cannot instantiate a utility class");
+    }
+}
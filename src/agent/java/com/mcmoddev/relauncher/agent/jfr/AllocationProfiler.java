@@ -0,0 +1,129 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.agent.jfr;
+
+import com.mcmoddev.relauncher.api.connector.AllocationReport;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Profiles heap allocations using the JFR {@code jdk.ObjectAllocationSample} event, which samples allocations
+ * with a weight that estimates the bytes allocated since the previous sample.
+ */
+public final class AllocationProfiler {
+    private static final AtomicBoolean RUNNING = new AtomicBoolean();
+    private static final int TOP_SITES = 25;
+    private static final int SITE_DEPTH = 12;
+
+    private final Map<SiteKey, long[]> sites = new HashMap<>();
+    private final Map<String, Long> collapsed = new HashMap<>();
+    private long totalBytes;
+    private long samples;
+
+    private AllocationProfiler() {
+    }
+
+    /**
+     * Profiles the allocations of the process, blocking until the profiling is done. Only one session may run at a time.
+     *
+     * @param duration the duration of the profiling, in milliseconds
+     * @param rate     the maximum amount of allocation samples per second
+     * @return the report
+     * @throws IllegalStateException if a session is already running
+     */
+    public static AllocationReport profile(final long duration, final int rate) throws InterruptedException {
+        if (!RUNNING.compareAndSet(false, true)) {
+            throw new IllegalStateException("An allocation profiling session is already running!");
+        }
+        final var profiler = new AllocationProfiler();
+        try (final var stream = new RecordingStream()) {
+            stream.enable("jdk.ObjectAllocationSample").withStackTrace().with("throttle", rate + "/s");
+            stream.onEvent("jdk.ObjectAllocationSample", profiler::onSample);
+            stream.startAsync();
+            Thread.sleep(duration);
+            // Closing the stream would drop the events which weren't flushed yet, while stopping it waits for them to be consumed
+            stream.stop();
+        } finally {
+            RUNNING.set(false);
+        }
+        return profiler.report(duration);
+    }
+
+    private synchronized void onSample(final RecordedEvent event) {
+        final var weight = event.getLong("weight");
+        final var type = event.getClass("objectClass");
+        final var className = type == null ? "unknown" : type.getName();
+        totalBytes += weight;
+        samples++;
+
+        final var frames = event.getStackTrace() == null ? List.<RecordedFrame>of() : event.getStackTrace().getFrames();
+        final var stack = new ArrayList<String>(Math.min(frames.size(), SITE_DEPTH));
+        for (var i = 0; i < frames.size() && i < SITE_DEPTH; i++) {
+            stack.add(name(frames.get(i)));
+        }
+        final var counts = sites.computeIfAbsent(new SiteKey(className, stack), k -> new long[2]);
+        counts[0] += weight;
+        counts[1]++;
+
+        final var path = new StringBuilder();
+        for (var i = frames.size() - 1; i >= 0; i--) {
+            path.append(name(frames.get(i))).append(';');
+        }
+        collapsed.merge(path.append(className).toString(), weight, Long::sum);
+    }
+
+    private static String name(final RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+    }
+
+    private synchronized AllocationReport report(final long duration) {
+        final var all = sites.entrySet()
+                .stream()
+                .map(e -> new AllocationReport.Site(e.getKey().objectClass(), List.copyOf(e.getKey().stack()), e.getValue()[0], e.getValue()[1]))
+                .toList();
+        final var text = new StringBuilder();
+        collapsed.forEach((stack, bytes) -> text.append(stack).append(' ').append(bytes).append('\n'));
+        return new AllocationReport(
+                duration, totalBytes, samples,
+                top(all, Comparator.comparingLong(AllocationReport.Site::bytes)),
+                top(all, Comparator.comparingLong(AllocationReport.Site::samples)),
+                text.toString()
+        );
+    }
+
+    private static List<AllocationReport.Site> top(final List<AllocationReport.Site> sites, final Comparator<AllocationReport.Site> comparator) {
+        return sites.stream()
+                .sorted(comparator.reversed())
+                .limit(TOP_SITES)
+                .toList();
+    }
+
+    private record SiteKey(String objectClass, List<String> stack) {
+    }
+}
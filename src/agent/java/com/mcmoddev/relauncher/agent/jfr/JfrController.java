@@ -0,0 +1,142 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.agent.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Controls the JFR recordings started through the process connector. <br>
+ * Recordings are dumped to a temporary file, which the launcher then reads in chunks.
+ */
+public final class JfrController {
+    public static final int MAX_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private static final Map<Long, Entry> RECORDINGS = new ConcurrentHashMap<>();
+
+    /**
+     * Starts a recording.
+     *
+     * @param name     the name of the recording
+     * @param settings the name of the settings profile to use, e.g. {@code default} or {@code profile}
+     * @param maxSize  the maximum size of the recording on disk, in bytes, or a non-positive number for no limit
+     * @param maxAge   the maximum age of the recorded data, in seconds, or a non-positive number for no limit
+     * @return the ID of the recording
+     */
+    public static long start(final String name, final String settings, final long maxSize, final long maxAge) throws IOException, ParseException {
+        final var recording = new Recording(Configuration.getConfiguration(settings));
+        recording.setName(name);
+        recording.setToDisk(true);
+        if (maxSize > 0) recording.setMaxSize(maxSize);
+        if (maxAge > 0) recording.setMaxAge(Duration.ofSeconds(maxAge));
+        recording.start();
+        RECORDINGS.put(recording.getId(), new Entry(recording));
+        return recording.getId();
+    }
+
+    /**
+     * Dumps the data of a recording, stopping it first if requested.
+     *
+     * @param id   the ID of the recording
+     * @param stop if the recording should be stopped
+     * @return the size of the dump, in bytes
+     */
+    public static long dump(final long id, final boolean stop) throws IOException {
+        final var entry = get(id);
+        synchronized (entry) {
+            if (stop && entry.recording.getState() == RecordingState.RUNNING) {
+                entry.recording.stop();
+            }
+            if (entry.dump == null) {
+                entry.dump = Files.createTempFile("relauncher-" + id + "-", ".jfr");
+            }
+            entry.recording.dump(entry.dump);
+            return Files.size(entry.dump);
+        }
+    }
+
+    /**
+     * Reads a chunk of the last dump of a recording.
+     *
+     * @param id     the ID of the recording
+     * @param offset the offset to read from
+     * @param length the maximum amount of bytes to read, capped to {@value #MAX_CHUNK_SIZE}
+     * @return the read bytes, which is empty if the end of the dump was reached
+     */
+    public static byte[] read(final long id, final long offset, final int length) throws IOException {
+        final var entry = get(id);
+        synchronized (entry) {
+            if (entry.dump == null) {
+                throw new IllegalStateException("Recording " + id + " wasn't dumped!");
+            }
+            try (final var file = new RandomAccessFile(entry.dump.toFile(), "r")) {
+                final var size = (int) Math.max(0, Math.min(Math.min(length, MAX_CHUNK_SIZE), file.length() - offset));
+                final var bytes = new byte[size];
+                file.seek(offset);
+                file.readFully(bytes);
+                return bytes;
+            }
+        }
+    }
+
+    /**
+     * Closes a recording, discarding its data and its dump.
+     *
+     * @param id the ID of the recording
+     */
+    public static void close(final long id) throws IOException {
+        final var entry = RECORDINGS.remove(id);
+        if (entry == null) return;
+        synchronized (entry) {
+            entry.recording.close();
+            if (entry.dump != null) {
+                Files.deleteIfExists(entry.dump);
+            }
+        }
+    }
+
+    private static Entry get(final long id) {
+        final var entry = RECORDINGS.get(id);
+        if (entry == null) {
+            throw new IllegalArgumentException("Unknown recording: " + id);
+        }
+        return entry;
+    }
+
+    private static final class Entry {
+        private final Recording recording;
+        private Path dump;
+
+        private Entry(final Recording recording) {
+            this.recording = recording;
+        }
+    }
+}
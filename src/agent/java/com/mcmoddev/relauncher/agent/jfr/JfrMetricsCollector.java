@@ -0,0 +1,172 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.agent.jfr;
+
+import com.mcmoddev.relauncher.Properties;
+import com.mcmoddev.relauncher.agent.LatencyRecorder;
+import com.mcmoddev.relauncher.api.connector.JfrMetrics;
+import com.mcmoddev.relauncher.api.connector.LatencyHistogram;
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregates a continuous JFR event stream of GC pauses, safepoints, allocations, monitor contention and thread parks into
+ * {@link JfrMetrics}. <br>
+ * Only a few cheap events are enabled, without stack traces, and contention events are only recorded above a threshold, which
+ * keeps the overhead well below the one of the {@code default} JFR settings. <br>
+ * Threads also park while idle (e.g. pool workers waiting for tasks, or conditions and latches being awaited), so only the parks
+ * on the synchronizers of {@link #LOCK_CLASS_PREFIXES JDK locks} are counted as contention.
+ */
+public final class JfrMetricsCollector {
+    private static final int TOP_ENTRIES = 10;
+    private static final int RATE_SLOTS = 12;
+    private static final long RATE_SLOT_MILLIS = 5000;
+    /**
+     * The prefixes of the classes threads park on when waiting to acquire a lock.
+     */
+    private static final List<String> LOCK_CLASS_PREFIXES = List.of(
+            "java.util.concurrent.locks.ReentrantLock$",
+            "java.util.concurrent.locks.ReentrantReadWriteLock$",
+            "java.util.concurrent.locks.StampedLock"
+    );
+
+    private final long since = System.currentTimeMillis();
+    private final LatencyRecorder gcPauses = new LatencyRecorder(TimeUnit.MICROSECONDS, LatencyHistogram.FINE_BOUNDS);
+    private final LatencyRecorder safepoints = new LatencyRecorder(TimeUnit.MICROSECONDS, LatencyHistogram.FINE_BOUNDS);
+    private final LatencyRecorder monitorEnters = new LatencyRecorder(TimeUnit.MICROSECONDS, LatencyHistogram.FINE_BOUNDS);
+    private final LatencyRecorder threadParks = new LatencyRecorder(TimeUnit.MICROSECONDS, LatencyHistogram.FINE_BOUNDS);
+
+    // The state below is guarded by this
+    private final Map<String, Long> contendedMonitors = new HashMap<>();
+    private final Map<String, Long> parkBlockers = new HashMap<>();
+    private long allocatedBytes;
+    // A ring of allocated bytes per time slot, used to compute the recent allocation rate
+    private final long[] rateSlots = new long[RATE_SLOTS];
+    private long currentSlot;
+
+    private JfrMetricsCollector() {
+    }
+
+    /**
+     * Starts the event stream, if enabled.
+     *
+     * @return the collector, or {@code null} if the stream is disabled
+     */
+    public static JfrMetricsCollector setup() {
+        if (!Boolean.getBoolean(Properties.METRICS_ENABLED)) return null;
+        final var threshold = Duration.ofMillis(Long.getLong(Properties.METRICS_CONTENTION_THRESHOLD, 10));
+        final var collector = new JfrMetricsCollector();
+
+        final var stream = new RecordingStream();
+        stream.enable("jdk.GCPhasePause").withoutStackTrace();
+        stream.enable("jdk.SafepointBegin").withoutStackTrace();
+        stream.enable("jdk.ObjectAllocationSample").withoutStackTrace().with("throttle", "100/s");
+        stream.enable("jdk.JavaMonitorEnter").withoutStackTrace().withThreshold(threshold);
+        stream.enable("jdk.ThreadPark").withoutStackTrace().withThreshold(threshold);
+        stream.setMaxAge(Duration.ofSeconds(30));
+        stream.setReuse(true);
+        stream.setOrdered(false);
+
+        stream.onEvent("jdk.GCPhasePause", e -> collector.gcPauses.record(micros(e)));
+        stream.onEvent("jdk.SafepointBegin", e -> collector.safepoints.record(micros(e)));
+        stream.onEvent("jdk.ObjectAllocationSample", e -> collector.onAllocation(e.getLong("weight")));
+        stream.onEvent("jdk.JavaMonitorEnter", e -> {
+            collector.monitorEnters.record(micros(e));
+            collector.onBlocked(collector.contendedMonitors, e.getClass("monitorClass"), micros(e));
+        });
+        stream.onEvent("jdk.ThreadPark", e -> {
+            if (!isLock(e.getClass("parkedClass"))) return;
+            collector.threadParks.record(micros(e));
+            collector.onBlocked(collector.parkBlockers, e.getClass("parkedClass"), micros(e));
+        });
+        stream.startAsync();
+        return collector;
+    }
+
+    private static boolean isLock(final RecordedClass type) {
+        if (type == null) return false;
+        final var name = type.getName();
+        for (final var prefix : LOCK_CLASS_PREFIXES) {
+            if (name.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    private static long micros(final RecordedEvent event) {
+        return TimeUnit.NANOSECONDS.toMicros(event.getDuration().toNanos());
+    }
+
+    private synchronized void onAllocation(final long bytes) {
+        allocatedBytes += bytes;
+        advanceSlots();
+        rateSlots[(int) (currentSlot % RATE_SLOTS)] += bytes;
+    }
+
+    private synchronized void onBlocked(final Map<String, Long> map, final RecordedClass type, final long micros) {
+        map.merge(type == null ? "unknown" : type.getName(), micros, Long::sum);
+    }
+
+    private void advanceSlots() {
+        final var slot = System.currentTimeMillis() / RATE_SLOT_MILLIS;
+        // Clear the slots which were skipped since the last allocation
+        for (var s = Math.max(currentSlot + 1, slot - RATE_SLOTS + 1); s <= slot; s++) {
+            rateSlots[(int) (s % RATE_SLOTS)] = 0;
+        }
+        currentSlot = Math.max(currentSlot, slot);
+    }
+
+    /**
+     * @return a snapshot of the collected metrics
+     */
+    public synchronized JfrMetrics snapshot() {
+        advanceSlots();
+        var recent = 0L;
+        for (final var bytes : rateSlots) {
+            recent += bytes;
+        }
+        // The current slot is only partially elapsed
+        final var window = (RATE_SLOTS - 1) * RATE_SLOT_MILLIS + System.currentTimeMillis() % RATE_SLOT_MILLIS;
+        final var elapsed = Math.min(window, System.currentTimeMillis() - since);
+        return new JfrMetrics(
+                since, gcPauses.snapshot(), safepoints.snapshot(), monitorEnters.snapshot(), threadParks.snapshot(),
+                allocatedBytes, elapsed <= 0 ? 0 : recent * 1000 / elapsed,
+                top(contendedMonitors), top(parkBlockers)
+        );
+    }
+
+    private static Map<String, Long> top(final Map<String, Long> map) {
+        final var top = new LinkedHashMap<String, Long>();
+        map.entrySet()
+                .stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(TOP_ENTRIES)
+                .forEach(e -> top.put(e.getKey(), e.getValue()));
+        return top;
+    }
+}
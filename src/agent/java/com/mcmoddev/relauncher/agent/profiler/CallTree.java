@@ -0,0 +1,132 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.agent.profiler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A call tree which aggregates sampled stacks. <br>
+ * Frames are interned to integer IDs at method granularity, so recording a sample only walks the tree and doesn't
+ * allocate, unless a new frame or call path is seen.
+ */
+final class CallTree {
+    private final Map<StackTraceElement, Integer> elementIds = new HashMap<>();
+    private final Map<String, Integer> nameIds = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final Node root = new Node(-1);
+    private long samples;
+
+    /**
+     * Records a sampled stack.
+     *
+     * @param thread the name of the sampled thread, which is used as the root frame
+     * @param stack  the sampled stack, leaf first
+     */
+    void record(final String thread, final StackTraceElement[] stack) {
+        var node = root.child(intern(thread));
+        for (var i = stack.length - 1; i >= 0; i--) {
+            node = node.child(intern(stack[i]));
+        }
+        node.self++;
+        samples++;
+    }
+
+    long samples() {
+        return samples;
+    }
+
+    private int intern(final StackTraceElement element) {
+        final var id = elementIds.get(element);
+        if (id != null) return id;
+        final var newId = intern(element.getClassName() + "." + element.getMethodName());
+        elementIds.put(element, newId);
+        return newId;
+    }
+
+    private int intern(final String name) {
+        final var id = nameIds.get(name);
+        if (id != null) return id;
+        names.add(name);
+        nameIds.put(name, names.size() - 1);
+        return names.size() - 1;
+    }
+
+    /**
+     * Writes the tree in collapsed stacks format ({@code root;...;leaf count}), one stack per line.
+     *
+     * @return the collapsed stacks
+     */
+    String toCollapsed() {
+        final var builder = new StringBuilder();
+        final var path = new StringBuilder();
+        for (var i = 0; i < root.childCount; i++) {
+            write(root.children[i], path, builder);
+        }
+        return builder.toString();
+    }
+
+    private void write(final Node node, final StringBuilder path, final StringBuilder out) {
+        final var length = path.length();
+        if (length > 0) path.append(';');
+        path.append(names.get(node.frame));
+        if (node.self > 0) {
+            out.append(path).append(' ').append(node.self).append('\n');
+        }
+        for (var i = 0; i < node.childCount; i++) {
+            write(node.children[i], path, out);
+        }
+        path.setLength(length);
+    }
+
+    private static final class Node {
+        private final int frame;
+        private long self;
+        private int[] childFrames = new int[0];
+        private Node[] children = new Node[0];
+        private int childCount;
+
+        private Node(final int frame) {
+            this.frame = frame;
+        }
+
+        Node child(final int frame) {
+            // Most nodes have very few children, so a linear scan beats hashing
+            for (var i = 0; i < childCount; i++) {
+                if (childFrames[i] == frame) {
+                    return children[i];
+                }
+            }
+            if (childCount == children.length) {
+                final var capacity = Math.max(2, childCount * 2);
+                childFrames = Arrays.copyOf(childFrames, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            final var node = new Node(frame);
+            childFrames[childCount] = frame;
+            children[childCount++] = node;
+            return node;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.agent.profiler;
+
+import com.mcmoddev.relauncher.threads.NativeWaits;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A sampling CPU profiler, which periodically samples the stacks of the runnable threads (optionally only those whose name matches a filter)
+ * and aggregates them in a {@link CallTree}. <br>
+ * The {@link ThreadMXBean} can only return stacks as new {@link StackTraceElement} arrays, so each sample allocates the stacks of the sampled
+ * threads. To bound that cost, the states of the threads are read first without their stacks, and only the stacks of at most
+ * {@value #MAX_STACKS_PER_SAMPLE} runnable threads are then walked. <br>
+ * Threads blocked in native I/O (selectors, socket and file reads, ...) are reported as runnable by the JVM, so the samples
+ * of threads in one of the {@link NativeWaits known native waits} are dropped, as they aren't using the CPU.
+ */
+public final class SamplingProfiler {
+    private static final int STACK_DEPTH = 256;
+    private static final int MAX_STACKS_PER_SAMPLE = 64;
+    private static final long TARGETS_REFRESH_INTERVAL = 1000;
+    private static final AtomicBoolean RUNNING = new AtomicBoolean();
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final long ownThread = Thread.currentThread().threadId();
+    private final CallTree tree = new CallTree();
+    private final String filter;
+
+    private long[] targets = new long[0];
+    private long lastRefresh;
+    private final long[] runnable = new long[MAX_STACKS_PER_SAMPLE];
+
+    private SamplingProfiler(final String filter) {
+        this.filter = filter.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Profiles the process, blocking until the profiling is done. Only one profiling session may run at a time.
+     *
+     * @param duration the duration of the profiling, in milliseconds
+     * @param interval the interval between samples, in milliseconds
+     * @param filter   the case-insensitive part of the names of the threads to sample, or an empty string to sample all threads
+     * @return the sampled stacks in collapsed format, with the thread name as the root frame
+     * @throws IllegalStateException if a profiling session is already running
+     */
+    public static String profile(final long duration, final long interval, final String filter) throws InterruptedException {
+        if (!RUNNING.compareAndSet(false, true)) {
+            throw new IllegalStateException("A profiling session is already running!");
+        }
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            final var thread = new Thread(r, "RLSamplingProfiler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            final var profiler = executor.submit(() -> new SamplingProfiler(filter)).get();
+            final var task = executor.scheduleAtFixedRate(profiler::sample, 0, Math.max(1, interval), TimeUnit.MILLISECONDS);
+            executor.schedule(() -> task.cancel(false), duration, TimeUnit.MILLISECONDS).get();
+            return executor.submit(profiler.tree::toCollapsed).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Profiling failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+            RUNNING.set(false);
+        }
+    }
+
+    private void sample() {
+        final var now = System.currentTimeMillis();
+        if (now - lastRefresh >= TARGETS_REFRESH_INTERVAL) {
+            lastRefresh = now;
+            refreshTargets();
+        }
+
+        // Reading the states doesn't walk the stacks, so only the runnable threads have theirs walked
+        var count = 0;
+        for (final var info : threads.getThreadInfo(targets, 0)) {
+            if (info == null || info.getThreadState() != Thread.State.RUNNABLE) continue;
+            runnable[count++] = info.getThreadId();
+            if (count == runnable.length) break;
+        }
+        if (count == 0) return;
+
+        for (final var info : threads.getThreadInfo(Arrays.copyOf(runnable, count), STACK_DEPTH)) {
+            // The thread may have stopped running between the two calls
+            if (info == null || info.getThreadState() != Thread.State.RUNNABLE) continue;
+            final var stack = info.getStackTrace();
+            if (NativeWaits.isNativeWait(stack)) continue;
+            tree.record(info.getThreadName(), stack);
+        }
+    }
+
+    private void refreshTargets() {
+        final var ids = threads.getAllThreadIds();
+        var count = 0;
+        if (filter.isEmpty()) {
+            for (final var id : ids) {
+                if (id != ownThread) ids[count++] = id;
+            }
+        } else {
+            for (final ThreadInfo info : threads.getThreadInfo(ids, 0)) {
+                if (info != null && info.getThreadId() != ownThread && info.getThreadName().toLowerCase(Locale.ROOT).contains(filter)) {
+                    ids[count++] = info.getThreadId();
+                }
+            }
+        }
+        targets = Arrays.copyOf(ids, count);
+    }
+}
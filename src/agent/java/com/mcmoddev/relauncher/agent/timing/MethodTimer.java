@@ -0,0 +1,143 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.agent.timing;
+
+import com.mcmoddev.relauncher.Properties;
+import com.mcmoddev.relauncher.api.connector.MethodTimingReport;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.instrument.UnmodifiableClassException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Times the calls of methods of the process, by instrumenting their bytecode. <br>
+ * Methods are targeted as {@code com.example.Owner#method}, optionally followed by the method descriptor (e.g.
+ * {@code com.example.Owner#tick(Z)V}) to target a single overload, or as {@code com.example.Owner#*} to target all
+ * methods of a class. <br>
+ * Only one timing session may run at a time. When it is {@link #stop() stopped}, the original bytecode of the
+ * instrumented classes is restored.
+ */
+public final class MethodTimer {
+    private final Instrumentation instrumentation;
+
+    private TimingTransformer transformer;
+    private long since;
+
+    private MethodTimer(final Instrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+    }
+
+    /**
+     * Sets up method timing, starting a session with the methods configured by the {@link Properties#TIMING_METHODS} property, if any.
+     *
+     * @param instrumentation the instrumentation of the agent
+     * @return the timer
+     */
+    public static MethodTimer setup(final Instrumentation instrumentation) {
+        final var timer = new MethodTimer(instrumentation);
+        final var methods = System.getProperty(Properties.TIMING_METHODS, "");
+        if (!methods.isBlank()) {
+            try {
+                timer.start(Arrays.stream(methods.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList());
+            } catch (IllegalStateException | IllegalArgumentException e) {
+                System.err.println("Could not start timing the configured methods: " + e.getMessage());
+            }
+        }
+        return timer;
+    }
+
+    /**
+     * Starts timing the given methods, instrumenting the already loaded classes which declare them.
+     *
+     * @param methods the methods to time
+     * @throws IllegalStateException    if a session is already running, or if the JVM can't retransform classes
+     * @throws IllegalArgumentException if a method is malformed
+     */
+    public synchronized void start(final List<String> methods) {
+        if (transformer != null) {
+            throw new IllegalStateException("Methods are already being timed!");
+        }
+        if (!instrumentation.isRetransformClassesSupported()) {
+            throw new IllegalStateException("The JVM does not support retransforming classes!");
+        }
+        final var targets = new HashMap<String, List<TimingTransformer.Target>>();
+        for (final var method : methods) {
+            final var separator = method.indexOf('#');
+            if (separator <= 0 || separator == method.length() - 1) {
+                throw new IllegalArgumentException("Invalid method '" + method + "', expected 'com.example.Owner#method'");
+            }
+            final var owner = method.substring(0, separator).replace('.', '/');
+            final var name = method.substring(separator + 1);
+            final var descriptor = name.indexOf('(');
+            targets.computeIfAbsent(owner, k -> new ArrayList<>()).add(descriptor == -1
+                    ? new TimingTransformer.Target(name, null)
+                    : new TimingTransformer.Target(name.substring(0, descriptor), name.substring(descriptor)));
+        }
+
+        MethodTimings.reset();
+        transformer = new TimingTransformer(instrumentation, Map.copyOf(targets));
+        instrumentation.addTransformer(transformer, true);
+        since = System.currentTimeMillis();
+        retransform(transformer);
+    }
+
+    /**
+     * Stops the running session, and restores the original bytecode of the instrumented classes.
+     *
+     * @return the report of the session
+     * @throws IllegalStateException if no session is running
+     */
+    public synchronized MethodTimingReport stop() {
+        if (transformer == null) {
+            throw new IllegalStateException("No methods are being timed!");
+        }
+        final var report = MethodTimings.report(since);
+        final var old = transformer;
+        instrumentation.removeTransformer(old);
+        transformer = null;
+        // Retransforming without the transformer restores the original bytecode
+        retransform(old);
+        return report;
+    }
+
+    /**
+     * @return the report of the running session, or {@code null} if no session is running
+     */
+    public synchronized MethodTimingReport report() {
+        return transformer == null ? null : MethodTimings.report(since);
+    }
+
+    private void retransform(final TimingTransformer transformer) {
+        final var classes = transformer.getTargetClasses();
+        for (final var clazz : instrumentation.getAllLoadedClasses()) {
+            if (!classes.contains(clazz.getName().replace('.', '/')) || !instrumentation.isModifiableClass(clazz)) continue;
+            try {
+                instrumentation.retransformClasses(clazz);
+            } catch (UnmodifiableClassException | InternalError e) {
+                System.err.println("Could not retransform " + clazz.getName() + ": " + e);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.agent.timing;
+
+import com.mcmoddev.relauncher.api.connector.MethodTimingReport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The hook called by the methods instrumented by the {@link TimingTransformer}. <br>
+ * <strong>This class is called from the instrumented classes, so its {@link #record(int, long)} method must stay public
+ * and keep its signature.</strong>
+ */
+public final class MethodTimings {
+    private static final Map<String, Integer> IDS = new HashMap<>();
+    private static volatile String[] names = new String[0];
+    private static volatile TimingRecorder[] recorders = new TimingRecorder[0];
+
+    /**
+     * Records the duration of a call of a timed method.
+     *
+     * @param id    the ID of the method
+     * @param start the {@link System#nanoTime()} at which the call started
+     */
+    public static void record(final int id, final long start) {
+        final var elapsed = System.nanoTime() - start;
+        final var current = recorders;
+        // Calls from the bytecode of a previous session may still come in until the class is restored
+        if (id < current.length) {
+            current[id].record(elapsed);
+        }
+    }
+
+    /**
+     * Registers a method to be timed, reusing its ID if it was already registered, for instance when its class is retransformed.
+     *
+     * @param name the name of the method
+     * @return the ID of the method
+     */
+    static synchronized int register(final String name) {
+        final var existing = IDS.get(name);
+        if (existing != null) return existing;
+        final var id = names.length;
+        final var newNames = Arrays.copyOf(names, id + 1);
+        final var newRecorders = Arrays.copyOf(recorders, id + 1);
+        newNames[id] = name;
+        newRecorders[id] = new TimingRecorder();
+        names = newNames;
+        recorders = newRecorders;
+        IDS.put(name, id);
+        return id;
+    }
+
+    /**
+     * Forgets all methods and their recorded durations.
+     */
+    static synchronized void reset() {
+        IDS.clear();
+        names = new String[0];
+        recorders = new TimingRecorder[0];
+    }
+
+    static synchronized MethodTimingReport report(final long since) {
+        final var methods = new ArrayList<MethodTimingReport.Method>(names.length);
+        for (var i = 0; i < names.length; i++) {
+            final var histogram = recorders[i].snapshot();
+            if (histogram.total() > 0) {
+                methods.add(new MethodTimingReport.Method(names[i], histogram));
+            }
+        }
+        methods.sort(Comparator.comparingLong((MethodTimingReport.Method m) -> m.latencies().sum()).reversed());
+        return new MethodTimingReport(since, methods);
+    }
+
+    private MethodTimings() {
+        throw new UnsupportedOperationException("Cannot instantiate a utility class");
+    }
+}
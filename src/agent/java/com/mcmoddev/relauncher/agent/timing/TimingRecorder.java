@@ -0,0 +1,62 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.agent.timing;
+
+import com.mcmoddev.relauncher.api.connector.LatencyHistogram;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free recorder of method durations. Unlike {@link com.mcmoddev.relauncher.agent.LatencyRecorder}, recording
+ * never blocks, as it happens on the hot path of the timed methods.
+ */
+final class TimingRecorder {
+    private static final long[] BOUNDS = LatencyHistogram.NANO_BOUNDS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BOUNDS.length);
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    void record(final long nanos) {
+        var index = Arrays.binarySearch(BOUNDS, nanos);
+        if (index < 0) index = -index - 1;
+        counts.incrementAndGet(Math.min(index, BOUNDS.length - 1));
+        sum.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    /**
+     * Snapshots the recorded durations. The snapshot may be slightly inconsistent if durations are recorded concurrently.
+     */
+    LatencyHistogram snapshot() {
+        final var snapshot = new long[BOUNDS.length];
+        var total = 0L;
+        for (var i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        return new LatencyHistogram(TimeUnit.NANOSECONDS, BOUNDS.clone(), snapshot, total, sum.sum(), max.get());
+    }
+}
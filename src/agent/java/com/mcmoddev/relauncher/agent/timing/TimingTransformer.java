@@ -0,0 +1,131 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.agent.timing;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.AdviceAdapter;
+import org.objectweb.asm.commons.Method;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.security.ProtectionDomain;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Instruments the targeted methods to record their durations in {@link MethodTimings}. <br>
+ * The duration of a call is measured from its start to each of its {@code return} and {@code athrow} instructions,
+ * so calls which exit by an exception thrown by a callee are not recorded.
+ */
+final class TimingTransformer implements ClassFileTransformer {
+    private static final Type SYSTEM = Type.getType(System.class);
+    private static final Method NANO_TIME = Method.getMethod("long nanoTime()");
+    private static final Type HOOK = Type.getType(MethodTimings.class);
+    private static final Method RECORD = Method.getMethod("void record(int, long)");
+
+    private final Instrumentation instrumentation;
+    private final Map<String, List<Target>> targets;
+
+    /**
+     * @param instrumentation the instrumentation, used to make named modules read the module of the {@link MethodTimings hook}
+     * @param targets         the targeted methods, by the internal name of their class
+     */
+    TimingTransformer(final Instrumentation instrumentation, final Map<String, List<Target>> targets) {
+        this.instrumentation = instrumentation;
+        this.targets = targets;
+    }
+
+    /**
+     * @return the internal names of the targeted classes
+     */
+    Set<String> getTargetClasses() {
+        return targets.keySet();
+    }
+
+    @Override
+    public byte[] transform(final Module module, final ClassLoader loader, final String className, final Class<?> classBeingRedefined,
+                            final ProtectionDomain protectionDomain, final byte[] classfileBuffer) {
+        final var classTargets = targets.get(className);
+        if (classTargets == null) return null;
+        try {
+            final var hookModule = MethodTimings.class.getModule();
+            if (module != null && module.isNamed() && !module.canRead(hookModule)) {
+                instrumentation.redefineModule(module, Set.of(hookModule), Map.of(), Map.of(), Set.of(), Map.of());
+            }
+
+            final var reader = new ClassReader(classfileBuffer);
+            // Only locals are added, so the frames can be kept and only the max stack needs computing
+            final var writer = new ClassWriter(reader, ClassWriter.COMPUTE_MAXS);
+            final var instrumented = new boolean[1];
+            reader.accept(new ClassVisitor(Opcodes.ASM9, writer) {
+                @Override
+                public MethodVisitor visitMethod(final int access, final String name, final String descriptor, final String signature, final String[] exceptions) {
+                    final var visitor = super.visitMethod(access, name, descriptor, signature, exceptions);
+                    if ((access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) != 0 || classTargets.stream().noneMatch(t -> t.matches(name, descriptor))) {
+                        return visitor;
+                    }
+                    instrumented[0] = true;
+                    final var id = MethodTimings.register(className.replace('/', '.') + "#" + name + descriptor);
+                    return new AdviceAdapter(Opcodes.ASM9, visitor, access, name, descriptor) {
+                        private int start;
+
+                        @Override
+                        protected void onMethodEnter() {
+                            invokeStatic(SYSTEM, NANO_TIME);
+                            start = newLocal(Type.LONG_TYPE);
+                            storeLocal(start);
+                        }
+
+                        @Override
+                        protected void onMethodExit(final int opcode) {
+                            push(id);
+                            loadLocal(start);
+                            invokeStatic(HOOK, RECORD);
+                        }
+                    };
+                }
+            }, ClassReader.EXPAND_FRAMES);
+            return instrumented[0] ? writer.toByteArray() : null;
+        } catch (Throwable t) {
+            System.err.println("Could not instrument " + className + " for method timing: " + t);
+            return null;
+        }
+    }
+
+    /**
+     * A targeted method.
+     *
+     * @param name       the name of the method, or {@code *} to target all methods of the class but static initializers
+     * @param descriptor the descriptor of the method, or {@code null} to target all overloads
+     */
+    record Target(String name, String descriptor) {
+        boolean matches(final String name, final String descriptor) {
+            if (this.name.equals("*")) return !name.equals("<clinit>");
+            return this.name.equals(name) && (this.descriptor == null || this.descriptor.equals(descriptor));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.agent.watchdog;
+
+import com.mcmoddev.relauncher.agent.LatencyRecorder;
+
+/**
+ * The hooks called by the {@link TickTransformer instrumented} tick method, which give the {@link TickWatchdog} the exact
+ * boundaries of the ticks. <br>
+ * Only the ticking thread calls the hooks, so the fields have a single writer.
+ */
+public final class TickHooks {
+    static volatile LatencyRecorder recorder;
+
+    private static volatile long count;
+    private static volatile long start = -1;
+
+    private TickHooks() {
+        throw new UnsupportedOperationException("Cannot instantiate a utility class");
+    }
+
+    /**
+     * Called when the tick method is entered.
+     */
+    public static void enter() {
+        start = System.currentTimeMillis();
+        count++;
+    }
+
+    /**
+     * Called when the tick method returns.
+     */
+    public static void exit() {
+        final var tickStart = start;
+        if (tickStart == -1) return;
+        start = -1;
+        final var ticks = recorder;
+        if (ticks != null) {
+            ticks.record(System.currentTimeMillis() - tickStart);
+        }
+    }
+
+    /**
+     * @return the amount of ticks which were started
+     */
+    static long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the start of the current tick, or {@code -1} if the thread is between ticks
+     */
+    static long getStart() {
+        return start;
+    }
+}
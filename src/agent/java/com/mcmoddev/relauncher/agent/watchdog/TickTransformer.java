@@ -0,0 +1,114 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.agent.watchdog;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.AdviceAdapter;
+import org.objectweb.asm.commons.Method;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.security.ProtectionDomain;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Instruments the tick method to call the {@link TickHooks} when it is entered and when it returns. <br>
+ * Calls which exit by an exception thrown by a callee don't call the exit hook, and are ended by the next tick instead.
+ */
+final class TickTransformer implements ClassFileTransformer {
+    private static final Type HOOKS = Type.getType(TickHooks.class);
+    private static final Method ENTER = Method.getMethod("void enter()");
+    private static final Method EXIT = Method.getMethod("void exit()");
+
+    private final Instrumentation instrumentation;
+    private final String owner;
+    private final String name;
+    private final String descriptor;
+
+    /**
+     * @param instrumentation the instrumentation, used to make named modules read the module of the {@link TickHooks hooks}
+     * @param owner           the internal name of the class declaring the tick method
+     * @param name            the name of the tick method
+     * @param descriptor      the descriptor of the tick method, or {@code null} to target all overloads
+     */
+    TickTransformer(final Instrumentation instrumentation, final String owner, final String name, final String descriptor) {
+        this.instrumentation = instrumentation;
+        this.owner = owner;
+        this.name = name;
+        this.descriptor = descriptor;
+    }
+
+    /**
+     * @return the internal name of the class declaring the tick method
+     */
+    String getOwner() {
+        return owner;
+    }
+
+    @Override
+    public byte[] transform(final Module module, final ClassLoader loader, final String className, final Class<?> classBeingRedefined,
+                            final ProtectionDomain protectionDomain, final byte[] classfileBuffer) {
+        if (!owner.equals(className)) return null;
+        try {
+            final var hookModule = TickHooks.class.getModule();
+            if (module != null && module.isNamed() && !module.canRead(hookModule)) {
+                instrumentation.redefineModule(module, Set.of(hookModule), Map.of(), Map.of(), Set.of(), Map.of());
+            }
+
+            final var reader = new ClassReader(classfileBuffer);
+            // Nothing but calls is added, so the frames can be kept and only the max stack needs computing
+            final var writer = new ClassWriter(reader, ClassWriter.COMPUTE_MAXS);
+            final var instrumented = new boolean[1];
+            reader.accept(new ClassVisitor(Opcodes.ASM9, writer) {
+                @Override
+                public MethodVisitor visitMethod(final int access, final String name, final String descriptor, final String signature, final String[] exceptions) {
+                    final var visitor = super.visitMethod(access, name, descriptor, signature, exceptions);
+                    if ((access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) != 0 || !TickTransformer.this.name.equals(name)
+                            || (TickTransformer.this.descriptor != null && !TickTransformer.this.descriptor.equals(descriptor))) {
+                        return visitor;
+                    }
+                    instrumented[0] = true;
+                    return new AdviceAdapter(Opcodes.ASM9, visitor, access, name, descriptor) {
+                        @Override
+                        protected void onMethodEnter() {
+                            invokeStatic(HOOKS, ENTER);
+                        }
+
+                        @Override
+                        protected void onMethodExit(final int opcode) {
+                            invokeStatic(HOOKS, EXIT);
+                        }
+                    };
+                }
+            }, ClassReader.EXPAND_FRAMES);
+            return instrumented[0] ? writer.toByteArray() : null;
+        } catch (Throwable t) {
+            System.err.println("Could not instrument " + className + " for the tick watchdog: " + t);
+            return null;
+        }
+    }
+}
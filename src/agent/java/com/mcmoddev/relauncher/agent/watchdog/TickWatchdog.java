@@ -0,0 +1,302 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.agent.watchdog;
+
+import com.mcmoddev.relauncher.Properties;
+import com.mcmoddev.relauncher.agent.LatencyRecorder;
+import com.mcmoddev.relauncher.agent.dump.AutoDumper;
+import com.mcmoddev.relauncher.api.connector.LatencyHistogram;
+import com.mcmoddev.relauncher.api.connector.WatchdogReport;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.instrument.UnmodifiableClassException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the duration of the ticks of a thread (usually the server thread) and samples its stack when a tick stalls. <br>
+ * If a tick method is configured, it is {@link TickTransformer instrumented} so that the ticks are delimited exactly, by the calls
+ * to that method. Otherwise, or until the method is first called, a tick is a span of samples in which the thread is busy,
+ * delimited by samples in which it is waiting or sleeping, which is what a game loop does between two ticks; in that mode the
+ * resolution of the measured durations is the sample interval, and back-to-back ticks can't be told apart. <br>
+ * The duration of each tick is recorded in a histogram. The stack of the thread is only sampled once a tick has exceeded the stall
+ * threshold, and such ticks are kept as {@link WatchdogReport.Stall stalls}, together with the stacks sampled during them.
+ */
+public final class TickWatchdog {
+    private static final int STACK_DEPTH = 128;
+    private static final int MAX_STALLS = 32;
+    private static final int MAX_STACKS_PER_STALL = 256;
+    private static final String OTHER_STACKS = "[other]";
+    private static final long MIN_LOOKUP_INTERVAL = 1000;
+    private static final long MAX_LOOKUP_INTERVAL = 5 * 60 * 1000;
+
+    private final String threadName;
+    private final long interval;
+    private final long threshold;
+    private final AutoDumper dumper;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        final var thread = new Thread(r, "RLTickWatchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LatencyRecorder ticks = new LatencyRecorder(TimeUnit.MILLISECONDS, LatencyHistogram.DEFAULT_BOUNDS);
+    private final ArrayDeque<WatchdogReport.Stall> stalls = new ArrayDeque<>(MAX_STALLS);
+    private long stallCount;
+
+    private long threadId = -1;
+    private long lastLookup;
+    private long lookupInterval = MIN_LOOKUP_INTERVAL;
+    // The current tick, if the thread is busy
+    private long tickStart = -1;
+    // The count of the hooks when the current tick started
+    private long tickCount = -1;
+    // The stacks sampled since the current tick exceeded the threshold
+    private int tickSamples;
+    private final Map<List<StackTraceElement>, Integer> tickStacks = new HashMap<>();
+    private boolean hangCaptured;
+
+    private TickWatchdog(final String threadName, final long interval, final long threshold, final AutoDumper dumper) {
+        this.threadName = threadName;
+        this.interval = interval;
+        this.threshold = threshold;
+        this.dumper = dumper;
+    }
+
+    /**
+     * Sets up the watchdog, if a thread to watch is configured, instrumenting the {@link Properties#WATCHDOG_TICK_METHOD configured tick method}, if any.
+     *
+     * @param instrumentation the instrumentation of the agent
+     * @param dumper          the dumper used to capture thread dumps when the thread hangs, or {@code null}
+     * @return the watchdog, or {@code null} if it is disabled
+     */
+    public static TickWatchdog setup(final Instrumentation instrumentation, final AutoDumper dumper) {
+        final var thread = System.getProperty(Properties.WATCHDOG_THREAD, "");
+        if (thread.isBlank()) return null;
+        final var watchdog = new TickWatchdog(
+                thread,
+                Math.max(1, Long.getLong(Properties.WATCHDOG_INTERVAL, 10)),
+                Long.getLong(Properties.WATCHDOG_THRESHOLD, 500),
+                dumper
+        );
+        final var tickMethod = System.getProperty(Properties.WATCHDOG_TICK_METHOD, "");
+        if (!tickMethod.isBlank()) {
+            try {
+                watchdog.instrument(instrumentation, tickMethod.trim());
+            } catch (IllegalArgumentException e) {
+                System.err.println("Could not instrument the tick method: " + e.getMessage());
+            }
+        }
+        watchdog.executor.scheduleAtFixedRate(watchdog::sample, watchdog.interval, watchdog.interval, TimeUnit.MILLISECONDS);
+        return watchdog;
+    }
+
+    private void instrument(final Instrumentation instrumentation, final String method) {
+        final var separator = method.indexOf('#');
+        if (separator <= 0 || separator == method.length() - 1) {
+            throw new IllegalArgumentException("Invalid method '" + method + "', expected 'com.example.Owner#method'");
+        }
+        final var owner = method.substring(0, separator).replace('.', '/');
+        final var name = method.substring(separator + 1);
+        final var descriptor = name.indexOf('(');
+        final var transformer = descriptor == -1
+                ? new TickTransformer(instrumentation, owner, name, null)
+                : new TickTransformer(instrumentation, owner, name.substring(0, descriptor), name.substring(descriptor));
+
+        TickHooks.recorder = ticks;
+        // If the class was loaded before the agent, it can only be instrumented by retransforming it
+        final var retransform = instrumentation.isRetransformClassesSupported();
+        instrumentation.addTransformer(transformer, retransform);
+        if (!retransform) return;
+        for (final var clazz : instrumentation.getAllLoadedClasses()) {
+            if (!clazz.getName().replace('.', '/').equals(transformer.getOwner()) || !instrumentation.isModifiableClass(clazz)) continue;
+            try {
+                instrumentation.retransformClasses(clazz);
+            } catch (UnmodifiableClassException | InternalError e) {
+                System.err.println("Could not retransform " + clazz.getName() + ": " + e);
+            }
+        }
+    }
+
+    private synchronized void sample() {
+        if (threadId == -1 && !findThread()) {
+            return;
+        }
+        final var now = System.currentTimeMillis();
+        final var count = TickHooks.getCount();
+        if (count > 0) {
+            // The tick method was called, so the hooks delimit the ticks and record their durations
+            final var start = TickHooks.getStart();
+            if (start == -1 || count != tickCount) {
+                endTick(now, false);
+            }
+            if (start != -1 && tickStart == -1) {
+                tickStart = start;
+                tickCount = count;
+            }
+            if (tickStart != -1 && now - tickStart >= threshold) {
+                sampleStack(now, null);
+            }
+            return;
+        }
+
+        // Only the state of the thread is needed until the tick exceeds the threshold
+        final var info = threads.getThreadInfo(threadId, 0);
+        if (info == null) { // The thread died
+            endTick(now, true);
+            threadId = -1;
+            return;
+        }
+
+        final var state = info.getThreadState();
+        if (state == Thread.State.WAITING || state == Thread.State.TIMED_WAITING) {
+            endTick(now, true);
+            return;
+        }
+
+        if (tickStart == -1) {
+            tickStart = now;
+        }
+        if (now - tickStart >= threshold) {
+            sampleStack(now, state);
+        }
+    }
+
+    /**
+     * Samples the stack of the thread during a stall.
+     *
+     * @param now   the time of the sample
+     * @param state the state the thread was last seen in, or {@code null} if the ticks are delimited by the hooks
+     */
+    private void sampleStack(final long now, final Thread.State state) {
+        final ThreadInfo info = threads.getThreadInfo(threadId, STACK_DEPTH);
+        if (info == null) { // The thread died
+            endTick(now, state != null);
+            threadId = -1;
+            return;
+        }
+        if (state != null && (info.getThreadState() == Thread.State.WAITING || info.getThreadState() == Thread.State.TIMED_WAITING)) {
+            // The tick ended in between the two calls
+            endTick(now, true);
+            return;
+        }
+
+        tickSamples++;
+        final var stack = Arrays.asList(info.getStackTrace());
+        if (tickStacks.size() < MAX_STACKS_PER_STALL || tickStacks.containsKey(stack)) {
+            tickStacks.merge(stack, 1, Integer::sum);
+        } else {
+            tickStacks.merge(List.of(), 1, Integer::sum);
+        }
+
+        if (dumper != null && !hangCaptured && dumper.getHangTimeout() > 0 && now - tickStart >= dumper.getHangTimeout()) {
+            hangCaptured = true;
+            dumper.captureAsync("hang", false);
+        }
+    }
+
+    private boolean findThread() {
+        // Looking up the thread requires a snapshot of all threads, so don't do it on every sample, and less and less often
+        // while the thread doesn't exist, which may never happen if the process isn't the one the watchdog was configured for
+        final var now = System.currentTimeMillis();
+        if (now - lastLookup < lookupInterval) return false;
+        lastLookup = now;
+        threadId = Thread.getAllStackTraces().keySet()
+                .stream()
+                .filter(t -> t.getName().equals(threadName))
+                .findFirst()
+                .map(Thread::threadId)
+                .orElse(-1L);
+        lookupInterval = threadId == -1 ? Math.min(lookupInterval * 2, MAX_LOOKUP_INTERVAL) : MIN_LOOKUP_INTERVAL;
+        return threadId != -1;
+    }
+
+    /**
+     * Ends the current tick, if any.
+     *
+     * @param now    the time at which the end of the tick was seen
+     * @param record whether to record the duration of the tick, which the hooks already do when they delimit the ticks
+     */
+    private void endTick(final long now, final boolean record) {
+        if (tickStart == -1) return;
+        final var duration = now - tickStart;
+        if (record) {
+            ticks.record(duration);
+        }
+        // With the hooks, the end of the tick is only seen at the next sample, so only ticks seen stalling are stalls
+        if (duration >= threshold && (record || tickSamples > 0)) {
+            if (stalls.size() == MAX_STALLS) {
+                stalls.removeFirst();
+            }
+            stalls.addLast(createStall(++stallCount, duration));
+        }
+        tickStart = -1;
+        tickCount = -1;
+        tickSamples = 0;
+        tickStacks.clear();
+        hangCaptured = false;
+    }
+
+    private WatchdogReport.Stall createStall(final long id, final long duration) {
+        final var collapsed = new HashMap<String, Integer>();
+        tickStacks.forEach((stack, count) -> collapsed.merge(collapse(stack), count, Integer::sum));
+        return new WatchdogReport.Stall(id, tickStart, duration, tickSamples, Map.copyOf(collapsed));
+    }
+
+    /**
+     * Collapses a stack (leaf first) into the {@code root;...;leaf} format.
+     */
+    private static String collapse(final List<StackTraceElement> stack) {
+        if (stack.isEmpty()) return OTHER_STACKS;
+        final var builder = new StringBuilder();
+        for (var i = stack.size() - 1; i >= 0; i--) {
+            final var element = stack.get(i);
+            builder.append(element.getClassName()).append('.').append(element.getMethodName());
+            if (i > 0) builder.append(';');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Creates a report of the ticks of the thread.
+     *
+     * @return the report
+     */
+    public synchronized WatchdogReport report() {
+        final var now = System.currentTimeMillis();
+        final var ongoing = tickStart != -1 && now - tickStart >= threshold ? createStall(stallCount + 1, now - tickStart) : null;
+        return new WatchdogReport(
+                threadName, threadId != -1, interval, threshold,
+                ticks.snapshot(), stallCount, List.copyOf(stalls), ongoing
+        );
+    }
+}
@@ -26,4 +26,21 @@ public class Properties {
 
     public static final String JAR_PATH = PREFIX + "jar";
 
+    public static final String DUMPS_DIRECTORY = PREFIX + "dumps.directory";
+    public static final String DUMPS_HEAP_THRESHOLD = PREFIX + "dumps.heapThreshold";
+    public static final String DUMPS_HEAP = PREFIX + "dumps.heap";
+    public static final String DUMPS_HANG_TIMEOUT = PREFIX + "dumps.hangTimeout";
+    public static final String DUMPS_MAX_FILES = PREFIX + "dumps.maxFiles";
+    public static final String DUMPS_MAX_SIZE = PREFIX + "dumps.maxSize";
+
+    public static final String WATCHDOG_THREAD = PREFIX + "watchdog.thread";
+    public static final String WATCHDOG_INTERVAL = PREFIX + "watchdog.interval";
+    public static final String WATCHDOG_THRESHOLD = PREFIX + "watchdog.threshold";
+    public static final String WATCHDOG_TICK_METHOD = PREFIX + "watchdog.tickMethod";
+
+    public static final String METRICS_ENABLED = PREFIX + "metrics.enabled";
+    public static final String METRICS_CONTENTION_THRESHOLD = PREFIX + "metrics.contentionThreshold";
+
+    public static final String TIMING_METHODS = PREFIX + "timing.methods";
+
 }
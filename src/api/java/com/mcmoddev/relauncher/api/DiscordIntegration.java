@@ -30,6 +30,15 @@ public interface DiscordIntegration {
      */
     void setActivity(ActivityType type, String name);
 
+    /**
+     * Sends an alert about a launcher event (like memory pressure or a crash of the process).
+     *
+     * @param message the message of the alert
+     */
+    default void sendAlert(String message) {
+
+    }
+
     /**
      * Shuts down the integration.
      */
@@ -0,0 +1,49 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.api.connector;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A report of the heap allocations sampled by the agent during an allocation profiling session.
+ *
+ * @param duration       the duration of the session, in milliseconds
+ * @param totalBytes     the estimated amount of bytes allocated during the session
+ * @param samples        the amount of allocation samples
+ * @param byBytes        the allocation sites which allocated the most bytes
+ * @param bySamples      the allocation sites which were sampled the most, which approximates the amount of allocations
+ * @param collapsedBytes the sampled stacks in collapsed format, weighted by the allocated bytes
+ */
+public record AllocationReport(long duration, long totalBytes, long samples, List<Site> byBytes, List<Site> bySamples,
+                               String collapsedBytes) implements Serializable {
+
+    /**
+     * An allocation site.
+     *
+     * @param objectClass the class of the allocated objects
+     * @param stack       the stack of the allocation, leaf first
+     * @param bytes       the estimated amount of bytes allocated at the site
+     * @param samples     the amount of samples of the site
+     */
+    public record Site(String objectClass, List<String> stack, long bytes, long samples) implements Serializable {
+    }
+}
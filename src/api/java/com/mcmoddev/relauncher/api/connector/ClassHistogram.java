@@ -0,0 +1,76 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.api.connector;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * A class histogram of the live objects on the heap, as produced by {@code GC.class_histogram}.
+ *
+ * @param timestamp      the epoch millis at which the histogram was taken
+ * @param totalInstances the total amount of live instances
+ * @param totalBytes     the total size of the live instances
+ * @param entries        the classes with the biggest shallow size, biggest first
+ */
+public record ClassHistogram(long timestamp, long totalInstances, long totalBytes, List<Entry> entries) implements Serializable {
+    private static final Pattern ENTRY = Pattern.compile("^\\s*\\d+:\\s+(\\d+)\\s+(\\d+)\\s+(\\S+)");
+    private static final Pattern TOTAL = Pattern.compile("^Total\\s+(\\d+)\\s+(\\d+)");
+
+    /**
+     * A class of the histogram.
+     *
+     * @param className the name of the class, with the module stripped
+     * @param instances the amount of live instances of the class
+     * @param bytes     the shallow size of the live instances of the class
+     */
+    public record Entry(String className, long instances, long bytes) implements Serializable {
+    }
+
+    /**
+     * Parses the output of {@code GC.class_histogram}.
+     *
+     * @param output the output of the command
+     * @param limit  the maximum amount of entries to keep. The output is sorted by size, so the smallest classes are dropped
+     * @return the parsed histogram
+     */
+    public static ClassHistogram parse(String output, int limit) {
+        final var entries = new ArrayList<Entry>(Math.min(limit, 1024));
+        long totalInstances = 0, totalBytes = 0;
+        for (final var line : output.split("\n")) {
+            final var entry = ENTRY.matcher(line);
+            if (entry.find()) {
+                if (entries.size() < limit) {
+                    entries.add(new Entry(entry.group(3), Long.parseLong(entry.group(1)), Long.parseLong(entry.group(2))));
+                }
+                continue;
+            }
+            final var total = TOTAL.matcher(line.trim());
+            if (total.find()) {
+                totalInstances = Long.parseLong(total.group(1));
+                totalBytes = Long.parseLong(total.group(2));
+            }
+        }
+        return new ClassHistogram(System.currentTimeMillis(), totalInstances, totalBytes, List.copyOf(entries));
+    }
+}
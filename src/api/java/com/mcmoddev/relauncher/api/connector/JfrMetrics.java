@@ -0,0 +1,43 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.api.connector;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * Metrics aggregated by the agent from a continuous JFR event stream. All histograms are in microseconds.
+ *
+ * @param since             the epoch millis at which the metrics started being collected
+ * @param gcPauses          the histogram of GC pauses
+ * @param safepoints        the histogram of safepoint durations, which include the time to reach the safepoint
+ * @param monitorEnters     the histogram of contended monitor enters which took longer than the contention threshold
+ * @param threadParks       the histogram of parks on locks which took longer than the contention threshold
+ * @param allocatedBytes    the estimated amount of bytes allocated on the heap
+ * @param allocationRate    the estimated allocation rate over the last minute, in bytes per second
+ * @param contendedMonitors the classes of the most contended monitors, mapped to the total time threads were blocked on them, in microseconds
+ * @param parkBlockers      the classes of the lock synchronizers threads parked on the longest, mapped to the total park time, in microseconds
+ */
+public record JfrMetrics(long since, LatencyHistogram gcPauses, LatencyHistogram safepoints,
+                         LatencyHistogram monitorEnters, LatencyHistogram threadParks,
+                         long allocatedBytes, long allocationRate,
+                         Map<String, Long> contendedMonitors, Map<String, Long> parkBlockers) implements Serializable {
+}
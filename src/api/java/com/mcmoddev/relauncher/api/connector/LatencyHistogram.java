@@ -0,0 +1,102 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.api.connector;
+
+import java.io.Serializable;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of a latency histogram.
+ *
+ * @param unit   the unit of the recorded values
+ * @param bounds the inclusive upper bounds of the buckets. The last bound is {@link Long#MAX_VALUE}
+ * @param counts the amount of recorded values in each bucket
+ * @param total  the amount of recorded values
+ * @param sum    the sum of the recorded values
+ * @param max    the largest recorded value
+ */
+public record LatencyHistogram(TimeUnit unit, long[] bounds, long[] counts, long total, long sum, long max) implements Serializable {
+
+    /**
+     * The default bucket bounds, for millisecond values.
+     */
+    public static final long[] DEFAULT_BOUNDS = {
+            1, 2, 5, 10, 20, 50, 75, 100, 150, 200, 500, 1000, 2000, 5000, 10_000, 30_000, 60_000, Long.MAX_VALUE
+    };
+
+    /**
+     * Bucket bounds for short pauses, for microsecond values.
+     */
+    public static final long[] FINE_BOUNDS = {
+            50, 100, 250, 500, 1000, 2500, 5000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000, 1_000_000, 5_000_000, Long.MAX_VALUE
+    };
+
+    /**
+     * Bucket bounds for method timings, for nanosecond values.
+     */
+    public static final long[] NANO_BOUNDS = {
+            100, 200, 500, 1000, 2000, 5000, 10_000, 20_000, 50_000, 100_000, 200_000, 500_000, 1_000_000, 2_000_000,
+            5_000_000, 10_000_000, 20_000_000, 50_000_000, 100_000_000, 1_000_000_000, Long.MAX_VALUE
+    };
+
+    /**
+     * Estimates the value at the given percentile, as the upper bound of the bucket containing it.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the estimated value, capped to the {@link #max()}
+     */
+    public long percentile(double percentile) {
+        if (total == 0) return 0;
+        final var target = (long) Math.ceil(total * percentile / 100);
+        var seen = 0L;
+        for (var i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(bounds[i], max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @return the mean of the recorded values
+     */
+    public double mean() {
+        return total == 0 ? 0 : (double) sum / total;
+    }
+
+    /**
+     * Formats the median, 99th percentile and maximum of the histogram in milliseconds.
+     *
+     * @return the formatted summary
+     */
+    public String summary() {
+        return "p50 %s ms, p99 %s ms, max %s ms".formatted(millis(percentile(50)), millis(percentile(99)), millis(max));
+    }
+
+    private String millis(long value) {
+        if (unit.compareTo(TimeUnit.MILLISECONDS) >= 0) {
+            return String.valueOf(unit.toMillis(value));
+        }
+        return String.format(Locale.ROOT, "%.2f", unit.toNanos(value) / 1_000_000d);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.api.connector;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A detailed snapshot of the memory of the process. All sizes are in bytes, and are {@code -1} when undefined.
+ *
+ * @param timestamp      the epoch millis at which the snapshot was taken
+ * @param heapUsed       the used heap memory
+ * @param heapCommitted  the committed heap memory
+ * @param heapMax        the maximum heap memory
+ * @param nonHeapUsed    the used non-heap memory (metaspace, code cache...)
+ * @param liveSetAfterGc the heap memory still used after the most recent collection of each heap pool, which approximates the live set,
+ *                       or {@code -1} if no collection happened yet
+ * @param pools          the memory pools
+ * @param collectors     the garbage collectors
+ * @param bufferPools    the buffer pools (direct and mapped)
+ * @param nativeMemory   the native memory tracking summary, if NMT is enabled
+ */
+public record MemorySnapshot(long timestamp, long heapUsed, long heapCommitted, long heapMax, long nonHeapUsed,
+                             long liveSetAfterGc, List<Pool> pools, List<Collector> collectors,
+                             List<BufferPool> bufferPools, @Nullable String nativeMemory) implements Serializable {
+
+    /**
+     * @param name      the name of the pool
+     * @param heap      if the pool is part of the heap
+     * @param used      the used memory
+     * @param committed the committed memory
+     * @param max       the maximum memory
+     * @param peak      the peak used memory
+     * @param afterGc   the memory used after the most recent collection of the pool, or {@code -1} if the pool isn't collected
+     */
+    public record Pool(String name, boolean heap, long used, long committed, long max, long peak, long afterGc) implements Serializable {
+    }
+
+    /**
+     * @param name  the name of the collector
+     * @param count the amount of collections
+     * @param time  the accumulated collection time, in milliseconds
+     * @param pools the names of the pools managed by the collector
+     */
+    public record Collector(String name, long count, long time, List<String> pools) implements Serializable {
+    }
+
+    /**
+     * @param name     the name of the buffer pool, e.g. {@code direct} or {@code mapped}
+     * @param count    the amount of buffers
+     * @param capacity the total capacity of the buffers
+     * @param used     the memory used by the buffers
+     */
+    public record BufferPool(String name, long count, long capacity, long used) implements Serializable {
+    }
+
+    /**
+     * @param name the name of the pool
+     * @return the pool with the given name, or {@code null}
+     */
+    @Nullable
+    public Pool pool(String name) {
+        return pools.stream().filter(p -> p.name().equals(name)).findFirst().orElse(null);
+    }
+
+    /**
+     * @param name the name of the buffer pool
+     * @return the buffer pool with the given name, or {@code null}
+     */
+    @Nullable
+    public BufferPool bufferPool(String name) {
+        return bufferPools.stream().filter(p -> p.name().equals(name)).findFirst().orElse(null);
+    }
+}
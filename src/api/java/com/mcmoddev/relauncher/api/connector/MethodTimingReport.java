@@ -0,0 +1,42 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.api.connector;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A report of the methods timed by the agent.
+ *
+ * @param since   the epoch millis at which the timing started
+ * @param methods the timed methods which were called at least once, with the highest total time first
+ */
+public record MethodTimingReport(long since, List<Method> methods) implements Serializable {
+
+    /**
+     * A timed method.
+     *
+     * @param name      the name of the method, in the {@code owner#name(descriptor)} format
+     * @param latencies the durations of the calls of the method, in nanoseconds
+     */
+    public record Method(String name, LatencyHistogram latencies) implements Serializable {
+    }
+}
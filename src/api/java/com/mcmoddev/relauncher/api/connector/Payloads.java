@@ -0,0 +1,95 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.api.connector;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compresses large payloads before they cross the connector. Thread dumps in particular are very repetitive, so they shrink a lot.
+ */
+public final class Payloads {
+
+    /**
+     * Serializes and compresses an object.
+     *
+     * @param object the object to compress
+     * @return the compressed bytes
+     */
+    public static byte[] compress(Serializable object) throws IOException {
+        final var bytes = new ByteArrayOutputStream();
+        try (final var out = new ObjectOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decompresses and deserializes an object compressed with {@link #compress(Serializable)}.
+     *
+     * @param bytes the compressed bytes
+     * @param type  the type of the object
+     * @return the object
+     */
+    public static <T> T decompress(byte[] bytes, Class<T> type) throws IOException {
+        try (final var in = new ObjectInputStream(new GZIPInputStream(new ByteArrayInputStream(bytes)))) {
+            return type.cast(in.readObject());
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Encodes thread dumps with the {@link ThreadInfoCodec compact format}, and compresses them.
+     *
+     * @param dumps the dumps
+     * @return the compressed bytes
+     */
+    public static byte[] compressThreads(ThreadInfo[][] dumps) throws IOException {
+        final var bytes = new ByteArrayOutputStream();
+        try (final var out = new GZIPOutputStream(bytes)) {
+            ThreadInfoCodec.encode(dumps, out);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decompresses thread dumps compressed with {@link #compressThreads(ThreadInfo[][])}.
+     *
+     * @param bytes the compressed bytes
+     * @return the dumps
+     */
+    public static ThreadInfo[][] decompressThreads(byte[] bytes) throws IOException {
+        try (final var in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return ThreadInfoCodec.decode(in);
+        }
+    }
+
+    private Payloads() {
+        throw new UnsupportedOperationException("Cannot instantiate a utility class");
+    }
+}
@@ -20,9 +20,11 @@
  */
 package com.mcmoddev.relauncher.api.connector;
 
+import org.jetbrains.annotations.Nullable;
+
 import java.rmi.Remote;
 import java.rmi.RemoteException;
-import java.util.HashMap;
+import java.util.List;
 
 public interface ProcessConnector extends Remote {
 
@@ -31,12 +33,137 @@ public interface ProcessConnector extends Remote {
 
     ThreadInfo[] getThreads() throws RemoteException;
 
+    /**
+     * @return the threads of the process, as a single dump {@link Payloads#compressThreads(ThreadInfo[][]) compressed payload}
+     */
+    byte[] getThreadsCompressed() throws RemoteException;
+
+    /**
+     * Takes several thread dumps of the process, blocking until done.
+     *
+     * @param samples  the amount of dumps to take
+     * @param interval the interval between dumps, in milliseconds
+     * @return the dumps, as a {@link Payloads#compressThreads(ThreadInfo[][]) compressed payload}
+     */
+    byte[] sampleThreads(int samples, long interval) throws RemoteException;
+
     double getCPULoad() throws RemoteException;
 
     MemoryUsage getMemoryUsage() throws RemoteException;
 
+    /**
+     * @return a detailed snapshot of the memory pools, collectors and buffer pools of the process
+     */
+    MemorySnapshot getMemorySnapshot() throws RemoteException;
+
+    /**
+     * Takes a class histogram of the live objects on the heap. <br>
+     * <strong>This triggers a full GC</strong>, so it should not be called frequently.
+     *
+     * @param limit the maximum amount of classes to include, biggest first
+     * @return the histogram
+     */
+    ClassHistogram getClassHistogram(int limit) throws RemoteException;
+
+    /**
+     * @return the report of the tick watchdog, or {@code null} if the watchdog is disabled
+     */
+    @Nullable
+    WatchdogReport getWatchdogReport() throws RemoteException;
+
+    /**
+     * @return the metrics aggregated from the continuous JFR event stream, or {@code null} if the stream is disabled
+     */
+    @Nullable
+    JfrMetrics getJfrMetrics() throws RemoteException;
+
     // Profiling
-    HashMap<String, Object> getProcessInfoProfiling() throws RemoteException;
+
+    /**
+     * @return information about the process (JVM arguments, classpath, ...), as a {@code HashMap<String, Object>}
+     * {@link Payloads#compress(java.io.Serializable) compressed payload}
+     */
+    byte[] getProcessInfoProfilingCompressed() throws RemoteException;
+
+    /**
+     * Samples the stacks of the runnable threads of the process for the given duration, blocking until done.
+     *
+     * @param duration the duration of the profiling, in milliseconds
+     * @param interval the interval between samples, in milliseconds
+     * @param threads  the case-insensitive part of the names of the threads to sample, or an empty string to sample all threads
+     * @return the sampled stacks in collapsed format ({@code thread;root;...;leaf count}), one stack per line
+     */
+    String profileCpu(long duration, long interval, String threads) throws RemoteException;
+
+    /**
+     * Samples the heap allocations of the process for the given duration, blocking until done.
+     *
+     * @param duration the duration of the profiling, in milliseconds
+     * @param rate     the maximum amount of allocation samples per second
+     * @return the allocation report
+     */
+    AllocationReport profileAllocations(long duration, int rate) throws RemoteException;
+
+    // JFR
+
+    /**
+     * Starts a JFR recording.
+     *
+     * @param name     the name of the recording
+     * @param settings the name of the settings profile to use, e.g. {@code default} or {@code profile}
+     * @param maxSize  the maximum size of the recording on disk, in bytes, or a non-positive number for no limit
+     * @param maxAge   the maximum age of the recorded data, in seconds, or a non-positive number for no limit
+     * @return the ID of the recording
+     */
+    long startRecording(String name, String settings, long maxSize, long maxAge) throws RemoteException;
+
+    /**
+     * Dumps the data of a JFR recording to a file in the process, which can then be {@link #readRecording(long, long, int) read}.
+     *
+     * @param id   the ID of the recording
+     * @param stop if the recording should be stopped before dumping
+     * @return the size of the dump, in bytes
+     */
+    long dumpRecording(long id, boolean stop) throws RemoteException;
+
+    /**
+     * Reads a chunk of the last dump of a JFR recording.
+     *
+     * @param id     the ID of the recording
+     * @param offset the offset to read from
+     * @param length the maximum amount of bytes to read
+     * @return the read bytes, which is empty if the end of the dump was reached
+     */
+    byte[] readRecording(long id, long offset, int length) throws RemoteException;
+
+    /**
+     * Closes a JFR recording, discarding its data and its dump.
+     *
+     * @param id the ID of the recording
+     */
+    void closeRecording(long id) throws RemoteException;
+
+    /**
+     * Starts timing the given methods, by instrumenting their bytecode.
+     *
+     * @param methods the methods to time, as {@code com.example.Owner#method}, optionally followed by the method descriptor
+     * @throws RemoteException if methods are already being timed, or if a method is malformed
+     */
+    void startMethodTiming(List<String> methods) throws RemoteException;
+
+    /**
+     * @return the report of the methods being timed, or {@code null} if no methods are being timed
+     */
+    @Nullable
+    MethodTimingReport getMethodTimings() throws RemoteException;
+
+    /**
+     * Stops timing methods, and restores the original bytecode of the instrumented classes.
+     *
+     * @return the final report of the timed methods
+     * @throws RemoteException if no methods are being timed
+     */
+    MethodTimingReport stopMethodTiming() throws RemoteException;
 
     void onShutdown() throws RemoteException;
 }
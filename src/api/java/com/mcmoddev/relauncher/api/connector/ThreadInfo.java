@@ -20,10 +20,30 @@
  */
 package com.mcmoddev.relauncher.api.connector;
 
+import org.jetbrains.annotations.Nullable;
+
 import java.io.Serializable;
 
+/**
+ * Information about a thread of the process.
+ *
+ * @param group               the group of the thread, if known
+ * @param id                  the ID of the thread
+ * @param name                the name of the thread
+ * @param priority            the priority of the thread
+ * @param daemon              if the thread is a daemon thread
+ * @param state               the state of the thread
+ * @param stackElements       the stack of the thread, leaf first
+ * @param lock                the lock the thread is blocked on or waiting for, if any
+ * @param lockOwnerId         the ID of the thread owning the {@link #lock()}, or {@code -1}
+ * @param lockOwnerName       the name of the thread owning the {@link #lock()}, if any
+ * @param lockedMonitors      the monitors locked by the thread
+ * @param lockedSynchronizers the ownable synchronizers (e.g. {@link java.util.concurrent.locks.ReentrantLock}s) locked by the thread
+ */
 public record ThreadInfo(Group group, long id, String name, int priority, boolean daemon, Thread.State state,
-                         StackTraceElement[] stackElements) implements Serializable {
+                         StackTraceElement[] stackElements, @Nullable Lock lock, long lockOwnerId,
+                         @Nullable String lockOwnerName, Monitor[] lockedMonitors,
+                         Lock[] lockedSynchronizers) implements Serializable {
 
     public static ThreadInfo fromThread(Thread thread, StackTraceElement[] stackElements) {
         return new ThreadInfo(
@@ -33,11 +53,68 @@ public record ThreadInfo(Group group, long id, String name, int priority, boolea
                 thread.getPriority(),
                 thread.isDaemon(),
                 thread.getState(),
-                stackElements
+                stackElements,
+                null, -1, null,
+                new Monitor[0], new Lock[0]
+        );
+    }
+
+    /**
+     * Creates a thread info from the management info of a thread, which includes lock information.
+     *
+     * @param info  the management info
+     * @param group the group of the thread, if known
+     * @return the thread info
+     */
+    public static ThreadInfo fromManagement(java.lang.management.ThreadInfo info, @Nullable Group group) {
+        final var monitors = new Monitor[info.getLockedMonitors().length];
+        for (var i = 0; i < monitors.length; i++) {
+            final var monitor = info.getLockedMonitors()[i];
+            monitors[i] = new Monitor(Lock.from(monitor), monitor.getLockedStackDepth());
+        }
+        final var synchronizers = new Lock[info.getLockedSynchronizers().length];
+        for (var i = 0; i < synchronizers.length; i++) {
+            synchronizers[i] = Lock.from(info.getLockedSynchronizers()[i]);
+        }
+        return new ThreadInfo(
+                group,
+                info.getThreadId(),
+                info.getThreadName(),
+                info.getPriority(),
+                info.isDaemon(),
+                info.getThreadState(),
+                info.getStackTrace(),
+                info.getLockInfo() == null ? null : Lock.from(info.getLockInfo()),
+                info.getLockOwnerId(),
+                info.getLockOwnerName(),
+                monitors,
+                synchronizers
         );
     }
 
     public record Group(String name) implements Serializable {
     }
 
+    /**
+     * A lock, identified by its class and identity hash code.
+     */
+    public record Lock(String className, int identityHashCode) implements Serializable {
+        public static Lock from(java.lang.management.LockInfo info) {
+            return new Lock(info.getClassName(), info.getIdentityHashCode());
+        }
+
+        @Override
+        public String toString() {
+            return "<0x" + Integer.toHexString(identityHashCode) + "> (a " + className + ")";
+        }
+    }
+
+    /**
+     * A monitor locked by a thread.
+     *
+     * @param lock       the monitor
+     * @param stackDepth the depth of the stack frame which locked the monitor
+     */
+    public record Monitor(Lock lock, int stackDepth) implements Serializable {
+    }
 }
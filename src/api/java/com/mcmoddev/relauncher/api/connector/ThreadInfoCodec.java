@@ -0,0 +1,311 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.api.connector;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact wire format for thread dumps. <br>
+ * Thread dumps are very repetitive: most threads share the same frames, and pooled threads often share their whole stack.
+ * Instead of serializing every {@link StackTraceElement} of every thread, the format writes a table of the distinct strings,
+ * a table of the distinct frames (as string IDs), and a table of the distinct stacks (as frame IDs). Threads then only reference
+ * a stack ID. All IDs and lengths are varints, so most take a single byte.
+ *
+ * <pre>
+ * dumps     = version:byte strings frames stacks dumpCount:varint (threadCount:varint thread*)*
+ * strings   = count:varint (length:varint utf8:byte*)*
+ * frames    = count:varint (classLoader:opt moduleName:opt moduleVersion:opt class:str method:str file:opt line:zigzag)*
+ * stacks    = count:varint (length:varint frame:varint*)*
+ * thread    = group:opt id:varlong name:str priority:byte daemon:byte state:byte stack:varint lock:optlock
+ *             lockOwnerId:zigzag lockOwnerName:opt monitorCount:varint (lock depth:zigzag)* syncCount:varint lock*
+ * lock      = class:str identity:int
+ * optlock   = present:byte lock?
+ * opt       = 0 for null, or the string ID + 1
+ * </pre>
+ */
+public final class ThreadInfoCodec {
+    public static final int VERSION = 1;
+
+    private static final Thread.State[] STATES = Thread.State.values();
+
+    /**
+     * Encodes thread dumps.
+     *
+     * @param dumps the dumps to encode
+     * @return the encoded bytes
+     */
+    public static byte[] encode(ThreadInfo[][] dumps) throws IOException {
+        final var bytes = new ByteArrayOutputStream();
+        encode(dumps, bytes);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encodes thread dumps into the given stream.
+     *
+     * @param dumps  the dumps to encode
+     * @param output the stream to write to
+     */
+    public static void encode(ThreadInfo[][] dumps, OutputStream output) throws IOException {
+        final var strings = new Table<String>();
+        final var frames = new Table<StackTraceElement>();
+        final var stacks = new Table<List<StackTraceElement>>();
+        final var body = new ByteArrayOutputStream();
+        final var out = new DataOutputStream(body);
+
+        writeVarLong(out, dumps.length);
+        for (final var dump : dumps) {
+            writeVarLong(out, dump.length);
+            for (final var thread : dump) {
+                writeOptional(out, strings, thread.group() == null ? null : thread.group().name());
+                writeVarLong(out, thread.id());
+                writeVarLong(out, strings.id(thread.name()));
+                out.writeByte(thread.priority());
+                out.writeBoolean(thread.daemon());
+                out.writeByte(thread.state().ordinal());
+
+                final var stack = Arrays.asList(thread.stackElements());
+                if (!stacks.ids.containsKey(stack)) {
+                    // The frame table is written before the stack table, so intern the frames of new stacks now
+                    for (final var frame : stack) {
+                        frames.id(frame);
+                    }
+                }
+                writeVarLong(out, stacks.id(stack));
+
+                out.writeBoolean(thread.lock() != null);
+                if (thread.lock() != null) {
+                    writeLock(out, strings, thread.lock());
+                }
+                writeVarLong(out, zigzag(thread.lockOwnerId()));
+                writeOptional(out, strings, thread.lockOwnerName());
+                writeVarLong(out, thread.lockedMonitors().length);
+                for (final var monitor : thread.lockedMonitors()) {
+                    writeLock(out, strings, monitor.lock());
+                    writeVarLong(out, zigzag(monitor.stackDepth()));
+                }
+                writeVarLong(out, thread.lockedSynchronizers().length);
+                for (final var synchronizer : thread.lockedSynchronizers()) {
+                    writeLock(out, strings, synchronizer);
+                }
+            }
+        }
+
+        // The frame table references the string table, so encode it first to collect its strings
+        final var frameBytes = new ByteArrayOutputStream();
+        final var frameOut = new DataOutputStream(frameBytes);
+        writeVarLong(frameOut, frames.values.size());
+        for (final var frame : frames.values) {
+            writeOptional(frameOut, strings, frame.getClassLoaderName());
+            writeOptional(frameOut, strings, frame.getModuleName());
+            writeOptional(frameOut, strings, frame.getModuleVersion());
+            writeVarLong(frameOut, strings.id(frame.getClassName()));
+            writeVarLong(frameOut, strings.id(frame.getMethodName()));
+            writeOptional(frameOut, strings, frame.getFileName());
+            writeVarLong(frameOut, zigzag(frame.getLineNumber()));
+        }
+
+        final var header = new DataOutputStream(output);
+        header.writeByte(VERSION);
+        writeVarLong(header, strings.values.size());
+        for (final var string : strings.values) {
+            final var utf = string.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(header, utf.length);
+            header.write(utf);
+        }
+        frameBytes.writeTo(header);
+        writeVarLong(header, stacks.values.size());
+        for (final var stack : stacks.values) {
+            writeVarLong(header, stack.size());
+            for (final var frame : stack) {
+                writeVarLong(header, frames.id(frame));
+            }
+        }
+        body.writeTo(header);
+        header.flush();
+    }
+
+    /**
+     * Decodes thread dumps.
+     *
+     * @param bytes the encoded bytes
+     * @return the decoded dumps
+     */
+    public static ThreadInfo[][] decode(byte[] bytes) throws IOException {
+        return decode(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * Decodes thread dumps from the given stream.
+     *
+     * @param input the stream to read from
+     * @return the decoded dumps
+     */
+    public static ThreadInfo[][] decode(InputStream input) throws IOException {
+        final var in = new DataInputStream(input);
+        final var version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported thread dump format version: " + version);
+        }
+
+        final var strings = new String[readCount(in)];
+        for (var i = 0; i < strings.length; i++) {
+            final var utf = new byte[readCount(in)];
+            in.readFully(utf);
+            strings[i] = new String(utf, StandardCharsets.UTF_8);
+        }
+
+        final var frames = new StackTraceElement[readCount(in)];
+        for (var i = 0; i < frames.length; i++) {
+            frames[i] = new StackTraceElement(
+                    readOptional(in, strings), readOptional(in, strings), readOptional(in, strings),
+                    strings[readCount(in)], strings[readCount(in)], readOptional(in, strings),
+                    (int) unzigzag(readVarLong(in))
+            );
+        }
+
+        final var stacks = new StackTraceElement[readCount(in)][];
+        for (var i = 0; i < stacks.length; i++) {
+            final var stack = new StackTraceElement[readCount(in)];
+            for (var j = 0; j < stack.length; j++) {
+                stack[j] = frames[readCount(in)];
+            }
+            stacks[i] = stack;
+        }
+
+        final var dumps = new ThreadInfo[readCount(in)][];
+        for (var d = 0; d < dumps.length; d++) {
+            final var threads = new ThreadInfo[readCount(in)];
+            for (var t = 0; t < threads.length; t++) {
+                final var group = readOptional(in, strings);
+                final var id = readVarLong(in);
+                final var name = strings[readCount(in)];
+                final var priority = in.readByte();
+                final var daemon = in.readBoolean();
+                final var state = STATES[in.readUnsignedByte()];
+                final var stack = stacks[readCount(in)];
+                final var lock = in.readBoolean() ? readLock(in, strings) : null;
+                final var lockOwnerId = unzigzag(readVarLong(in));
+                final var lockOwnerName = readOptional(in, strings);
+                final var monitors = new ThreadInfo.Monitor[readCount(in)];
+                for (var i = 0; i < monitors.length; i++) {
+                    monitors[i] = new ThreadInfo.Monitor(readLock(in, strings), (int) unzigzag(readVarLong(in)));
+                }
+                final var synchronizers = new ThreadInfo.Lock[readCount(in)];
+                for (var i = 0; i < synchronizers.length; i++) {
+                    synchronizers[i] = readLock(in, strings);
+                }
+                threads[t] = new ThreadInfo(
+                        group == null ? null : new ThreadInfo.Group(group), id, name, priority, daemon, state,
+                        stack.clone(), lock, lockOwnerId, lockOwnerName, monitors, synchronizers
+                );
+            }
+            dumps[d] = threads;
+        }
+        return dumps;
+    }
+
+    private static void writeLock(DataOutputStream out, Table<String> strings, ThreadInfo.Lock lock) throws IOException {
+        writeVarLong(out, strings.id(lock.className()));
+        out.writeInt(lock.identityHashCode());
+    }
+
+    private static ThreadInfo.Lock readLock(DataInputStream in, String[] strings) throws IOException {
+        return new ThreadInfo.Lock(strings[readCount(in)], in.readInt());
+    }
+
+    private static void writeOptional(DataOutputStream out, Table<String> strings, String value) throws IOException {
+        writeVarLong(out, value == null ? 0 : strings.id(value) + 1L);
+    }
+
+    private static String readOptional(DataInputStream in, String[] strings) throws IOException {
+        final var id = readCount(in);
+        return id == 0 ? null : strings[id - 1];
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        var value = 0L;
+        for (var shift = 0; shift < 64; shift += 7) {
+            final var b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static int readCount(DataInputStream in) throws IOException {
+        final var value = readVarLong(in);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IOException("Invalid count or ID: " + value);
+        }
+        return (int) value;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * A table assigning sequential IDs to distinct values.
+     */
+    private static final class Table<T> {
+        private final Map<T, Integer> ids = new HashMap<>();
+        private final List<T> values = new ArrayList<>();
+
+        int id(T value) {
+            final var id = ids.get(value);
+            if (id != null) return id;
+            values.add(value);
+            ids.put(value, values.size() - 1);
+            return values.size() - 1;
+        }
+    }
+
+    private ThreadInfoCodec() {
+        throw new UnsupportedOperationException("Cannot instantiate a utility class");
+    }
+}
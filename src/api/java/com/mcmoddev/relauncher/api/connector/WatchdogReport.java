@@ -0,0 +1,80 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.api.connector;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A report of the tick watchdog of the agent, which samples the watched thread to measure how long it stays busy.
+ *
+ * @param thread         the name of the watched thread
+ * @param threadFound    if the watched thread currently exists
+ * @param sampleInterval the interval at which the thread is sampled, in milliseconds
+ * @param stallThreshold the duration after which a tick is considered a stall, in milliseconds
+ * @param ticks          the histogram of the tick durations
+ * @param stallCount     the total amount of stalls since the process started
+ * @param stalls         the most recent stalls, oldest first
+ * @param ongoingStall   the stall the thread is currently in, if any
+ */
+public record WatchdogReport(String thread, boolean threadFound, long sampleInterval, long stallThreshold,
+                             LatencyHistogram ticks, long stallCount, List<Stall> stalls,
+                             @Nullable Stall ongoingStall) implements Serializable {
+
+    /**
+     * A tick which took longer than the stall threshold.
+     *
+     * @param id       the sequential ID of the stall
+     * @param start    the epoch millis at which the tick started
+     * @param duration the duration of the tick, in milliseconds
+     * @param samples  the amount of samples taken during the tick
+     * @param stacks   the stacks seen during the tick, in collapsed format ({@code root;...;leaf}), mapped to the amount of samples they were seen in
+     */
+    public record Stall(long id, long start, long duration, int samples, Map<String, Integer> stacks) implements Serializable {
+
+        /**
+         * @return the stacks in the collapsed format understood by flame graph tools, one stack per line, most sampled first
+         */
+        public String collapsed() {
+            final var builder = new StringBuilder();
+            stacks.entrySet()
+                    .stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                    .forEach(e -> builder.append(e.getKey()).append(' ').append(e.getValue()).append('\n'));
+            return builder.toString();
+        }
+
+        /**
+         * @return the most sampled stack, or {@code null} if no stacks were sampled
+         */
+        @Nullable
+        public String hottestStack() {
+            return stacks.entrySet()
+                    .stream()
+                    .max(Map.Entry.comparingByValue())
+                    .map(Map.Entry::getKey)
+                    .orElse(null);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.dump;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Applies the retention limits of the dumps directory, which is shared by the agent and the launcher. <br>
+ * This is an internal helper, which lives in the API source set only so that both the agent and the launcher can use it.
+ */
+public final class DumpRetention {
+
+    /**
+     * Deletes the oldest files in the directory, until both the amount of files and their
+     * total size are within the limits. The newest file and the given files are always kept,
+     * but still count towards the limits.
+     *
+     * @param directory the directory to prune
+     * @param maxFiles  the maximum amount of files to keep, or a non-positive number for no limit
+     * @param maxBytes  the maximum total size of the kept files, or a non-positive number for no limit
+     * @param keep      the files which must not be deleted, e.g. the ones which were just written
+     */
+    public static void prune(Path directory, int maxFiles, long maxBytes, Collection<Path> keep) throws IOException {
+        if (!Files.isDirectory(directory)) return;
+        final List<Path> files;
+        try (final var stream = Files.list(directory)) {
+            files = stream.filter(Files::isRegularFile)
+                    .sorted(Comparator.comparing(DumpRetention::lastModified).reversed())
+                    .map(Path::toAbsolutePath)
+                    .toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        final var kept = keep.stream().map(Path::toAbsolutePath).collect(Collectors.toSet());
+        var count = 0;
+        var total = 0L;
+        for (final var file : files) {
+            count++;
+            total += Files.size(file);
+            if (count > 1 && !kept.contains(file) && ((maxFiles > 0 && count > maxFiles) || (maxBytes > 0 && total > maxBytes))) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private DumpRetention() {
+        throw new UnsupportedOperationException("Cannot instantiate a utility class");
+    }
+}
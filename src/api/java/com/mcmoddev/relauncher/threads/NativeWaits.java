@@ -0,0 +1,64 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.threads;
+
+import java.util.Set;
+
+/**
+ * Native methods in which threads block waiting for I/O or signals while being reported as {@link Thread.State#RUNNABLE runnable}. <br>
+ * This is an internal helper, which lives in the API source set only so that both the agent and the launcher can use it.
+ */
+public final class NativeWaits {
+    private static final Set<String> METHODS = Set.of(
+            // Selectors
+            "sun.nio.ch.EPoll.wait", "sun.nio.ch.EPollArrayWrapper.epollWait", "sun.nio.ch.KQueue.poll",
+            "sun.nio.ch.KQueueArrayWrapper.kevent0", "sun.nio.ch.WEPoll.wait", "sun.nio.ch.WindowsSelectorImpl$SubSelector.poll0",
+            "io.netty.channel.epoll.Native.epollWait", "io.netty.channel.epoll.Native.epollWait0",
+            "io.netty.channel.epoll.Native.epollWaitNoTimeout", "io.netty.channel.epoll.Native.epollBusyWait0",
+            "io.netty.channel.kqueue.Native.keventWait",
+            // Sockets (including the RMI accept loop)
+            "sun.nio.ch.Net.poll", "sun.nio.ch.Net.accept", "sun.nio.ch.ServerSocketChannelImpl.accept0",
+            "java.net.PlainSocketImpl.socketAccept", "java.net.PlainSocketImpl.accept0", "java.net.DualStackPlainSocketImpl.accept0",
+            "java.net.SocketInputStream.socketRead0", "sun.nio.ch.SocketDispatcher.read0",
+            // Streams such as the console
+            "java.io.FileInputStream.readBytes", "java.io.FileInputStream.read0", "sun.nio.ch.FileDispatcherImpl.read0",
+            "jdk.internal.io.JdkConsoleImpl.readline", "java.io.Console.readline",
+            // Processes and file watchers
+            "java.lang.ProcessHandleImpl.waitForProcessExit0", "sun.nio.fs.LinuxWatchService.poll",
+            // JVM internals, and the thread of the agent taking the dumps
+            "java.lang.ref.Reference.waitForReferencePendingList", "sun.management.ThreadImpl.dumpThreads0"
+    );
+
+    /**
+     * Checks if a runnable thread is actually blocked in native code.
+     *
+     * @param stack the stack of the thread, leaf first
+     * @return if the thread is waiting in one of the known native methods, or has no Java stack at all (such as the {@code Signal Dispatcher})
+     */
+    public static boolean isNativeWait(final StackTraceElement[] stack) {
+        if (stack.length == 0) return true;
+        return METHODS.contains(stack[0].getClassName() + "." + stack[0].getMethodName());
+    }
+
+    private NativeWaits() {
+        throw new UnsupportedOperationException("Cannot instantiate a utility class");
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.benchmark;
+
+import com.mcmoddev.relauncher.api.connector.Payloads;
+import com.mcmoddev.relauncher.api.connector.ThreadInfo;
+import com.mcmoddev.relauncher.api.connector.ThreadInfoCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Compares the size and the encoding/decoding time of the thread dump wire formats of the connector: default Java
+ * serialization, the {@link ThreadInfoCodec compact codec}, and both compressed. The process info map, which is
+ * sent as a compressed serialized payload, is also measured with and without compression. <br>
+ * The dumps are taken from this JVM after starting a few hundred threads, in pools and with locks, to resemble a busy server.
+ * Run with {@code gradlew runBenchmark}, optionally passing the amount of threads and dumps as arguments.
+ */
+public final class ConnectorSerializationBenchmark {
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int ITERATIONS = 500;
+
+    public static void main(String[] args) throws Exception {
+        final var threadCount = args.length > 0 ? Integer.parseInt(args[0]) : 400;
+        final var dumpCount = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        startThreads(threadCount);
+
+        final var dumps = new ThreadInfo[dumpCount][];
+        for (var i = 0; i < dumpCount; i++) {
+            dumps[i] = Arrays.stream(ManagementFactory.getThreadMXBean().dumpAllThreads(true, true))
+                    .map(info -> ThreadInfo.fromManagement(info, new ThreadInfo.Group("main")))
+                    .toArray(ThreadInfo[]::new);
+        }
+        System.out.printf("%d dump(s) of %d threads%n%n", dumpCount, dumps[0].length);
+        System.out.printf("%-24s %12s %14s %14s%n", "Format", "Size (bytes)", "Encode (us)", "Decode (us)");
+
+        run("Java serialization", dumps, ConnectorSerializationBenchmark::serialize, ConnectorSerializationBenchmark::deserialize);
+        run("Java serialization+gzip", dumps, Payloads::compress, bytes -> Payloads.decompress(bytes, ThreadInfo[][].class));
+        run("Compact codec", dumps, ThreadInfoCodec::encode, ThreadInfoCodec::decode);
+        run("Compact codec+gzip", dumps, Payloads::compressThreads, Payloads::decompressThreads);
+
+        final var runtime = ManagementFactory.getRuntimeMXBean();
+        final var info = new HashMap<String, Object>();
+        info.put("name", runtime.getName());
+        info.put("jvmInputArguments", new ArrayList<>(runtime.getInputArguments()));
+        info.put("classpath", runtime.getClassPath());
+        info.put("systemProperties", new HashMap<>(runtime.getSystemProperties()));
+        System.out.printf("%n%s%n%n", "Process info map");
+        System.out.printf("%-24s %12s %14s %14s%n", "Format", "Size (bytes)", "Encode (us)", "Decode (us)");
+        run("Java serialization", info, ConnectorSerializationBenchmark::serialize, ConnectorSerializationBenchmark::deserialize);
+        run("Java serialization+gzip", info, Payloads::compress, bytes -> Payloads.decompress(bytes, HashMap.class));
+        System.exit(0);
+    }
+
+    private static <T extends Serializable> void run(final String name, final T value, final Encoder<T> encoder, final Decoder decoder) throws Exception {
+        var bytes = encoder.encode(value);
+        for (var i = 0; i < WARMUP_ITERATIONS; i++) {
+            bytes = encoder.encode(value);
+            decoder.decode(bytes);
+        }
+
+        var start = System.nanoTime();
+        for (var i = 0; i < ITERATIONS; i++) {
+            bytes = encoder.encode(value);
+        }
+        final var encode = (System.nanoTime() - start) / 1000d / ITERATIONS;
+
+        start = System.nanoTime();
+        for (var i = 0; i < ITERATIONS; i++) {
+            decoder.decode(bytes);
+        }
+        final var decode = (System.nanoTime() - start) / 1000d / ITERATIONS;
+
+        System.out.printf("%-24s %12d %14.1f %14.1f%n", name, bytes.length, encode, decode);
+    }
+
+    private static void startThreads(final int count) throws InterruptedException {
+        final var started = new CountDownLatch(count);
+        final var pool = Executors.newFixedThreadPool(count / 2);
+        for (var i = 0; i < count / 2; i++) {
+            pool.execute(started::countDown); // The pool threads then park waiting for tasks
+        }
+        final var monitor = new Object();
+        for (var i = count / 2; i < count; i++) {
+            final var blocked = i % 2 == 0;
+            final var thread = new Thread(() -> {
+                started.countDown();
+                if (blocked) {
+                    synchronized (monitor) {
+                        LockSupport.park();
+                    }
+                } else {
+                    LockSupport.park();
+                }
+            }, "Worker-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        started.await();
+        Thread.sleep(100);
+    }
+
+    private static byte[] serialize(final Serializable value) throws IOException {
+        final var bytes = new ByteArrayOutputStream();
+        try (final var out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(final byte[] bytes) throws IOException {
+        try (final var in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Encoder<T> {
+        byte[] encode(T value) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Decoder {
+        Object decode(byte[] bytes) throws IOException;
+    }
+}
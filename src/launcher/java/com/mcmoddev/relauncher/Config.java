@@ -38,7 +38,9 @@ import java.lang.reflect.Type;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 
@@ -110,6 +112,362 @@ public class Config implements LauncherConfig {
         public String filePattern = ".jar";
     }
 
+    @Required
+    @Setting("resource_limits")
+    @Comment("""
+            Linux only. Resource limits applied to the process by placing it in a cgroup (v2).
+            The launcher needs write access to the cgroup tree, for example by running it as a systemd service with 'Delegate=yes'.""")
+    public ResourceLimits resourceLimits = new ResourceLimits();
+
+    @ConfigSerializable
+    public static final class ResourceLimits {
+        @Required
+        @Setting("enabled")
+        @Comment("If the process should be placed in a cgroup.")
+        public boolean enabled = false;
+
+        @Required
+        @Setting("cgroup_path")
+        @Comment("""
+                The path of the cgroup to place the process in, e.g. '/sys/fs/cgroup/relauncher/server'.
+                If empty, the launcher moves itself into a 'launcher' child of its own cgroup, and places the process in a sibling 'process' cgroup.""")
+        public String cgroupPath = "";
+
+        @Required
+        @Setting("cpu_weight")
+        @Comment("The relative CPU weight of the process (1-10000, the kernel default is 100). 0 to leave unchanged.")
+        public int cpuWeight = 0;
+
+        @Required
+        @Setting("cpu_quota")
+        @Comment("The maximum CPU time the process may use, in percent of a single core (e.g. 200 for two cores). -1 for no limit.")
+        public double cpuQuota = -1;
+
+        @Required
+        @Setting("memory_max")
+        @Comment("""
+                The hard memory limit of the process (e.g. '8G'), after which the OOM killer is invoked. Empty for no limit.
+                Unless the heap size is set in the JVM arguments (e.g. with -Xmx), the default heap size of the process is derived from this limit.""")
+        public String memoryMax = "";
+
+        @Required
+        @Setting("memory_high")
+        @Comment("The memory throttling limit of the process (e.g. '7G'), after which the kernel aggressively reclaims memory. Empty for no limit.")
+        public String memoryHigh = "";
+
+        @Required
+        @Setting("io_weight")
+        @Comment("The relative IO weight of the process (1-10000, the kernel default is 100). 0 to leave unchanged.")
+        public int ioWeight = 0;
+
+        @Required
+        @Setting("pressure_threshold")
+        @Comment("The percentage of time (averaged over 10 seconds) the process may be fully stalled on memory before a memory pressure event is raised.")
+        public double pressureThreshold = 10;
+
+        @Required
+        @Setting("event_poll_interval")
+        @Comment("The interval (in seconds) at which memory events of the cgroup are polled.")
+        public long eventPollInterval = 10;
+    }
+
+    @Required
+    @Setting("dumps")
+    @Comment("Automatic thread and heap dumps of the process. The dumps are stored in the '.relauncher/dumps' directory.")
+    public Dumps dumps = new Dumps();
+
+    @ConfigSerializable
+    public static final class Dumps {
+        @Required
+        @Setting("enabled")
+        @Comment("If dumps should be captured automatically.")
+        public boolean enabled = true;
+
+        @Required
+        @Setting("heap_threshold")
+        @Comment("The heap occupancy after a GC (in percent of the max heap) at which a thread dump is captured. -1 to disable.")
+        public double heapThreshold = 90;
+
+        @Required
+        @Setting("dump_heap")
+        @Comment("If a heap dump should be captured too when the heap threshold is crossed. Heap dumps are as large as the used heap.")
+        public boolean dumpHeap = false;
+
+        @Required
+        @Setting("heap_dump_on_oom")
+        @Comment("If the JVM should write a heap dump when it runs out of memory.")
+        public boolean heapDumpOnOom = true;
+
+        @Required
+        @Setting("hang_timeout")
+        @Comment("The amount of seconds a tick of the thread watched by the watchdog may take before a thread dump is captured. -1 to disable.")
+        public long hangTimeout = 60;
+
+        @Required
+        @Setting("max_files")
+        @Comment("The maximum amount of files kept in the dumps directory. -1 for no limit.")
+        public int maxFiles = 20;
+
+        @Required
+        @Setting("max_size")
+        @Comment("The maximum total size (in MB) of the files kept in the dumps directory. -1 for no limit.")
+        public long maxSize = 4096;
+    }
+
+    @Required
+    @Setting("watchdog")
+    @Comment("The tick watchdog, which samples a thread of the process to measure its tick durations and detect stalls.")
+    public Watchdog watchdog = new Watchdog();
+
+    @ConfigSerializable
+    public static final class Watchdog {
+        @Required
+        @Setting("enabled")
+        @Comment("If the watchdog should be enabled. A thread to watch must be configured too.")
+        public boolean enabled = false;
+
+        @Required
+        @Setting("thread")
+        @Comment("The name of the thread to watch, e.g. 'Server thread' for a Minecraft server.")
+        public String thread = "";
+
+        @Required
+        @Setting("tick_method")
+        @Comment("""
+                The method called once per tick by the watched thread, in the 'com.example.Owner#method' format (a descriptor may follow the name),
+                e.g. 'net.minecraft.server.MinecraftServer#tickServer' for a Minecraft server. Leave empty to disable.
+                The method is instrumented so that ticks are delimited exactly. If it is empty or never called, ticks are delimited by the thread waiting between them instead,
+                which can't tell back-to-back ticks apart when the server is overloaded.""")
+        public String tickMethod = "";
+
+        @Required
+        @Setting("sample_interval")
+        @Comment("The interval (in milliseconds) at which the thread is sampled. Lower values are more precise, but more expensive.")
+        public long sampleInterval = 10;
+
+        @Required
+        @Setting("stall_threshold")
+        @Comment("The duration (in milliseconds) after which a tick is considered a stall.")
+        public long stallThreshold = 500;
+
+        @Required
+        @Setting("alert_threshold")
+        @Comment("The duration (in milliseconds) after which a stall is raised as an alert. -1 to disable alerts.")
+        public long alertThreshold = 5000;
+
+        @Required
+        @Setting("poll_interval")
+        @Comment("The interval (in seconds) at which the launcher polls the watchdog for new stalls.")
+        public long pollInterval = 15;
+    }
+
+    @Required
+    @Setting("metrics")
+    @Comment("Continuous, low overhead JFR metrics (GC pauses, safepoints, allocation rate and lock contention) collected by the agent.")
+    public Metrics metrics = new Metrics();
+
+    @ConfigSerializable
+    public static final class Metrics {
+        @Required
+        @Setting("enabled")
+        @Comment("If the metrics should be collected.")
+        public boolean enabled = true;
+
+        @Required
+        @Setting("contention_threshold")
+        @Comment("The duration (in milliseconds) a thread must be blocked on a monitor or parked on a lock for the event to be recorded.")
+        public long contentionThreshold = 10;
+    }
+
+    @Required
+    @Setting("method_timing")
+    @Comment("Method timing, which instruments the bytecode of methods of the process to record the durations of their calls.")
+    public MethodTiming methodTiming = new MethodTiming();
+
+    @ConfigSerializable
+    public static final class MethodTiming {
+        @Required
+        @Setting("methods")
+        @Comment("""
+                The methods to time from startup, as 'com.example.Owner#method', optionally followed by the method descriptor
+                (e.g. 'com.example.Owner#tick(Z)V') to only time one overload. Leave empty to disable.
+                Methods can also be timed on demand using /profiling.""")
+        public List<String> methods = new ArrayList<>();
+    }
+
+    @Required
+    @Setting("process_stats")
+    @Comment("OS-level statistics of the process (RSS, PSS, swap, file descriptors, threads and CPU time), sampled by the launcher from /proc.")
+    public ProcessStats processStats = new ProcessStats();
+
+    @ConfigSerializable
+    public static final class ProcessStats {
+        @Required
+        @Setting("enabled")
+        @Comment("If the statistics should be periodically sampled. They can still be viewed on demand through /status when disabled.")
+        public boolean enabled = true;
+
+        @Required
+        @Setting("sample_interval")
+        @Comment("The interval (in seconds) at which the statistics are sampled.")
+        public long sampleInterval = 15;
+
+        @Required
+        @Setting("rss_alert_threshold")
+        @Comment("The resident memory (in MB) of the process above which an alert is raised, once per process start. -1 to disable alerts.")
+        public long rssAlertThreshold = -1;
+    }
+
+    @Required
+    @Setting("leak_detection")
+    @Comment("Detection of memory leak suspects, from class histograms of the live objects periodically taken by the agent.")
+    public LeakDetection leakDetection = new LeakDetection();
+
+    @ConfigSerializable
+    public static final class LeakDetection {
+        @Required
+        @Setting("enabled")
+        @Comment("If leak detection should be enabled. Each histogram triggers a full GC, so keep the interval long.")
+        public boolean enabled = false;
+
+        @Required
+        @Setting("interval")
+        @Comment("The interval (in minutes) at which histograms are taken.")
+        public long interval = 30;
+
+        @Required
+        @Setting("samples")
+        @Comment("The amount of consecutive histograms in which the instance count of a class must grow for it to be flagged.")
+        public int samples = 6;
+
+        @Required
+        @Setting("min_growth")
+        @Comment("The minimum amount of instances a class must have grown by across the samples for it to be flagged.")
+        public long minGrowth = 10000;
+
+        @Required
+        @Setting("classes")
+        @Comment("The amount of classes, biggest first, to track from each histogram.")
+        public int classes = 1000;
+    }
+
+    @Required
+    @Setting("class_data_sharing")
+    @Comment("""
+            Dynamic AppCDS archives of the process, stored in the '.relauncher/cds' directory, which make restarts faster.
+            The first start of a jar creates the archive when the process exits cleanly, and later starts of the same jar use it.
+            A jar which is replaced, even by the same release, gets a new archive, as the JVM validates archives against the jar's size and modification time.""")
+    public ClassDataSharing classDataSharing = new ClassDataSharing();
+
+    @ConfigSerializable
+    public static final class ClassDataSharing {
+        @Required
+        @Setting("enabled")
+        @Comment("If class data sharing archives should be used. Only applies to processes started from a jar.")
+        public boolean enabled = false;
+
+        @Required
+        @Setting("max_archives")
+        @Comment("The amount of archives to keep, the least recently used first being deleted. Keeping several speeds up switching between jars which are not replaced in between.")
+        public int maxArchives = 3;
+    }
+
+    @Required
+    @Setting("backups")
+    @Comment("Scheduled backups of the data of the process (e.g. the world), which are snapshotted while saving is paused, then zipped in the background.")
+    public Backups backups = new Backups();
+
+    @ConfigSerializable
+    public static final class Backups {
+        @Required
+        @Setting("enabled")
+        @Comment("If scheduled backups should be enabled.")
+        public boolean enabled = false;
+
+        @Required
+        @Setting("interval")
+        @Comment("The interval (in minutes) at which backups are taken.")
+        public long interval = 60;
+
+        @Required
+        @Setting("sources")
+        @Comment("The directories to back up, relative to the working directory of the process.")
+        public List<String> sources = new ArrayList<>(List.of("world"));
+
+        @Required
+        @Setting("directory")
+        @Comment("The directory the backups are stored in.")
+        public String directory = "backups";
+
+        @Required
+        @Setting("snapshot_mode")
+        @Comment("""
+                How the sources are snapshotted while saving is paused. One of:
+                - 'auto': reflinks the files if the filesystem supports it (e.g. Btrfs, XFS), and copies them otherwise
+                - 'reflink': reflinks the files, which is instant and lets saving resume right away
+                - 'hardlink': hard links the files, which is instant, but saving is only resumed once the backup is zipped
+                - 'copy': copies the files""")
+        public String snapshotMode = "auto";
+
+        @Required
+        @Setting("pre_commands")
+        @Comment("The commands sent to the process before the snapshot, to pause saving and flush the data to disk.")
+        public List<String> preCommands = new ArrayList<>(List.of("save-off", "save-all flush"));
+
+        @Required
+        @Setting("post_commands")
+        @Comment("The commands sent to the process after the snapshot, to resume saving.")
+        public List<String> postCommands = new ArrayList<>(List.of("save-on"));
+
+        @Required
+        @Setting("save_complete_pattern")
+        @Comment("A regex matching the output of the process once the data is flushed. Empty to snapshot right after the pre commands are sent.")
+        public String saveCompletePattern = "Saved the game";
+
+        @Required
+        @Setting("save_timeout")
+        @Comment("The amount of seconds to wait for the save complete pattern before the backup is aborted.")
+        public long saveTimeout = 120;
+
+        @Required
+        @Setting("compression")
+        @Comment("The compression of the backups. A single thread keeps the impact on the process low.")
+        public Compression compression = single(new Compression());
+
+        @Required
+        @Setting("retention")
+        @Comment("Which backups are kept. The newest backup is always kept.")
+        public Retention retention = new Retention();
+
+        private static Compression single(final Compression compression) {
+            compression.threads = 1;
+            return compression;
+        }
+    }
+
+    @ConfigSerializable
+    public static final class Retention {
+        @Required
+        @Setting("hourly")
+        @Comment("The amount of hours for which the newest backup of the hour is kept.")
+        public int hourly = 24;
+
+        @Required
+        @Setting("daily")
+        @Comment("The amount of days for which the newest backup of the day is kept.")
+        public int daily = 7;
+
+        @Required
+        @Setting("weekly")
+        @Comment("The amount of weeks for which the newest backup of the week is kept.")
+        public int weekly = 4;
+
+        @Required
+        @Setting("monthly")
+        @Comment("The amount of months for which the newest backup of the month is kept.")
+        public int monthly = 6;
+    }
+
     @Required
     @Setting("discord")
     @Comment("Configuration for Discord integration.")
@@ -152,12 +510,116 @@ public class Config implements LauncherConfig {
                 Patterns are tested in the order they've been defined in: if one of them tests as true, the remaining will not be tested anymore""")
         public List<String> filePatterns = List.of();
 
+        @Required
+        @Setting("upload_size_limit")
+        @Comment("The maximum size (in MB) of the files uploaded through the Discord file command. -1 for no limit.")
+        public long uploadSizeLimit = 4096;
+
+        @Required
+        @Setting("zip_compression")
+        @Comment("The compression of the directories zipped through the Discord file command.")
+        public Compression zipCompression = new Compression();
+
+        @Required
+        @Setting("file_links")
+        @Comment("A small HTTP server which serves files too large for Discord through short-lived links.")
+        public FileLinks fileLinks = new FileLinks();
+
         @Required
         @Setting("logging_webhook")
         @Comment("""
                 The URL of the webhook to use for discord logging if the launched process has logback on the classpath.
                 Can be left empty.""")
         public String loggingWebhook = "";
+
+        @Required
+        @Setting("alerts_channel")
+        @Comment("""
+                The ID of the channel launcher events (like memory pressure or crashes of the process) are sent to.
+                If empty, the console channel is used.""")
+        public String alertsChannel = "";
+
+        @Required
+        @Setting("console")
+        @Comment("Configuration for the Discord console channel bridge.")
+        public Console console = new Console();
+    }
+
+    @ConfigSerializable
+    public static final class FileLinks {
+        @Required
+        @Setting("enabled")
+        @Comment("If the link server should be enabled.")
+        public boolean enabled = false;
+
+        @Required
+        @Setting("bind_address")
+        @Comment("The address the server binds to. Only local connections are accepted by default, so use '0.0.0.0' to serve the links directly, or keep it and put the server behind a reverse proxy.")
+        public String bindAddress = "127.0.0.1";
+
+        @Required
+        @Setting("port")
+        @Comment("The port the server listens on.")
+        public int port = 8091;
+
+        @Required
+        @Setting("public_url")
+        @Comment("The URL the server is reachable at from outside, used to build the links. For example 'http://example.com:8091'.")
+        public String publicUrl = "http://localhost:8091";
+
+        @Required
+        @Setting("expiry")
+        @Comment("The amount of minutes after which links expire.")
+        public long expiry = 15;
+    }
+
+    @ConfigSerializable
+    public static final class Compression {
+        @Required
+        @Setting("default_level")
+        @Comment("The deflate level (0-9) of the files whose extension has no configured level.")
+        public int defaultLevel = 6;
+
+        @Required
+        @Setting("levels")
+        @Comment("""
+                The deflate levels (0-9) of files, by extension. 0 stores the files without compressing them,
+                which is the fastest option for files which are already compressed.""")
+        public Map<String, Integer> levels = new HashMap<>(Map.of(
+                "gz", 0, "zip", 0, "jar", 0, "mca", 0, "png", 0, "jpg", 0, "xz", 0, "zst", 0
+        ));
+
+        @Required
+        @Setting("threads")
+        @Comment("The amount of threads compressing files in parallel. 0 to use one thread per core.")
+        public int threads = 0;
+    }
+
+    @ConfigSerializable
+    public static final class Console {
+        @Required
+        @Setting("channel_id")
+        @Comment("""
+                The ID of the channel the output of the process will be streamed to.
+                Leave empty to disable the console bridge. The /console command works regardless.""")
+        public String channelId = "";
+
+        @Required
+        @Setting("flush_interval")
+        @Comment("The interval (in milliseconds) at which buffered console output is sent to the channel.")
+        public long flushInterval = 2000;
+
+        @Required
+        @Setting("max_backlog")
+        @Comment("""
+                The maximum amount of characters buffered between flushes.
+                When the process writes faster than Discord accepts messages, the oldest output is discarded so the bridge never falls behind.""")
+        public int maxBacklog = 16_000;
+
+        @Required
+        @Setting("max_messages_per_flush")
+        @Comment("The maximum amount of new messages a single flush may send.")
+        public int maxMessagesPerFlush = 3;
     }
 
     @Override
@@ -27,6 +27,7 @@ public class Constants {
 
     public static final Gson GSON = new GsonBuilder()
             .setPrettyPrinting()
+            .disableHtmlEscaping()
             .create();
 
 }
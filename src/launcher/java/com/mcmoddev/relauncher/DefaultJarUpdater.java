@@ -26,6 +26,7 @@ import com.mcmoddev.relauncher.api.ProcessInfo;
 import com.mcmoddev.relauncher.api.Release;
 import com.mcmoddev.relauncher.api.UpdateChecker;
 import com.mcmoddev.relauncher.api.connector.ProcessConnector;
+import com.mcmoddev.relauncher.cds.ClassDataSharing;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
@@ -57,14 +58,27 @@ public class DefaultJarUpdater implements JarUpdater {
     private final List<String> javaArgs;
     private final Map<String, String> properties;
     private final LoggingWebhook loggingWebhook;
+    private final List<ProcessListener> processListeners;
+    @Nullable
+    private final ClassDataSharing classDataSharing;
 
     @Nullable
     private ProcessInfo process;
 
     public DefaultJarUpdater(@NonNull final Path jarPath, @NonNull final UpdateChecker updateChecker, @NonNull final List<String> javaArgs, String webhookUrl) {
+        this(jarPath, updateChecker, javaArgs, webhookUrl, List.of());
+    }
+
+    public DefaultJarUpdater(@NonNull final Path jarPath, @NonNull final UpdateChecker updateChecker, @NonNull final List<String> javaArgs, String webhookUrl, @NonNull final List<ProcessListener> processListeners) {
+        this(jarPath, updateChecker, javaArgs, webhookUrl, processListeners, null);
+    }
+
+    public DefaultJarUpdater(@NonNull final Path jarPath, @NonNull final UpdateChecker updateChecker, @NonNull final List<String> javaArgs, String webhookUrl, @NonNull final List<ProcessListener> processListeners, @Nullable final ClassDataSharing classDataSharing) {
         this.jarPath = jarPath.toAbsolutePath();
         this.updateChecker = updateChecker;
         this.javaArgs = javaArgs;
+        this.processListeners = processListeners;
+        this.classDataSharing = classDataSharing;
 
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             if (process != null) {
@@ -161,9 +175,12 @@ public class DefaultJarUpdater implements JarUpdater {
 
             LOGGER.info("Starting process...");
             setDiscordActivity(true);
-            return new ProcessBuilder(getStartCommand())
-                    .inheritIO()
+            final var process = new ProcessBuilder(getStartCommand())
+                    .redirectErrorStream(true)
                     .start();
+            Main.CONSOLE.attach(process);
+            ProcessListener.fireStart(processListeners, process);
+            return process;
         } catch (IOException e) {
             LOGGER.error("Starting process failed, used start command {}", getStartCommand(), e);
         }
@@ -184,8 +201,11 @@ public class DefaultJarUpdater implements JarUpdater {
         command.add(findJavaBinary());
         final var webhookUrl = loggingWebhook == null ? "" : "/;/" + loggingWebhook.id() + "%%" + loggingWebhook.token();
         command.add("-javaagent:" + getAgentPath().toAbsolutePath() + "=" + Main.RMI_NAME + webhookUrl);
+        if (classDataSharing != null && Files.exists(jarPath)) {
+            command.addAll(classDataSharing.jvmArgs(jarPath, javaArgs));
+        }
         command.addAll(javaArgs);
-        properties.forEach((key, value) -> command.add("-D%s=\"%s\"".formatted(key, value)));
+        properties.forEach((key, value) -> command.add("-D%s=%s".formatted(key, value)));
         command.add("-jar");
         command.add(jarPath.toString());
         return command;
@@ -250,6 +270,7 @@ public class DefaultJarUpdater implements JarUpdater {
                 @Override
                 public void destroy() {
                     setDiscordActivity(false);
+                    ProcessListener.fireDestroyRequested(processListeners, process);
                     if (connector != null) {
                         try {
                             connector.onShutdown();
@@ -263,6 +284,7 @@ public class DefaultJarUpdater implements JarUpdater {
                 @Override
                 public Process destroyForcibly() {
                     setDiscordActivity(false);
+                    ProcessListener.fireDestroyRequested(processListeners, process);
                     return super.destroyForcibly();
                 }
             };
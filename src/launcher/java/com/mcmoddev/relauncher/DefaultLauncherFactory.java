@@ -25,9 +25,15 @@ import com.mcmoddev.relauncher.api.CustomScriptManager;
 import com.mcmoddev.relauncher.api.DiscordIntegration;
 import com.mcmoddev.relauncher.api.JarUpdater;
 import com.mcmoddev.relauncher.api.LauncherFactory;
+import com.mcmoddev.relauncher.backup.BackupScheduler;
+import com.mcmoddev.relauncher.cds.ClassDataSharing;
+import com.mcmoddev.relauncher.cgroup.CGroupManager;
 import com.mcmoddev.relauncher.discord.DefaultDiscordIntegration;
+import com.mcmoddev.relauncher.dump.CrashDumpCollector;
 import com.mcmoddev.relauncher.github.GithubRelease;
 import com.mcmoddev.relauncher.github.GithubUpdateChecker;
+import com.mcmoddev.relauncher.leak.LeakDetector;
+import com.mcmoddev.relauncher.watchdog.WatchdogMonitor;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.spongepowered.configurate.ConfigurateException;
@@ -38,6 +44,8 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Pattern;
 
 public class DefaultLauncherFactory implements LauncherFactory<Config> {
@@ -56,20 +64,78 @@ public class DefaultLauncherFactory implements LauncherFactory<Config> {
     @Override
     public @NotNull JarUpdater createUpdater(final Config config) {
         final var checker = new GithubUpdateChecker(config.gitHub.owner, config.gitHub.repo, HttpClient.newBuilder()
-                .executor(Main.HTTP_CLIENT_EXECUTOR)
+                .executor(Main.getHttpClientExecutor())
                 .build(),
                 Pattern.compile(config.checkingInfo.filePattern));
-        return new DefaultJarUpdater(Path.of(config.jarPath), checker, config.jvmArgs, config.discord.loggingWebhook);
+        final var listeners = createProcessListeners(config);
+        ClassDataSharing classDataSharing = null;
+        if (config.classDataSharing.enabled) {
+            classDataSharing = new ClassDataSharing(config.classDataSharing);
+            listeners.add(classDataSharing);
+        }
+        return new DefaultJarUpdater(Path.of(config.jarPath), checker, createJvmArgs(config), config.discord.loggingWebhook, listeners, classDataSharing);
     }
 
     @Override
     public CustomScriptManager createScriptManager(final Config config) {
         return new DefaultScriptManager(
-                config.customScript, config.jvmArgs,
-                config.discord.loggingWebhook
+                config.customScript, createJvmArgs(config),
+                config.discord.loggingWebhook,
+                createProcessListeners(config)
         );
     }
 
+    /**
+     * Creates the JVM arguments of the process. The configured arguments come last, so that they take precedence.
+     *
+     * @param config the launcher config
+     * @return the JVM arguments
+     */
+    protected List<String> createJvmArgs(final Config config) {
+        final var args = new ArrayList<>(CrashDumpCollector.jvmArgs(config.dumps));
+        args.addAll(WatchdogMonitor.jvmArgs(config.watchdog));
+        if (config.metrics.enabled) {
+            args.add("-D" + Properties.METRICS_ENABLED + "=true");
+            args.add("-D" + Properties.METRICS_CONTENTION_THRESHOLD + "=" + config.metrics.contentionThreshold);
+        }
+        if (!config.methodTiming.methods.isEmpty()) {
+            args.add("-D" + Properties.TIMING_METHODS + "=" + String.join(",", config.methodTiming.methods));
+        }
+        args.addAll(CGroupManager.jvmArgs(config.resourceLimits, config.jvmArgs));
+        args.addAll(config.jvmArgs);
+        return args;
+    }
+
+    /**
+     * Creates the launcher-side listeners of the process lifecycle, based on the config.
+     *
+     * @param config the launcher config
+     * @return the listeners
+     */
+    protected List<ProcessListener> createProcessListeners(final Config config) {
+        final var listeners = new ArrayList<ProcessListener>();
+        final var cgroup = CGroupManager.create(config.resourceLimits);
+        if (cgroup != null) {
+            listeners.add(cgroup);
+        }
+        if (config.dumps.enabled) {
+            listeners.add(new CrashDumpCollector(config.dumps));
+        }
+        if (config.watchdog.enabled) {
+            listeners.add(new WatchdogMonitor(config.watchdog));
+        }
+        if (config.leakDetection.enabled) {
+            listeners.add(new LeakDetector(config.leakDetection));
+        }
+        if (config.backups.enabled) {
+            listeners.add(new BackupScheduler(config.backups));
+        }
+        Main.PROCESS_STATS.configure(config.processStats);
+        listeners.add(Main.PROCESS_STATS);
+        listeners.add(Main.STARTUP);
+        return listeners;
+    }
+
     @Override
     public @Nullable DiscordIntegration createDiscordIntegration(final Config config, final BaseProcessManager updater) {
         return new DefaultDiscordIntegration(Path.of(""), config.discord, () -> updater);
@@ -83,7 +149,7 @@ public class DefaultLauncherFactory implements LauncherFactory<Config> {
         }
         final var url = "https://api.github.com/repos/%s/%s/releases/tags/%s".formatted(repo.owner(), repo.repo(), tagName);
         final var response = HttpClient.newBuilder()
-                .executor(Main.HTTP_CLIENT_EXECUTOR)
+                .executor(Main.getHttpClientExecutor())
                 .build()
                 .send(HttpRequest.newBuilder(URI.create(url))
                         .GET()
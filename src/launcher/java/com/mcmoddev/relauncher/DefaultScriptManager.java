@@ -52,13 +52,19 @@ public class DefaultScriptManager implements CustomScriptManager {
     private final List<String> javaArgs;
     private final Map<String, String> properties;
     private final LoggingWebhook loggingWebhook;
+    private final List<ProcessListener> processListeners;
 
     @Nullable
     private ProcessInfo process;
 
     public DefaultScriptManager(@NonNull List<String> script, @NonNull final List<String> javaArgs, String webhookUrl) {
+        this(script, javaArgs, webhookUrl, List.of());
+    }
+
+    public DefaultScriptManager(@NonNull List<String> script, @NonNull final List<String> javaArgs, String webhookUrl, @NonNull final List<ProcessListener> processListeners) {
         this.script = script;
         this.javaArgs = javaArgs;
+        this.processListeners = processListeners;
 
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             if (process != null) {
@@ -102,9 +108,12 @@ public class DefaultScriptManager implements CustomScriptManager {
 
             LOGGER.info("Starting process...");
             setDiscordActivity(true);
-            return new ProcessBuilder(getStartCommand())
-                    .inheritIO()
+            final var process = new ProcessBuilder(getStartCommand())
+                    .redirectErrorStream(true)
                     .start();
+            Main.CONSOLE.attach(process);
+            ProcessListener.fireStart(processListeners, process);
+            return process;
         } catch (IOException e) {
             LOGGER.error("Starting process failed, used start command {}", getStartCommand(), e);
         }
@@ -124,7 +133,7 @@ public class DefaultScriptManager implements CustomScriptManager {
         final var webhookUrl = loggingWebhook == null ? "" : "/;/" + loggingWebhook.id() + "%%" + loggingWebhook.token();
         command.add("-javaagent:" + getAgentPath().toAbsolutePath() + "=" + Main.RMI_NAME + webhookUrl);
         command.addAll(javaArgs);
-        properties.forEach((key, value) -> command.add("-D%s=\"%s\"".formatted(key, value)));
+        properties.forEach((key, value) -> command.add("-D%s=%s".formatted(key, value)));
         command.addAll(script);
         return command;
     }
@@ -164,6 +173,7 @@ public class DefaultScriptManager implements CustomScriptManager {
                 @Override
                 public void destroy() {
                     setDiscordActivity(false);
+                    ProcessListener.fireDestroyRequested(processListeners, process);
                     if (connector != null) {
                         try {
                             connector.onShutdown();
@@ -177,6 +187,7 @@ public class DefaultScriptManager implements CustomScriptManager {
                 @Override
                 public Process destroyForcibly() {
                     setDiscordActivity(false);
+                    ProcessListener.fireDestroyRequested(processListeners, process);
                     return super.destroyForcibly();
                 }
             };
@@ -26,6 +26,7 @@ import com.mcmoddev.relauncher.api.JarUpdater;
 import com.mcmoddev.relauncher.api.LauncherConfig;
 import com.mcmoddev.relauncher.api.LauncherFactory;
 import com.mcmoddev.relauncher.api.connector.ProcessConnector;
+import com.mcmoddev.relauncher.proc.ProcessStatsMonitor;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -93,48 +94,45 @@ public final class Main {
         SERVICE = service;
     }
 
-    public static final ExecutorService HTTP_CLIENT_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
-        final var thread = new Thread(THREAD_GROUP, r, "ReLauncherHttpClient");
-        thread.setDaemon(true);
-        return thread;
-    });
+    public static final ProcessConsole CONSOLE = new ProcessConsole();
+    public static final ProcessStatsMonitor PROCESS_STATS = new ProcessStatsMonitor();
+    public static final StartupTimings STARTUP = new StartupTimings();
 
     private static LauncherConfig config;
     private static BaseProcessManager manager;
-    private static DiscordIntegration discordIntegration;
+    private static volatile DiscordIntegration discordIntegration;
 
     public static void main(String[] args) throws IOException {
+        STARTUP.mark("main");
         System.setProperty("java.rmi.server.hostname", "127.0.0.1");
         if (!Files.exists(RELAUNCHER_DIR)) {
             Files.createDirectories(RELAUNCHER_DIR);
         }
 
         final var cfgExists = Files.exists(CONFIG_PATH);
-        config = FACTORY.getConfig(CONFIG_PATH);
+        try (final var ignored = STARTUP.start("config")) {
+            config = FACTORY.getConfig(CONFIG_PATH);
+        }
         if (!cfgExists && config.throwIfNew()) {
             throw new RuntimeException("A new configuration file was created! Please configure it.");
         }
 
-        manager = switch (config.getLauncherMode()) {
-            case JAR -> FACTORY.createUpdater(config);
-            case CUSTOM_SCRIPT -> FACTORY.createScriptManager(config);
-        };
+        try (final var ignored = STARTUP.start("process manager")) {
+            manager = switch (config.getLauncherMode()) {
+                case JAR -> FACTORY.createUpdater(config);
+                case CUSTOM_SCRIPT -> FACTORY.createScriptManager(config);
+            };
+        }
 
-        try {
+        try (final var ignored = STARTUP.start("agent copy")) {
             copyAgent(manager);
         } catch (IOException e) {
             LOG.error("Exception copying agent JAR: ", e);
             throw new RuntimeException(e);
         }
 
-        if (config.isDiscordIntegrationEnabled()) {
-            discordIntegration = FACTORY.createDiscordIntegration(config, manager);
-            if (discordIntegration != null) {
-                LOG.warn("Discord integration is active!");
-                SERVICE.setMaximumPoolSize(2);
-            }
-        }
-
+        // Start the process (or the update check which starts it) first, as it doesn't depend on the Discord integration,
+        // which takes a while to initialize. The update check runs on the service in parallel with the integration.
         final var checkingRate = config.getCheckingRate();
 
         if (manager instanceof JarUpdater updater && checkingRate.amount() > -1) {
@@ -145,11 +143,38 @@ public final class Main {
             SERVICE.allowCoreThreadTimeOut(true);
         }
 
+        if (config.isDiscordIntegrationEnabled()) {
+            try (final var ignored = STARTUP.start("discord integration")) {
+                discordIntegration = FACTORY.createDiscordIntegration(config, manager);
+            }
+            if (discordIntegration != null) {
+                LOG.warn("Discord integration is active!");
+                SERVICE.setMaximumPoolSize(2);
+                // The process may have been started before the integration existed
+                if (manager.getProcess() != null) {
+                    discordIntegration.setActivity(DiscordIntegration.ActivityType.WATCHING, "a process \uD83D\uDC40");
+                }
+            }
+        }
+
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             if (discordIntegration != null) {
                 discordIntegration.shutdown();
             }
         }));
+        LOG.info(STARTUP.report());
+    }
+
+    /**
+     * @return the executor of the HTTP clients of the launcher, which is created on first use
+     */
+    public static ExecutorService getHttpClientExecutor() {
+        return HttpClientExecutorHolder.EXECUTOR;
+    }
+
+    @Nullable
+    public static BaseProcessManager getProcessManager() {
+        return manager;
     }
 
     @Nullable
@@ -157,6 +182,19 @@ public final class Main {
         return discordIntegration;
     }
 
+    /**
+     * Raises a launcher event: the message is logged, and sent as an alert through the Discord integration, if present.
+     *
+     * @param message the message of the event
+     */
+    public static void alert(String message) {
+        LOG.warn("Launcher event: {}", message);
+        final var integration = discordIntegration;
+        if (integration != null) {
+            integration.sendAlert(message);
+        }
+    }
+
     public static void copyAgent(BaseProcessManager manager) throws IOException {
         final var agentPath = manager.getAgentPath();
         Files.copy(manager.getAgentResource(), agentPath, StandardCopyOption.REPLACE_EXISTING);
@@ -194,7 +232,7 @@ public final class Main {
                 .build();
 
         final var res = HttpClient.newBuilder()
-                .executor(HTTP_CLIENT_EXECUTOR)
+                .executor(getHttpClientExecutor())
                 .build()
                 .send(request, HttpResponse.BodyHandlers.ofString());
         if (res.statusCode() == 404) {
@@ -274,4 +312,12 @@ public final class Main {
     private Main() {
         throw new UnsupportedOperationException("Cannot instantiate a utility class");
     }
+
+    private static final class HttpClientExecutorHolder {
+        private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+            final var thread = new Thread(THREAD_GROUP, r, "ReLauncherHttpClient");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 }
@@ -0,0 +1,177 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The console of the managed process. <br>
+ * The output of the process is pumped back to the launcher's standard output, and dispatched
+ * to the registered {@link Listener listeners}. Commands can be written to the standard input of the process
+ * through {@link #sendCommand(String)}, and the launcher's own standard input is forwarded to the process.
+ */
+public final class ProcessConsole {
+    public static final Logger LOGGER = LoggerFactory.getLogger("ProcessConsole");
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final int TAIL_SIZE = 64 * 1024;
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Charset charset = Charset.defaultCharset();
+    private final StringBuilder tail = new StringBuilder(TAIL_SIZE * 2);
+
+    @Nullable
+    private volatile Process process;
+    private boolean forwardingInput;
+
+    /**
+     * Attaches the console to the given process. The process must have been started with piped
+     * output and input streams.
+     *
+     * @param process the process to attach to
+     */
+    public synchronized void attach(final Process process) {
+        this.process = process;
+
+        final var pump = new Thread(Main.THREAD_GROUP, () -> pump(process.getInputStream()), "ProcessConsolePump");
+        pump.setDaemon(true);
+        pump.start();
+
+        if (!forwardingInput) {
+            forwardingInput = true;
+            final var forwarder = new Thread(Main.THREAD_GROUP, this::forwardInput, "ProcessConsoleInput");
+            forwarder.setDaemon(true);
+            forwarder.start();
+        }
+    }
+
+    /**
+     * Writes a command to the standard input of the process.
+     *
+     * @param command the command to write
+     * @throws IOException if the process is not running, or if the command could not be written
+     */
+    public synchronized void sendCommand(final String command) throws IOException {
+        final var proc = process;
+        if (proc == null || !proc.isAlive()) {
+            throw new IOException("The process is not running!");
+        }
+        final var out = proc.getOutputStream();
+        out.write((command + System.lineSeparator()).getBytes(charset));
+        out.flush();
+    }
+
+    /**
+     * @return the last output of the process, up to 64 KiB of text
+     */
+    public String getRecentOutput() {
+        synchronized (tail) {
+            return tail.length() > TAIL_SIZE ? tail.substring(tail.length() - TAIL_SIZE) : tail.toString();
+        }
+    }
+
+    public void addListener(final Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(final Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void pump(final InputStream in) {
+        final CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        final var bytes = ByteBuffer.allocate(BUFFER_SIZE);
+        final var chars = CharBuffer.allocate(BUFFER_SIZE);
+        try (in) {
+            int read;
+            while ((read = in.read(bytes.array(), bytes.position(), bytes.remaining())) != -1) {
+                System.out.write(bytes.array(), bytes.position(), read);
+                System.out.flush();
+
+                // Decode what we can, keeping incomplete multi-byte sequences for the next read
+                bytes.position(bytes.position() + read).flip();
+                decoder.decode(bytes, chars, false);
+                bytes.compact();
+                chars.flip();
+                synchronized (tail) {
+                    tail.append(chars);
+                    if (tail.length() > TAIL_SIZE * 2) {
+                        tail.delete(0, tail.length() - TAIL_SIZE);
+                    }
+                }
+                if (chars.hasRemaining() && !listeners.isEmpty()) {
+                    for (final var listener : listeners) {
+                        listener.onOutput(chars.duplicate());
+                    }
+                }
+                chars.clear();
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Process output stream closed: ", e);
+        }
+    }
+
+    private void forwardInput() {
+        try (final var reader = new BufferedReader(new InputStreamReader(System.in, charset))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    sendCommand(line);
+                } catch (IOException e) {
+                    LOGGER.warn("Could not forward input to the process: {}", e.getLocalizedMessage());
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.debug("Launcher input stream closed: ", e);
+        }
+    }
+
+    /**
+     * A listener for the output of the process.
+     */
+    @FunctionalInterface
+    public interface Listener {
+
+        /**
+         * Called when the process has written output. This method is called on the pump thread,
+         * so it should return quickly and must not retain the given sequence.
+         *
+         * @param text the text written by the process
+         */
+        void onOutput(CharSequence text);
+    }
+}
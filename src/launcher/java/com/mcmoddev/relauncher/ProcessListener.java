@@ -0,0 +1,93 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher;
+
+/**
+ * A launcher-side listener which is notified about the lifecycle of the managed process.
+ */
+public interface ProcessListener {
+
+    /**
+     * Called right after the process has been started.
+     *
+     * @param process the started process
+     */
+    default void onStart(Process process) {
+    }
+
+    /**
+     * Called when the launcher requests the process to be destroyed, before the process is destroyed.
+     *
+     * @param process the process
+     */
+    default void onDestroyRequested(Process process) {
+    }
+
+    /**
+     * Called after the process has exited.
+     *
+     * @param process  the process
+     * @param exitCode the exit code of the process
+     */
+    default void onExit(Process process, int exitCode) {
+    }
+
+    /**
+     * Notifies the given listeners that the launcher requested the process to be destroyed.
+     *
+     * @param listeners the listeners to notify
+     * @param process   the process
+     */
+    static void fireDestroyRequested(Iterable<? extends ProcessListener> listeners, Process process) {
+        for (final var listener : listeners) {
+            try {
+                listener.onDestroyRequested(process);
+            } catch (Exception e) {
+                Main.LOG.error("Process listener {} failed handling process destruction: ", listener, e);
+            }
+        }
+    }
+
+    /**
+     * Notifies the given listeners that the process has been started, and registers them to be notified when it exits.
+     *
+     * @param listeners the listeners to notify
+     * @param process   the started process
+     */
+    static void fireStart(Iterable<? extends ProcessListener> listeners, Process process) {
+        for (final var listener : listeners) {
+            try {
+                listener.onStart(process);
+            } catch (Exception e) {
+                Main.LOG.error("Process listener {} failed handling process start: ", listener, e);
+            }
+        }
+        process.onExit().thenAccept(proc -> {
+            for (final var listener : listeners) {
+                try {
+                    listener.onExit(proc, proc.exitValue());
+                } catch (Exception e) {
+                    Main.LOG.error("Process listener {} failed handling process exit: ", listener, e);
+                }
+            }
+        });
+    }
+}
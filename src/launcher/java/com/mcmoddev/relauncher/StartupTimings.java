@@ -0,0 +1,111 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the phases of the launcher startup, relative to the start of the launcher JVM, to track the time it takes
+ * for the managed process to be started.
+ */
+public final class StartupTimings implements ProcessListener {
+    private final Instant jvmStart = ProcessHandle.current().info().startInstant().orElseGet(Instant::now);
+    private final List<Phase> phases = new ArrayList<>();
+    private boolean processStarted;
+
+    /**
+     * A startup phase.
+     *
+     * @param name     the name of the phase
+     * @param start    the start of the phase, in milliseconds since the start of the JVM
+     * @param duration the duration of the phase in milliseconds, or {@code -1} if the phase is a single event
+     */
+    public record Phase(String name, long start, long duration) {
+    }
+
+    /**
+     * A running phase, which ends when closed.
+     */
+    public interface Timer extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Starts timing a phase.
+     *
+     * @param name the name of the phase
+     * @return the timer of the phase, which must be closed when the phase ends
+     */
+    public Timer start(final String name) {
+        final var start = sinceJvmStart();
+        return () -> add(new Phase(name, start, sinceJvmStart() - start));
+    }
+
+    /**
+     * Records a single event.
+     *
+     * @param name the name of the event
+     */
+    public void mark(final String name) {
+        add(new Phase(name, sinceJvmStart(), -1));
+    }
+
+    @Override
+    public void onStart(final Process process) {
+        synchronized (this) {
+            if (processStarted) return;
+            processStarted = true;
+        }
+        mark("process started");
+        Main.LOG.info("The process was started {} ms after the launcher JVM.", sinceJvmStart());
+    }
+
+    public synchronized List<Phase> getPhases() {
+        return List.copyOf(phases);
+    }
+
+    /**
+     * @return a one-line report of the phases so far, in the order they ended
+     */
+    public String report() {
+        final var builder = new StringBuilder("Startup timings (ms since JVM start): ");
+        final var phases = getPhases();
+        for (var i = 0; i < phases.size(); i++) {
+            final var phase = phases.get(i);
+            if (i > 0) builder.append(", ");
+            builder.append(phase.name()).append(" @").append(phase.start());
+            if (phase.duration() >= 0) builder.append(" (").append(phase.duration()).append(" ms)");
+        }
+        return builder.toString();
+    }
+
+    private synchronized void add(final Phase phase) {
+        phases.add(phase);
+    }
+
+    private long sinceJvmStart() {
+        return Duration.between(jvmStart, Instant.now()).toMillis();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.archive;
+
+import com.mcmoddev.relauncher.Main;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lowers the priority of background threads, such as the ones compressing backups, so that they don't compete with the process. <br>
+ * HotSpot ignores the Java thread priorities on Linux (unless run as root with {@code -XX:ThreadPriorityPolicy=1}), so there the
+ * CPU and I/O priorities of the thread are lowered at the OS level instead, with {@code renice} and {@code ionice}, which apply
+ * to a single thread when given its id. On other platforms, only the Java priority is lowered.
+ */
+public final class BackgroundPriority {
+    /**
+     * The niceness of the background threads.
+     */
+    public static final int NICENESS = 10;
+    /**
+     * The link to the directory of the current thread, whose name is the id of the thread.
+     */
+    private static final Path THREAD_SELF = Path.of("/proc/thread-self");
+    private static final boolean LINUX = System.getProperty("os.name").toLowerCase(Locale.ROOT).contains("linux");
+    private static final AtomicBoolean WARNED = new AtomicBoolean();
+
+    /**
+     * Lowers the priority of the current thread.
+     */
+    public static void lowerCurrentThread() {
+        Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+        if (!LINUX) return;
+        try {
+            final var tid = Files.readSymbolicLink(THREAD_SELF).getFileName().toString();
+            run("renice", "-n", String.valueOf(NICENESS), "-p", tid);
+            // The lowest level of the best-effort class, as the idle class could starve the thread while the process does I/O
+            run("ionice", "-c", "2", "-n", "7", "-p", tid);
+        } catch (IOException e) {
+            if (WARNED.compareAndSet(false, true)) {
+                Main.LOG.warn("Could not lower the priority of background threads, they will compete with the process: {}", e.getLocalizedMessage());
+            }
+        }
+    }
+
+    private static void run(final String... command) throws IOException {
+        final var process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new IOException("'" + command[0] + "' timed out");
+            }
+            if (process.exitValue() != 0) {
+                throw new IOException("'" + command[0] + "' exited with code " + process.exitValue());
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running '" + command[0] + "'", e);
+        }
+    }
+
+    private BackgroundPriority() {
+        throw new UnsupportedOperationException("Cannot instantiate a utility class");
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.archive;
+
+import com.google.gson.JsonParseException;
+import com.mcmoddev.relauncher.Constants;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * Zips directories incrementally: a {@link Manifest manifest} of the files of the last export of each directory is kept, and
+ * only the files which were added or changed since are archived, along with the list of the deleted files. <br>
+ * Files whose size and modification time did not change are skipped without being read. Files whose metadata changed but
+ * whose content is the same (e.g. touched files) are read, but not archived. <br>
+ * An export only becomes the baseline of the next incremental snapshots once it is {@link #commit(Result) committed}, which
+ * should be done once the archive was delivered, so that a failed delivery doesn't lose the changes it contained.
+ */
+public final class IncrementalSnapshots {
+    /**
+     * The entry of the archives containing the manifest of the directory at the time of the export.
+     */
+    public static final String MANIFEST_ENTRY = ".snapshot/manifest.json";
+    /**
+     * The entry of the archives listing the files deleted since the previous export, one per line.
+     */
+    public static final String DELETED_ENTRY = ".snapshot/deleted.txt";
+
+    private final ZipArchiver archiver;
+    private final Path manifestsDirectory;
+
+    /**
+     * @param archiver           the archiver to zip the files with
+     * @param manifestsDirectory the directory in which the manifests of the last exports are kept
+     */
+    public IncrementalSnapshots(final ZipArchiver archiver, final Path manifestsDirectory) {
+        this.archiver = archiver;
+        this.manifestsDirectory = manifestsDirectory;
+    }
+
+    /**
+     * The state of a file at the time of an export.
+     *
+     * @param size         the size of the file
+     * @param lastModified the last modification time of the file, in epoch millis
+     * @param crc          the CRC-32 of the content of the file
+     */
+    public record FileState(long size, long lastModified, long crc) {
+    }
+
+    /**
+     * The manifest of an export.
+     *
+     * @param created the epoch millis at which the export was made
+     * @param files   the states of the exported files, by entry name
+     */
+    public record Manifest(long created, Map<String, FileState> files) {
+    }
+
+    /**
+     * The result of a snapshot.
+     *
+     * @param incremental if the snapshot is relative to a previous export
+     * @param changed     the amount of added or changed files, which were archived
+     * @param unchanged   the amount of unchanged files
+     * @param deleted     the amount of files deleted since the previous export
+     * @param directory   the zipped directory
+     * @param manifest    the manifest of the directory at the time of the snapshot, recorded when {@link #commit(Result) committed}
+     */
+    public record Result(boolean incremental, int changed, int unchanged, int deleted, Path directory, Manifest manifest) {
+    }
+
+    /**
+     * Zips a directory. The manifest of the directory must be {@link #commit(Result) committed} for the next incremental
+     * snapshots to be relative to this one.
+     *
+     * @param directory   the directory to zip
+     * @param enter       a filter for the subdirectories to walk into, to skip whole subtrees
+     * @param filter      a filter for the files to include
+     * @param incremental if only the changes since the last export should be archived. If no export was recorded, all files are archived
+     * @param out         the stream to write the archive to
+     * @return the result of the snapshot
+     */
+    public Result snapshot(final Path directory, final Predicate<Path> enter, final Predicate<Path> filter, final boolean incremental, final OutputStream out) throws IOException {
+        final var previous = incremental ? readManifest(directory) : null;
+        final var previousFiles = previous == null ? Map.<String, FileState>of() : previous.files();
+
+        final var files = new LinkedHashMap<String, FileState>();
+        final var toRead = new ArrayList<Path>();
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attributes) {
+                return dir.equals(directory) || enter.test(dir) ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) {
+                if (!attributes.isRegularFile() || !filter.test(file)) return FileVisitResult.CONTINUE;
+                final var name = ZipArchiver.entryName(directory.relativize(file));
+                final var old = previousFiles.get(name);
+                if (old != null && old.size() == attributes.size() && old.lastModified() == attributes.lastModifiedTime().toMillis()) {
+                    files.put(name, old);
+                } else {
+                    toRead.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        final var unchanged = files.size();
+
+        final var deleted = new TreeSet<>(previousFiles.keySet());
+        final var changed = new int[1];
+        final var manifest = new Manifest(System.currentTimeMillis(), files);
+        archiver.archive(directory, toRead, file -> {
+            final var old = previousFiles.get(file.name());
+            final var include = old == null || old.size() != file.size() || old.crc() != file.crc();
+            if (include) changed[0]++;
+            return include;
+        }, read -> {
+            for (final var file : read) {
+                files.put(file.name(), new FileState(file.size(), file.lastModified().toMillis(), file.crc()));
+            }
+            deleted.removeAll(files.keySet());
+            return Map.of(
+                    MANIFEST_ENTRY, Constants.GSON.toJson(manifest).getBytes(StandardCharsets.UTF_8),
+                    DELETED_ENTRY, String.join("\n", deleted).getBytes(StandardCharsets.UTF_8)
+            );
+        }, out);
+        return new Result(previous != null, changed[0], unchanged + (toRead.size() - changed[0]), deleted.size(), directory, manifest);
+    }
+
+    /**
+     * Records the manifest of a snapshot, so that the next incremental snapshots of its directory only contain the changes since it.
+     *
+     * @param result the result of the snapshot, whose archive was delivered
+     */
+    public void commit(final Result result) throws IOException {
+        writeManifest(result.directory(), result.manifest());
+    }
+
+    private Path manifestPath(final Path directory) {
+        try {
+            final var hash = MessageDigest.getInstance("SHA-256")
+                    .digest(directory.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8));
+            return manifestsDirectory.resolve(HexFormat.of().formatHex(hash, 0, 8) + ".json");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    private Manifest readManifest(final Path directory) throws IOException {
+        final var path = manifestPath(directory);
+        if (!Files.exists(path)) return null;
+        try {
+            final var manifest = Constants.GSON.fromJson(Files.readString(path), Manifest.class);
+            return manifest == null || manifest.files() == null ? null : new Manifest(manifest.created(), new HashMap<>(manifest.files()));
+        } catch (JsonParseException e) {
+            // A corrupt manifest only means that the next export is a full one
+            return null;
+        }
+    }
+
+    private void writeManifest(final Path directory, final Manifest manifest) throws IOException {
+        Files.createDirectories(manifestsDirectory);
+        final var path = manifestPath(directory);
+        final var temp = Files.writeString(path.resolveSibling(path.getFileName() + ".tmp"), Constants.GSON.toJson(manifest));
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
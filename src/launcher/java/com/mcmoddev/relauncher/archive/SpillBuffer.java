@@ -0,0 +1,106 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.archive;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A buffer which keeps its data in memory until it exceeds a threshold, and then spills it to a temporary file. <br>
+ * This bounds the memory used by each entry compressed in parallel by the {@link ZipArchiver}, no matter the size of its file.
+ */
+final class SpillBuffer extends OutputStream {
+    private final int threshold;
+    private final Path tempDirectory;
+
+    private ByteArrayOutputStream memory = new ByteArrayOutputStream();
+    private Path file;
+    private OutputStream fileOut;
+    private long size;
+
+    SpillBuffer(final int threshold, final Path tempDirectory) {
+        this.threshold = threshold;
+        this.tempDirectory = tempDirectory;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        if (fileOut == null && memory.size() + len > threshold) {
+            Files.createDirectories(tempDirectory);
+            file = Files.createTempFile(tempDirectory, "spill-", ".tmp");
+            fileOut = Files.newOutputStream(file);
+            memory.writeTo(fileOut);
+            memory = null;
+        }
+        if (fileOut != null) {
+            fileOut.write(b, off, len);
+        } else {
+            memory.write(b, off, len);
+        }
+        size += len;
+    }
+
+    /**
+     * @return the amount of bytes written to the buffer
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * Writes the data of the buffer to the given writer.
+     */
+    void writeTo(final ZipWriter writer) throws IOException {
+        if (fileOut == null) {
+            final var data = memory.toByteArray();
+            writer.writeData(data, 0, data.length);
+            return;
+        }
+        fileOut.flush();
+        try (final var in = Files.newInputStream(file)) {
+            final var buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                writer.writeData(buffer, 0, read);
+            }
+        }
+    }
+
+    /**
+     * Releases the data of the buffer, deleting its temporary file if it spilled.
+     */
+    @Override
+    public void close() throws IOException {
+        memory = null;
+        if (fileOut != null) {
+            fileOut.close();
+            Files.deleteIfExists(file);
+        }
+    }
+}
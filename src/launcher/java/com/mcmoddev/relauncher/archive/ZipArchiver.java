@@ -0,0 +1,300 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.archive;
+
+import com.mcmoddev.relauncher.Config;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Zips directories, compressing their files in parallel. <br>
+ * Files are deflated concurrently into independent {@link SpillBuffer buffers}, which are then written to the archive in order.
+ * At most a window of entries is in flight at a time, and each buffer spills to disk past a threshold, so the memory used
+ * does not depend on the size of the files. <br>
+ * The deflate level of each file depends on its extension, so that already compressed files (e.g. {@code .gz} or
+ * Minecraft's {@code .mca} region files) can be stored as-is instead of wasting time compressing them again. <br>
+ * Every file is read exactly once, and its entry is written from what was read, so a file modified while being archived
+ * is archived consistently (as it was when read) instead of failing the archive.
+ */
+public final class ZipArchiver {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int SPILL_THRESHOLD = 4 * 1024 * 1024;
+
+    private final int defaultLevel;
+    private final Map<String, Integer> levels;
+    private final int parallelism;
+    private final Path tempDirectory;
+    private final boolean background;
+
+    /**
+     * @param config        the compression config
+     * @param tempDirectory the directory in which entries too large to be buffered in memory are spilled
+     */
+    public ZipArchiver(final Config.Compression config, final Path tempDirectory) {
+        this(config, tempDirectory, false);
+    }
+
+    /**
+     * @param config         the compression config
+     * @param tempDirectory  the directory in which entries too large to be buffered in memory are spilled
+     * @param background     if the threads compressing the files should run at a {@link BackgroundPriority low priority}
+     */
+    public ZipArchiver(final Config.Compression config, final Path tempDirectory, final boolean background) {
+        this.defaultLevel = config.defaultLevel;
+        this.levels = new HashMap<>();
+        config.levels.forEach((extension, level) -> levels.put(extension.toLowerCase(Locale.ROOT), level));
+        this.parallelism = config.threads > 0 ? config.threads : Runtime.getRuntime().availableProcessors();
+        this.tempDirectory = tempDirectory;
+        this.background = background;
+    }
+
+    /**
+     * Gets the deflate level of the given file, based on its extension.
+     *
+     * @param file the file
+     * @return the deflate level, between 0 (stored) and 9
+     */
+    public int getLevel(final Path file) {
+        final var name = file.getFileName().toString();
+        final var dot = name.lastIndexOf('.');
+        if (dot == -1) return defaultLevel;
+        return levels.getOrDefault(name.substring(dot + 1).toLowerCase(Locale.ROOT), defaultLevel);
+    }
+
+    /**
+     * Zips a directory into the given file.
+     *
+     * @param directory the directory to zip
+     * @param filter    a filter for the files to include
+     * @param target    the file to write the archive to
+     * @return the amount of archived files
+     */
+    public int archive(final Path directory, final Predicate<Path> filter, final Path target) throws IOException {
+        try (final var out = Files.newOutputStream(target)) {
+            return archive(directory, filter, out);
+        }
+    }
+
+    /**
+     * Zips a directory into the given stream. The stream is not closed.
+     *
+     * @param directory the directory to zip
+     * @param filter    a filter for the files to include
+     * @param out       the stream to write the archive to
+     * @return the amount of archived files
+     */
+    public int archive(final Path directory, final Predicate<Path> filter, final OutputStream out) throws IOException {
+        final var files = new ArrayList<Path>();
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) {
+                if (attributes.isRegularFile() && filter.test(file)) {
+                    files.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return archive(directory, files, f -> true, f -> Map.of(), out).size();
+    }
+
+    /**
+     * Zips the given files of a directory into the given stream. The stream is not closed.
+     *
+     * @param directory the directory the files are in, which entry names are relative to
+     * @param files     the files to zip
+     * @param include   a filter for the files to write to the archive, tested once their content has been read
+     * @param trailer   a function creating additional entries, written after the files, from all the read files
+     * @param out       the stream to write the archive to
+     * @return all the read files, included or not, in order
+     */
+    public List<ArchivedFile> archive(final Path directory, final List<Path> files, final Predicate<ArchivedFile> include,
+                                      final Function<List<ArchivedFile>, Map<String, byte[]>> trailer, final OutputStream out) throws IOException {
+        final var sources = new ArrayList<Source>(files.size());
+        for (final var file : files) {
+            sources.add(new Source(file, entryName(directory.relativize(file)), Files.getLastModifiedTime(file)));
+        }
+
+        final var buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+        final var writer = new ZipWriter(buffered);
+        final var archived = new ArrayList<ArchivedFile>(sources.size());
+        final var pool = new ForkJoinPool(parallelism, p -> new ForkJoinWorkerThread(p) {
+            @Override
+            protected void onStart() {
+                super.onStart();
+                if (background) BackgroundPriority.lowerCurrentThread();
+            }
+        }, null, false);
+        final var window = parallelism * 2;
+        final var pending = new ArrayDeque<Future<Compressed>>(window);
+        final var aborted = new AtomicBoolean();
+        try {
+            var next = 0;
+            while (next < sources.size() || !pending.isEmpty()) {
+                while (next < sources.size() && pending.size() < window) {
+                    final var source = sources.get(next++);
+                    pending.add(pool.submit(() -> compress(source, aborted)));
+                }
+                try (final var compressed = await(pending.removeFirst())) {
+                    final var file = new ArchivedFile(compressed.source().name(), compressed.size(), compressed.source().lastModified(), compressed.crc());
+                    archived.add(file);
+                    if (include.test(file)) {
+                        compressed.writeTo(writer);
+                    }
+                }
+            }
+
+            final var crc = new CRC32();
+            for (final var entry : trailer.apply(archived).entrySet()) {
+                crc.reset();
+                crc.update(entry.getValue());
+                writer.putEntry(entry.getKey(), FileTime.from(Instant.now()), ZipWriter.STORED, crc.getValue(), entry.getValue().length, entry.getValue().length);
+                writer.writeData(entry.getValue(), 0, entry.getValue().length);
+            }
+            writer.finish();
+            buffered.flush();
+        } finally {
+            // Cancelling the tasks wouldn't stop those already running, and would lose the buffers they create, so they are
+            // told to stop instead, and are waited for so that the buffers of those which completed can be closed
+            aborted.set(true);
+            pool.close();
+            for (final var future : pending) {
+                if (future.state() == Future.State.SUCCESS) {
+                    try {
+                        future.resultNow().close();
+                    } catch (IOException ignored) {
+                    }
+                }
+            }
+        }
+        return archived;
+    }
+
+    private Compressed compress(final Source source, final AtomicBoolean aborted) throws IOException {
+        if (aborted.get()) throw new IOException("The archiving was aborted");
+        final var level = getLevel(source.file());
+        final var crc = new CRC32();
+        final var buffer = new byte[BUFFER_SIZE];
+        var size = 0L;
+        final var data = new SpillBuffer(SPILL_THRESHOLD, tempDirectory);
+        // Stored files are buffered as-is, so that the written entry matches its checksum even if the file changes afterwards
+        final var deflater = level == 0 ? null : new Deflater(level, true);
+        try (final var in = Files.newInputStream(source.file())) {
+            final var target = deflater == null ? data : new DeflaterOutputStream(data, deflater, BUFFER_SIZE);
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (aborted.get()) throw new IOException("The archiving was aborted");
+                crc.update(buffer, 0, read);
+                target.write(buffer, 0, read);
+                size += read;
+            }
+            if (target instanceof DeflaterOutputStream deflate) {
+                deflate.finish();
+            }
+        } catch (IOException | RuntimeException e) {
+            data.close();
+            throw e;
+        } finally {
+            if (deflater != null) deflater.end();
+        }
+        return new Compressed(source, deflater == null ? ZipWriter.STORED : ZipWriter.DEFLATED, crc.getValue(), data.size(), size, data);
+    }
+
+    private static Compressed await(final Future<Compressed> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Converts a relative path to a zip entry name, which always uses {@code /} as the separator.
+     */
+    public static String entryName(final Path relative) {
+        final var builder = new StringBuilder();
+        for (final var part : relative) {
+            if (!builder.isEmpty()) builder.append('/');
+            builder.append(part);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * A file read by the archiver.
+     *
+     * @param name         the name of the entry of the file
+     * @param size         the size of the file
+     * @param lastModified the last modification time of the file
+     * @param crc          the CRC-32 of the content of the file
+     */
+    public record ArchivedFile(String name, long size, FileTime lastModified, long crc) {
+    }
+
+    private record Source(Path file, String name, FileTime lastModified) {
+    }
+
+    /**
+     * A compressed entry.
+     *
+     * @param data the data of the entry, compressed with the entry's method
+     */
+    private record Compressed(Source source, int method, long crc, long compressedSize, long size,
+                              SpillBuffer data) implements AutoCloseable {
+        void writeTo(final ZipWriter writer) throws IOException {
+            writer.putEntry(source.name(), source.lastModified(), method, crc, compressedSize, size);
+            data.writeTo(writer);
+        }
+
+        @Override
+        public void close() throws IOException {
+            data.close();
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.archive;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes zip archives from entries whose data is already compressed (or stored), which {@link java.util.zip.ZipOutputStream}
+ * does not support. <br>
+ * Zip64 records are written when needed, so that archives may be larger than 4 GiB or have more than 65535 entries.
+ */
+final class ZipWriter {
+    static final int STORED = 0;
+    static final int DEFLATED = 8;
+
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int VERSION = 20;
+    private static final int VERSION_ZIP64 = 45;
+    private static final int FLAG_UTF8 = 0x0800;
+
+    private final OutputStream out;
+    private final List<CentralEntry> entries = new ArrayList<>();
+    private final ByteBuffer header = ByteBuffer.allocate(128).order(ByteOrder.LITTLE_ENDIAN);
+    private long written;
+
+    private record CentralEntry(byte[] name, int method, int dosTime, long crc, long compressedSize, long size, long offset) {
+    }
+
+    ZipWriter(final OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes the local header of an entry. Exactly {@code compressedSize} bytes of data must then be written with {@link #writeData(byte[], int, int)}.
+     *
+     * @param name           the name of the entry
+     * @param lastModified   the last modification time of the entry
+     * @param method         the compression method of the entry, {@link #STORED} or {@link #DEFLATED}
+     * @param crc            the CRC-32 of the uncompressed data
+     * @param compressedSize the size of the compressed data
+     * @param size           the size of the uncompressed data
+     */
+    void putEntry(final String name, final FileTime lastModified, final int method, final long crc, final long compressedSize, final long size) throws IOException {
+        final var nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        final var entry = new CentralEntry(nameBytes, method, dosTime(lastModified), crc, compressedSize, size, written);
+        entries.add(entry);
+        final var zip64 = size >= ZIP64_MAGIC || compressedSize >= ZIP64_MAGIC;
+
+        header.clear();
+        header.putInt(0x04034b50)
+                .putShort((short) (zip64 ? VERSION_ZIP64 : VERSION))
+                .putShort((short) FLAG_UTF8)
+                .putShort((short) method)
+                .putInt(entry.dosTime())
+                .putInt((int) crc)
+                .putInt((int) (zip64 ? ZIP64_MAGIC : compressedSize))
+                .putInt((int) (zip64 ? ZIP64_MAGIC : size))
+                .putShort((short) nameBytes.length)
+                .putShort((short) (zip64 ? 20 : 0));
+        writeHeader();
+        writeData(nameBytes, 0, nameBytes.length);
+        if (zip64) {
+            header.clear();
+            header.putShort((short) 0x0001).putShort((short) 16).putLong(size).putLong(compressedSize);
+            writeHeader();
+        }
+    }
+
+    void writeData(final byte[] data, final int offset, final int length) throws IOException {
+        out.write(data, offset, length);
+        written += length;
+    }
+
+    /**
+     * Writes the central directory and the end records. The underlying stream is not closed.
+     */
+    void finish() throws IOException {
+        final var centralOffset = written;
+        for (final var entry : entries) {
+            final var zip64Sizes = entry.size() >= ZIP64_MAGIC || entry.compressedSize() >= ZIP64_MAGIC;
+            final var zip64Offset = entry.offset() >= ZIP64_MAGIC;
+            final var extraLength = (zip64Sizes ? 16 : 0) + (zip64Offset ? 8 : 0);
+            final var zip64 = extraLength > 0;
+
+            header.clear();
+            header.putInt(0x02014b50)
+                    .putShort((short) VERSION_ZIP64)
+                    .putShort((short) (zip64 ? VERSION_ZIP64 : VERSION))
+                    .putShort((short) FLAG_UTF8)
+                    .putShort((short) entry.method())
+                    .putInt(entry.dosTime())
+                    .putInt((int) entry.crc())
+                    .putInt((int) (zip64Sizes ? ZIP64_MAGIC : entry.compressedSize()))
+                    .putInt((int) (zip64Sizes ? ZIP64_MAGIC : entry.size()))
+                    .putShort((short) entry.name().length)
+                    .putShort((short) (zip64 ? extraLength + 4 : 0))
+                    .putShort((short) 0) // comment length
+                    .putShort((short) 0) // disk number
+                    .putShort((short) 0) // internal attributes
+                    .putInt(0) // external attributes
+                    .putInt((int) (zip64Offset ? ZIP64_MAGIC : entry.offset()));
+            writeHeader();
+            writeData(entry.name(), 0, entry.name().length);
+            if (zip64) {
+                header.clear();
+                header.putShort((short) 0x0001).putShort((short) extraLength);
+                if (zip64Sizes) header.putLong(entry.size()).putLong(entry.compressedSize());
+                if (zip64Offset) header.putLong(entry.offset());
+                writeHeader();
+            }
+        }
+
+        final var centralSize = written - centralOffset;
+        final var zip64 = entries.size() >= 0xFFFF || centralOffset >= ZIP64_MAGIC || centralSize >= ZIP64_MAGIC;
+        if (zip64) {
+            final var zip64EndOffset = written;
+            header.clear();
+            header.putInt(0x06064b50)
+                    .putLong(44)
+                    .putShort((short) VERSION_ZIP64)
+                    .putShort((short) VERSION_ZIP64)
+                    .putInt(0)
+                    .putInt(0)
+                    .putLong(entries.size())
+                    .putLong(entries.size())
+                    .putLong(centralSize)
+                    .putLong(centralOffset);
+            writeHeader();
+            header.clear();
+            header.putInt(0x07064b50).putInt(0).putLong(zip64EndOffset).putInt(1);
+            writeHeader();
+        }
+        header.clear();
+        header.putInt(0x06054b50)
+                .putShort((short) 0)
+                .putShort((short) 0)
+                .putShort((short) (zip64 ? 0xFFFF : entries.size()))
+                .putShort((short) (zip64 ? 0xFFFF : entries.size()))
+                .putInt((int) (zip64 ? ZIP64_MAGIC : centralSize))
+                .putInt((int) (zip64 ? ZIP64_MAGIC : centralOffset))
+                .putShort((short) 0);
+        writeHeader();
+        out.flush();
+    }
+
+    private void writeHeader() throws IOException {
+        writeData(header.array(), 0, header.position());
+    }
+
+    /**
+     * Converts a time to the MS-DOS format used by zip headers, in the local time zone.
+     */
+    private static int dosTime(final FileTime time) {
+        final var date = LocalDateTime.ofInstant(time.toInstant(), ZoneId.systemDefault());
+        if (date.getYear() < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (date.getYear() - 1980) << 25
+                | date.getMonthValue() << 21
+                | date.getDayOfMonth() << 16
+                | date.getHour() << 11
+                | date.getMinute() << 5
+                | date.getSecond() >> 1;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.backup;
+
+import com.mcmoddev.relauncher.Config;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.IsoFields;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Selects the backups to keep according to a generational (grandfather-father-son) retention policy: the newest backup
+ * of each of the last hours, days, weeks and months is kept, up to the configured amount for each generation.
+ */
+public final class BackupRetention {
+
+    /**
+     * Selects the backups to keep. The newest backup is always kept.
+     *
+     * @param backups   the backups
+     * @param timestamp a function returning the time a backup was taken at
+     * @param config    the retention config
+     * @param <T>       the type of the backups
+     * @return the backups to keep
+     */
+    public static <T> Set<T> select(final List<T> backups, final Function<T, Instant> timestamp, final Config.Retention config) {
+        final var sorted = backups.stream().sorted(Comparator.comparing(timestamp).reversed()).toList();
+        final var keep = new HashSet<T>();
+        if (sorted.isEmpty()) return keep;
+        keep.add(sorted.get(0));
+        keepNewestPerPeriod(sorted, timestamp, config.hourly, i -> i.truncatedTo(ChronoUnit.HOURS).getEpochSecond(), keep);
+        keepNewestPerPeriod(sorted, timestamp, config.daily, i -> i.truncatedTo(ChronoUnit.DAYS).getEpochSecond(), keep);
+        keepNewestPerPeriod(sorted, timestamp, config.weekly, i -> {
+            final var date = i.atOffset(ZoneOffset.UTC);
+            return date.get(IsoFields.WEEK_BASED_YEAR) * 100L + date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
+        }, keep);
+        keepNewestPerPeriod(sorted, timestamp, config.monthly, i -> {
+            final var date = i.atOffset(ZoneOffset.UTC);
+            return date.getYear() * 100L + date.getMonthValue();
+        }, keep);
+        return keep;
+    }
+
+    /**
+     * Keeps the newest backup of each of the last {@code amount} periods which have a backup.
+     *
+     * @param sorted the backups, newest first
+     * @param period a function returning the period of a timestamp
+     */
+    private static <T> void keepNewestPerPeriod(final List<T> sorted, final Function<T, Instant> timestamp, final int amount,
+                                                final Function<Instant, Long> period, final Set<T> keep) {
+        var periods = 0;
+        Long last = null;
+        for (final var backup : sorted) {
+            if (periods >= amount) return;
+            final var current = period.apply(timestamp.apply(backup));
+            if (!current.equals(last)) {
+                last = current;
+                periods++;
+                keep.add(backup);
+            }
+        }
+    }
+
+    private BackupRetention() {
+        throw new UnsupportedOperationException("Cannot instantiate a utility class");
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.backup;
+
+import com.mcmoddev.relauncher.Config;
+import com.mcmoddev.relauncher.Main;
+import com.mcmoddev.relauncher.ProcessConsole;
+import com.mcmoddev.relauncher.ProcessListener;
+import com.mcmoddev.relauncher.archive.BackgroundPriority;
+import com.mcmoddev.relauncher.archive.ZipArchiver;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Periodically backs up the data of the process. <br>
+ * Saving is paused only for the duration of the {@link Snapshotter snapshot} of the sources, which is near instant with
+ * reflinks. The snapshot is then zipped in the background at a {@link BackgroundPriority low priority}, and the old backups are pruned according to
+ * the {@link BackupRetention generational retention policy}.
+ */
+public final class BackupScheduler implements ProcessListener {
+    public static final Logger LOGGER = LoggerFactory.getLogger("Backups");
+    public static final Path STAGING_DIRECTORY = Main.RELAUNCHER_DIR.resolve("backups-staging");
+    public static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+    public static final String EXTENSION = ".zip";
+
+    private final Config.Backups config;
+    private final Snapshotter.Mode mode;
+    @Nullable
+    private final Pattern saveComplete;
+    private final Path directory;
+    private final ZipArchiver archiver;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        final var thread = new Thread(Main.THREAD_GROUP, () -> {
+            BackgroundPriority.lowerCurrentThread();
+            r.run();
+        }, "ReLauncherBackups");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Nullable
+    private ScheduledFuture<?> schedule;
+
+    public BackupScheduler(final Config.Backups config) {
+        this.config = config;
+        this.mode = Snapshotter.Mode.parse(config.snapshotMode);
+        this.saveComplete = config.saveCompletePattern.isBlank() ? null : Pattern.compile(config.saveCompletePattern);
+        this.directory = Path.of(config.directory);
+        this.archiver = new ZipArchiver(config.compression, Main.RELAUNCHER_DIR.resolve("tmp"), true);
+    }
+
+    @Override
+    public synchronized void onStart(final Process process) {
+        schedule = Main.SERVICE.scheduleWithFixedDelay(() -> executor.execute(this::scheduledBackup), config.interval, config.interval, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public synchronized void onExit(final Process process, final int exitCode) {
+        if (schedule != null) {
+            schedule.cancel(false);
+            schedule = null;
+        }
+    }
+
+    private void scheduledBackup() {
+        try {
+            backup();
+        } catch (Exception e) {
+            LOGGER.error("Backup failed: ", e);
+            Main.alert("Backup failed: " + e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Takes a backup, blocking until it is zipped.
+     *
+     * @return the backup file, or {@code null} if a backup is already being taken
+     */
+    @Nullable
+    public Path backup() throws IOException {
+        if (!running.compareAndSet(false, true)) return null;
+        try {
+            final var start = Instant.now();
+            final var target = directory.resolve(NAME_FORMAT.format(start) + EXTENSION);
+            final var staging = STAGING_DIRECTORY.resolve(NAME_FORMAT.format(start));
+            // Remove the leftovers of a backup interrupted by a crash
+            Snapshotter.deleteRecursively(STAGING_DIRECTORY);
+            Files.createDirectories(staging);
+            Files.createDirectories(directory);
+
+            var resumed = false;
+            try {
+                final var pausedAt = System.nanoTime();
+                pauseSaving();
+                var used = mode;
+                for (final var source : config.sources) {
+                    final var path = Path.of(source);
+                    used = Snapshotter.snapshot(path, staging.resolve(path.getFileName()), mode);
+                }
+                // Hard links share the data of the live files, so saving may only resume once they are zipped
+                if (!used.sharesData()) {
+                    resumeSaving();
+                    resumed = true;
+                    LOGGER.info("Saving was paused for {} ms while the sources were snapshotted ({}).",
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pausedAt), used.name().toLowerCase(Locale.ROOT));
+                }
+
+                final var partial = target.resolveSibling(target.getFileName() + ".partial");
+                final var files = archiver.archive(staging, p -> true, partial);
+                Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                LOGGER.info("Backed up {} file(s) to {} ({} KB) in {} s.", files, target, Files.size(target) / 1024,
+                        Instant.now().getEpochSecond() - start.getEpochSecond());
+            } finally {
+                if (!resumed) resumeSaving();
+                Snapshotter.deleteRecursively(STAGING_DIRECTORY);
+            }
+
+            prune();
+            return target;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Sends the pre commands to the process, and waits for it to flush its data to disk.
+     */
+    private void pauseSaving() throws IOException {
+        final var saved = new CountDownLatch(1);
+        final ProcessConsole.Listener listener = text -> {
+            if (saveComplete != null && saveComplete.matcher(text).find()) {
+                saved.countDown();
+            }
+        };
+        Main.CONSOLE.addListener(listener);
+        try {
+            for (final var command : config.preCommands) {
+                Main.CONSOLE.sendCommand(command);
+            }
+            if (saveComplete != null && !saved.await(config.saveTimeout, TimeUnit.SECONDS)) {
+                throw new IOException("The process did not finish saving within %s seconds".formatted(config.saveTimeout));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the process to save", e);
+        } finally {
+            Main.CONSOLE.removeListener(listener);
+        }
+    }
+
+    private void resumeSaving() {
+        try {
+            for (final var command : config.postCommands) {
+                Main.CONSOLE.sendCommand(command);
+            }
+        } catch (IOException e) {
+            LOGGER.error("Could not resume saving: ", e);
+            Main.alert("Could not resume saving after a backup, saving may still be disabled: " + e.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Deletes the backups which are not selected by the retention policy.
+     */
+    private void prune() throws IOException {
+        final var backups = new ArrayList<Backup>();
+        try (final var files = Files.list(directory)) {
+            for (final var file : (Iterable<Path>) files::iterator) {
+                final var name = file.getFileName().toString();
+                if (!name.endsWith(EXTENSION)) continue;
+                try {
+                    final var timestamp = LocalDateTime.parse(name.substring(0, name.length() - EXTENSION.length()), NAME_FORMAT).toInstant(ZoneOffset.UTC);
+                    backups.add(new Backup(file, timestamp));
+                } catch (DateTimeParseException ignored) {
+                    // Not a backup taken by the scheduler
+                }
+            }
+        }
+        final var keep = BackupRetention.select(backups, Backup::timestamp, config.retention);
+        for (final var backup : backups) {
+            if (!keep.contains(backup)) {
+                Files.deleteIfExists(backup.file());
+                LOGGER.info("Deleted backup {}, according to the retention policy.", backup.file());
+            }
+        }
+    }
+
+    private record Backup(Path file, Instant timestamp) {
+    }
+}
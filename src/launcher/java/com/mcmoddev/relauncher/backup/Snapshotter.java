@@ -0,0 +1,166 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.backup;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes point-in-time copies of directories, as cheaply as the filesystem allows.
+ */
+public final class Snapshotter {
+
+    public enum Mode {
+        /**
+         * Reflinks the files if the filesystem supports it (e.g. Btrfs, XFS), and copies them otherwise.
+         */
+        AUTO,
+        /**
+         * Reflinks the files: the copies share their data with the originals until either is modified, so they are
+         * instant and safe to keep while the originals are modified.
+         */
+        REFLINK,
+        /**
+         * Hard links the files. The links share the data of the originals, <strong>including future in-place modifications</strong>,
+         * so the process must not write to the files until the snapshot has been archived.
+         */
+        HARDLINK,
+        /**
+         * Copies the files.
+         */
+        COPY;
+
+        public static Mode parse(final String mode) {
+            return valueOf(mode.toUpperCase(Locale.ROOT));
+        }
+
+        /**
+         * @return if the snapshot shares the data of the originals, so that the process must not write to them while it is archived
+         */
+        public boolean sharesData() {
+            return this == HARDLINK;
+        }
+    }
+
+    /**
+     * Snapshots a directory.
+     *
+     * @param source the directory to snapshot
+     * @param target the directory to create the snapshot in, which must not exist
+     * @param mode   how to snapshot the files
+     * @return the mode the snapshot was actually taken with
+     */
+    public static Mode snapshot(final Path source, final Path target, final Mode mode) throws IOException {
+        switch (mode) {
+            case AUTO -> {
+                if (reflink(source, target)) return Mode.REFLINK;
+                deleteRecursively(target);
+                copy(source, target, false);
+                return Mode.COPY;
+            }
+            case REFLINK -> {
+                if (!reflink(source, target)) {
+                    throw new IOException("Could not reflink " + source + ", the filesystem may not support it");
+                }
+            }
+            case HARDLINK -> copy(source, target, true);
+            case COPY -> copy(source, target, false);
+        }
+        return mode;
+    }
+
+    /**
+     * Reflinks a directory. Java has no API for reflinks, so GNU cp is used.
+     *
+     * @return if the directory could be reflinked
+     */
+    private static boolean reflink(final Path source, final Path target) throws IOException {
+        if (!System.getProperty("os.name").toLowerCase(Locale.ROOT).contains("linux")) return false;
+        final var process = new ProcessBuilder("cp", "-r", "--reflink=always", source.toAbsolutePath().toString(), target.toAbsolutePath().toString())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            if (!process.waitFor(10, TimeUnit.MINUTES)) {
+                process.destroyForcibly();
+                return false;
+            }
+            return process.exitValue() == 0;
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reflinking " + source, e);
+        }
+    }
+
+    private static void copy(final Path source, final Path target, final boolean link) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attributes) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) throws IOException {
+                final var copy = target.resolve(source.relativize(file));
+                if (link) {
+                    Files.createLink(copy, file);
+                } else {
+                    Files.copy(file, copy, StandardCopyOption.COPY_ATTRIBUTES);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Deletes a directory and its content, if it exists.
+     */
+    public static void deleteRecursively(final Path directory) throws IOException {
+        if (!Files.exists(directory)) return;
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attributes) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(final Path dir, final IOException exc) throws IOException {
+                if (exc != null) throw exc;
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private Snapshotter() {
+        throw new UnsupportedOperationException("Cannot instantiate a utility class");
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.cds;
+
+import com.mcmoddev.relauncher.Config;
+import com.mcmoddev.relauncher.Main;
+import com.mcmoddev.relauncher.ProcessListener;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Manages dynamic AppCDS archives of the process, which hold the classes loaded by a previous run in a pre-parsed form,
+ * so that later starts of the same release skip most of the class loading. <br>
+ * The first start of a release dumps an archive with {@code -XX:ArchiveClassesAtExit}, which is kept once the process
+ * exits cleanly. Later starts use it with {@code -XX:SharedArchiveFile}. Archives are keyed by the hash, size and
+ * modification time of the jar, the JVM and the JVM arguments, so any change invalidates them. The JVM itself validates
+ * an archive against the size and modification time of the jar, and silently ignores it if they differ, so a jar which
+ * is copied again (e.g. by an update, even to the same release) gets a new archive on its next start. The archives of
+ * a few previous jars are kept, so that switching back to a jar which was not replaced in between starts fast too.
+ */
+public final class ClassDataSharing implements ProcessListener {
+    public static final Logger LOGGER = LoggerFactory.getLogger("ClassDataSharing");
+    public static final Path DIRECTORY = Main.RELAUNCHER_DIR.resolve("cds");
+    public static final String EXTENSION = ".jsa";
+    /**
+     * The exit codes of clean shutdowns: a normal exit, SIGINT and SIGTERM. The archive is dumped on these only.
+     */
+    private static final List<Integer> CLEAN_EXIT_CODES = List.of(0, 130, 143);
+
+    private final Config.ClassDataSharing config;
+
+    @Nullable
+    private JarHash jarHash;
+    /**
+     * The archive to be dumped by the process being started, if any.
+     */
+    @Nullable
+    private Path pending;
+    /**
+     * The archives being dumped by the running processes.
+     */
+    private final Map<Process, Path> dumping = new HashMap<>();
+
+    public ClassDataSharing(final Config.ClassDataSharing config) {
+        this.config = config;
+    }
+
+    /**
+     * Creates the JVM arguments enabling class data sharing for a start of the process.
+     *
+     * @param jar     the jar of the process
+     * @param jvmArgs the other JVM arguments of the process, which the archive depends on
+     * @return the arguments
+     */
+    public synchronized List<String> jvmArgs(final Path jar, final List<String> jvmArgs) {
+        pending = null;
+        final String key;
+        try {
+            key = key(jar, jvmArgs);
+        } catch (IOException e) {
+            LOGGER.warn("Could not hash the jar of the process, class data sharing is disabled for this start: ", e);
+            return List.of();
+        }
+        final var archive = DIRECTORY.resolve(key + EXTENSION).toAbsolutePath();
+        try {
+            Files.createDirectories(DIRECTORY);
+            if (Files.isRegularFile(archive)) {
+                // Keep the recently used archives when pruning
+                Files.setLastModifiedTime(archive, FileTime.fromMillis(System.currentTimeMillis()));
+                LOGGER.info("Starting the process with the class data sharing archive {}.", archive.getFileName());
+                return List.of("-XX:SharedArchiveFile=" + archive);
+            }
+            pending = archive.resolveSibling(key + EXTENSION + ".tmp");
+            Files.deleteIfExists(pending);
+        } catch (IOException e) {
+            LOGGER.warn("Could not prepare the class data sharing archive {}: ", archive, e);
+            return List.of();
+        }
+        LOGGER.info("No class data sharing archive exists for this release yet, one will be created when the process exits.");
+        return List.of("-XX:ArchiveClassesAtExit=" + pending);
+    }
+
+    @Override
+    public synchronized void onStart(final Process process) {
+        if (pending != null) {
+            dumping.put(process, pending);
+            pending = null;
+        }
+    }
+
+    @Override
+    public synchronized void onExit(final Process process, final int exitCode) {
+        // The next process may already have been started, so only handle the archive of this one
+        final var dumped = dumping.remove(process);
+        if (dumped == null) return;
+        try {
+            final var name = dumped.getFileName().toString();
+            final var archive = dumped.resolveSibling(name.substring(0, name.length() - ".tmp".length()));
+            if (CLEAN_EXIT_CODES.contains(exitCode) && Files.isRegularFile(dumped) && Files.size(dumped) > 0) {
+                Files.move(dumped, archive, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                LOGGER.info("Created the class data sharing archive {} ({} KB).", archive.getFileName(), Files.size(archive) / 1024);
+            } else {
+                // The archive may be incomplete if the process crashed while dumping it
+                Files.deleteIfExists(dumped);
+                LOGGER.info("The process did not exit cleanly (exit code {}), so no class data sharing archive was created.", exitCode);
+            }
+            prune();
+        } catch (IOException e) {
+            LOGGER.error("Could not save the class data sharing archive {}: ", dumped, e);
+        }
+    }
+
+    /**
+     * Deletes the least recently used archives beyond the configured amount.
+     */
+    private void prune() throws IOException {
+        final List<Path> archives;
+        try (final var files = Files.list(DIRECTORY)) {
+            archives = files.filter(f -> f.getFileName().toString().endsWith(EXTENSION))
+                    .sorted(Comparator.comparing((Path f) -> f.toFile().lastModified()).reversed())
+                    .toList();
+        }
+        for (final var archive : archives.subList(Math.min(config.maxArchives, archives.size()), archives.size())) {
+            Files.deleteIfExists(archive);
+            LOGGER.info("Deleted the class data sharing archive {}.", archive.getFileName());
+        }
+    }
+
+    /**
+     * Computes the key of the archive of a start, from the hash, size and modification time of the jar, the JVM and the
+     * JVM arguments.
+     */
+    private String key(final Path jar, final List<String> jvmArgs) throws IOException {
+        final var size = Files.size(jar);
+        final var modified = Files.getLastModifiedTime(jar).toMillis();
+        // Hashing a large jar takes a moment, so only do it when it changed
+        if (jarHash == null || !jarHash.path().equals(jar) || jarHash.size() != size || jarHash.modified() != modified) {
+            final var digest = sha256();
+            try (final var in = Files.newInputStream(jar)) {
+                final var buffer = new byte[64 * 1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            jarHash = new JarHash(jar, size, modified, HexFormat.of().formatHex(digest.digest()));
+        }
+
+        final var digest = sha256();
+        digest.update(jarHash.hash().getBytes(StandardCharsets.UTF_8));
+        // The JVM rejects an archive if the size or modification time of the jar changed since it was dumped
+        digest.update((byte) 0);
+        digest.update((size + ":" + modified).getBytes(StandardCharsets.UTF_8));
+        for (final var part : List.of(Main.findJavaBinary(), System.getProperty("java.vm.name"), System.getProperty("java.vm.version"), System.getProperty("os.arch"))) {
+            digest.update((byte) 0);
+            digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+        }
+        for (final var arg : jvmArgs) {
+            digest.update((byte) 0);
+            digest.update(arg.getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest(), 0, 16);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    private record JarHash(Path path, long size, long modified, String hash) {
+    }
+}
@@ -0,0 +1,336 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.cgroup;
+
+import com.mcmoddev.relauncher.Config;
+import com.mcmoddev.relauncher.Main;
+import com.mcmoddev.relauncher.ProcessListener;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Places the managed process in a cgroup (v2) and applies the configured {@link Config.ResourceLimits resource limits}
+ * to it. <br>
+ * While the process is running, the memory events and the memory pressure of the cgroup are polled, and
+ * OOM kills or sustained memory pressure are raised as {@link Main#alert(String) launcher events}. <br>
+ * The process is moved into the cgroup right after it has been started, so the allocations and threads it creates in
+ * the first moments of its life are not accounted to the cgroup: they are moved with it, but are not limited until then.
+ * By then, the JVM has also sized its heap and thread pools from the resources of the host, so the {@link #jvmArgs(Config.ResourceLimits, List)
+ * JVM arguments} of the process make it size them from the limits instead, unless they are configured explicitly.
+ */
+public final class CGroupManager implements ProcessListener {
+    public static final Logger LOGGER = LoggerFactory.getLogger("CGroups");
+
+    private static final Path CGROUP_ROOT = Path.of("/sys/fs/cgroup");
+    private static final long CPU_PERIOD = 100_000;
+    private static final List<String> CONTROLLERS = List.of("cpu", "memory", "io");
+
+    private final Config.ResourceLimits limits;
+    private final Path cgroup;
+
+    private final Map<String, Long> lastEvents = new HashMap<>();
+    private boolean underPressure;
+    @Nullable
+    private ScheduledFuture<?> poller;
+    @Nullable
+    private Process current;
+
+    private CGroupManager(final Config.ResourceLimits limits, final Path cgroup) {
+        this.limits = limits;
+        this.cgroup = cgroup;
+    }
+
+    /**
+     * Creates a cgroup manager, if resource limits are enabled and cgroups v2 are available.
+     *
+     * @param limits the limits to apply
+     * @return the manager, or {@code null} if limits can't or shouldn't be applied
+     */
+    @Nullable
+    public static CGroupManager create(final Config.ResourceLimits limits) {
+        if (!limits.enabled) {
+            return null;
+        }
+        if (!isAvailable()) {
+            LOGGER.warn("Resource limits are enabled, but cgroups v2 are not available on this system. The limits will not be applied.");
+            return null;
+        }
+        try {
+            final var manager = new CGroupManager(limits, setupCgroup(limits));
+            manager.applyLimits();
+            LOGGER.info("The process will be placed in cgroup {}", manager.cgroup);
+            return manager;
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.error("Could not set up the cgroup of the process, the resource limits will not be applied: ", e);
+            return null;
+        }
+    }
+
+    private static boolean isAvailable() {
+        return System.getProperty("os.name").toLowerCase(Locale.ROOT).contains("linux") && Files.exists(CGROUP_ROOT.resolve("cgroup.controllers"));
+    }
+
+    /**
+     * Creates the JVM arguments which make the process size itself from its limits. The JVM only detects the limits of
+     * the cgroup it starts in, which isn't the one of the process yet, so without them a process whose heap isn't explicitly
+     * limited may grow past the memory limit and be OOM-killed instead of throwing an {@link OutOfMemoryError}.
+     *
+     * @param limits     the resource limits
+     * @param configured the JVM arguments configured by the user, which take precedence
+     * @return the arguments, or an empty list if no limits are applied
+     */
+    public static List<String> jvmArgs(final Config.ResourceLimits limits, final List<String> configured) {
+        if (!limits.enabled || !isAvailable()) {
+            return List.of();
+        }
+        final var args = new ArrayList<String>();
+        final var memory = limits.memoryMax.isBlank() ? limits.memoryHigh : limits.memoryMax;
+        if (!memory.isBlank() && configured.stream().noneMatch(arg -> arg.startsWith("-Xmx") || arg.startsWith("-XX:MaxHeapSize=")
+                || arg.startsWith("-XX:MaxRAM=") || arg.startsWith("-XX:MaxRAMPercentage=") || arg.startsWith("-XX:MaxRAMFraction="))) {
+            try {
+                final var size = parseSize(memory);
+                if (!size.equals("max")) {
+                    // The default heap size is a fraction of this
+                    args.add("-XX:MaxRAM=" + size);
+                }
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Invalid memory limit '{}', the heap of the process will be sized from the memory of the host.", memory);
+            }
+        }
+        if (limits.cpuQuota > 0 && configured.stream().noneMatch(arg -> arg.startsWith("-XX:ActiveProcessorCount="))) {
+            args.add("-XX:ActiveProcessorCount=" + Math.max(1, (int) Math.ceil(limits.cpuQuota / 100)));
+        }
+        if (!args.isEmpty()) {
+            LOGGER.info("Sizing the process from its resource limits with {}.", String.join(" ", args));
+        }
+        return args;
+    }
+
+    private static Path setupCgroup(final Config.ResourceLimits limits) throws IOException {
+        final Path cgroup;
+        if (limits.cgroupPath.isBlank()) {
+            // A cgroup which distributes resources to its children may not contain processes itself,
+            // so the launcher moves into a leaf next to the one of the process
+            var own = ownCgroup();
+            if (own.getFileName() != null && own.getFileName().toString().equals("launcher")) {
+                own = own.getParent(); // We've already moved ourselves
+            }
+            final var launcherLeaf = own.resolve("launcher");
+            Files.createDirectories(launcherLeaf);
+            Files.writeString(launcherLeaf.resolve("cgroup.procs"), String.valueOf(ProcessHandle.current().pid()));
+            enableControllers(own);
+            cgroup = own.resolve("process");
+        } else {
+            cgroup = Path.of(limits.cgroupPath);
+            if (cgroup.getParent() != null) {
+                Files.createDirectories(cgroup.getParent());
+                enableControllers(cgroup.getParent());
+            }
+        }
+        Files.createDirectories(cgroup);
+        return cgroup;
+    }
+
+    private static Path ownCgroup() throws IOException {
+        // In cgroups v2, the only hierarchy is listed as '0::/path'
+        return Files.readAllLines(Path.of("/proc/self/cgroup"))
+                .stream()
+                .filter(line -> line.startsWith("0::"))
+                .findFirst()
+                .map(line -> CGROUP_ROOT.resolve(line.substring(3).replaceFirst("^/", "")))
+                .orElseThrow(() -> new IOException("Could not determine the cgroup of the launcher"));
+    }
+
+    private static void enableControllers(final Path parent) throws IOException {
+        final var available = List.of(Files.readString(parent.resolve("cgroup.controllers")).trim().split(" "));
+        for (final var controller : CONTROLLERS) {
+            if (!available.contains(controller)) {
+                LOGGER.warn("The '{}' controller is not available in cgroup {}. Its limits will not be applied.", controller, parent);
+                continue;
+            }
+            try {
+                Files.writeString(parent.resolve("cgroup.subtree_control"), "+" + controller);
+            } catch (IOException e) {
+                LOGGER.warn("Could not enable the '{}' controller in cgroup {}: {}", controller, parent, e.toString());
+            }
+        }
+    }
+
+    private void applyLimits() {
+        if (limits.cpuWeight > 0) {
+            write("cpu.weight", String.valueOf(limits.cpuWeight));
+        }
+        if (limits.cpuQuota > 0) {
+            write("cpu.max", (long) (limits.cpuQuota / 100 * CPU_PERIOD) + " " + CPU_PERIOD);
+        }
+        if (!limits.memoryMax.isBlank()) {
+            write("memory.max", parseSize(limits.memoryMax));
+        }
+        if (!limits.memoryHigh.isBlank()) {
+            write("memory.high", parseSize(limits.memoryHigh));
+        }
+        if (limits.ioWeight > 0) {
+            write("io.weight", "default " + limits.ioWeight);
+        }
+    }
+
+    private void write(final String file, final String value) {
+        try {
+            Files.writeString(cgroup.resolve(file), value);
+        } catch (IOException e) {
+            LOGGER.error("Could not write '{}' to {} of cgroup {}: {}", value, file, cgroup, e.toString());
+        }
+    }
+
+    @Override
+    public synchronized void onStart(final Process process) {
+        try {
+            Files.writeString(cgroup.resolve("cgroup.procs"), String.valueOf(process.pid()));
+        } catch (IOException e) {
+            LOGGER.error("Could not place the process in cgroup {}: ", cgroup, e);
+            return;
+        }
+        lastEvents.clear();
+        lastEvents.putAll(readEvents());
+        underPressure = false;
+        if (poller != null) {
+            poller.cancel(false);
+        }
+        current = process;
+        poller = Main.SERVICE.scheduleWithFixedDelay(this::poll, limits.eventPollInterval, limits.eventPollInterval, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public synchronized void onExit(final Process process, final int exitCode) {
+        // A restart may have started the next process before the exit of this one is handled
+        if (current != process) return;
+        current = null;
+        if (poller != null) {
+            poller.cancel(false);
+            poller = null;
+        }
+        // The exit might have been caused by the OOM killer
+        poll();
+    }
+
+    private synchronized void poll() {
+        final var events = readEvents();
+        final var ooms = delta(events, "oom_kill");
+        if (ooms > 0) {
+            Main.alert("The process was killed by the OOM killer %s time(s) as it reached its memory limit of %s.".formatted(ooms, limits.memoryMax));
+        } else if (delta(events, "oom") > 0) {
+            Main.alert("The process reached its memory limit of %s and the OOM killer was invoked.".formatted(limits.memoryMax));
+        }
+        final var throttled = delta(events, "high") + delta(events, "max");
+        lastEvents.putAll(events);
+
+        final var stalled = readFullPressure();
+        if (stalled >= limits.pressureThreshold && !underPressure) {
+            underPressure = true;
+            Main.alert("The process is under memory pressure: it was fully stalled on memory %.2f%% of the time in the last 10 seconds (%s reclaim events since the last check)."
+                    .formatted(stalled, throttled));
+        } else if (stalled < limits.pressureThreshold / 2 && underPressure) {
+            underPressure = false;
+            LOGGER.info("The memory pressure of the process has dropped to {}%.", stalled);
+        }
+    }
+
+    private long delta(final Map<String, Long> events, final String key) {
+        return events.getOrDefault(key, 0L) - lastEvents.getOrDefault(key, 0L);
+    }
+
+    private Map<String, Long> readEvents() {
+        final var events = new HashMap<String, Long>();
+        try {
+            for (final var line : Files.readAllLines(cgroup.resolve("memory.events"))) {
+                final var split = line.split(" ");
+                if (split.length == 2) {
+                    events.put(split[0], Long.parseLong(split[1]));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.debug("Could not read the memory events of cgroup {}: {}", cgroup, e.toString());
+        }
+        return events;
+    }
+
+    /**
+     * Reads the percentage of time, averaged over the last 10 seconds, in which all tasks of the cgroup were stalled on memory.
+     */
+    private double readFullPressure() {
+        try {
+            for (final var line : Files.readAllLines(cgroup.resolve("memory.pressure"))) {
+                // full avg10=0.00 avg60=0.00 avg300=0.00 total=0
+                if (line.startsWith("full ")) {
+                    for (final var part : line.split(" ")) {
+                        if (part.startsWith("avg10=")) {
+                            return Double.parseDouble(part.substring("avg10=".length()));
+                        }
+                    }
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.debug("Could not read the memory pressure of cgroup {}: {}", cgroup, e.toString());
+        }
+        return 0;
+    }
+
+    /**
+     * Converts a human friendly size (e.g. {@code 8G}) to the amount of bytes the cgroup interface expects.
+     */
+    static String parseSize(final String size) {
+        var str = size.trim().toLowerCase(Locale.ROOT);
+        // Strip the unit suffix, e.g. '8gb' or '8gib'
+        if (str.endsWith("ib")) {
+            str = str.substring(0, str.length() - 2);
+        } else if (str.endsWith("b")) {
+            str = str.substring(0, str.length() - 1);
+        }
+        if (str.equals("max")) return str;
+        final var unit = str.charAt(str.length() - 1);
+        final var scale = switch (unit) {
+            case 'k' -> 1L << 10;
+            case 'm' -> 1L << 20;
+            case 'g' -> 1L << 30;
+            case 't' -> 1L << 40;
+            default -> 1L;
+        };
+        final var number = scale == 1 ? str : str.substring(0, str.length() - 1);
+        return String.valueOf((long) (Double.parseDouble(number.trim()) * scale));
+    }
+
+    @Override
+    public String toString() {
+        return "CGroupManager[" + cgroup + "]";
+    }
+}
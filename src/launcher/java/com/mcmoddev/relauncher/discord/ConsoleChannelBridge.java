@@ -0,0 +1,138 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.discord;
+
+import com.mcmoddev.relauncher.Config;
+import com.mcmoddev.relauncher.Main;
+import com.mcmoddev.relauncher.ProcessConsole;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams the console of the process to a Discord channel. <br>
+ * Output is coalesced into batches which are flushed at a fixed interval. Each flush first fills up the
+ * last sent message by editing it, and only then sends new messages. The amount of buffered output is capped,
+ * so when the process writes faster than Discord accepts messages, the oldest output is skipped instead of
+ * the bridge falling behind.
+ */
+public final class ConsoleChannelBridge implements ProcessConsole.Listener {
+    private static final String BLOCK_START = "```ansi\n";
+    private static final String BLOCK_END = "\n```";
+    private static final int MAX_CONTENT = Message.MAX_CONTENT_LENGTH - BLOCK_START.length() - BLOCK_END.length();
+
+    private final JDA jda;
+    private final Config.Console config;
+    private final ScheduledExecutorService executor;
+
+    private final StringBuilder pending = new StringBuilder();
+    private long skipped;
+
+    // Only accessed by the flush thread
+    private long rollingMessageId;
+    private final StringBuilder rollingContent = new StringBuilder();
+
+    public ConsoleChannelBridge(final JDA jda, final Config.Console config) {
+        this.jda = jda;
+        this.config = config;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            final var t = new Thread(Main.THREAD_GROUP, r, "RLConsoleBridge");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(this::flush, config.flushInterval, config.flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onOutput(final CharSequence text) {
+        synchronized (pending) {
+            pending.append(text);
+            final var overflow = pending.length() - config.maxBacklog;
+            if (overflow > 0) {
+                pending.delete(0, overflow);
+                skipped += overflow;
+            }
+        }
+    }
+
+    private void flush() {
+        String text;
+        long skippedChars;
+        synchronized (pending) {
+            if (pending.isEmpty()) return;
+            text = pending.toString().replace("```", "`\u200B``");
+            pending.setLength(0);
+            skippedChars = skipped;
+            skipped = 0;
+        }
+
+        final TextChannel channel = jda.getTextChannelById(config.channelId);
+        if (channel == null) return; // Not ready yet, or the channel doesn't exist
+
+        final var rollingRoom = rollingMessageId == 0 ? 0 : MAX_CONTENT - rollingContent.length();
+        final var capacity = rollingRoom + Math.max(config.maxMessagesPerFlush, 1) * MAX_CONTENT - 64;
+        if (text.length() > capacity) {
+            skippedChars += text.length() - capacity;
+            text = text.substring(text.length() - capacity);
+        }
+        if (skippedChars > 0) {
+            text = "... " + skippedChars + " characters skipped ...\n" + text;
+        }
+
+        try {
+            var offset = 0;
+            if (rollingRoom > 0) {
+                offset = cut(text, 0, rollingRoom);
+                if (offset > 0) {
+                    rollingContent.append(text, 0, offset);
+                    channel.editMessageById(rollingMessageId, BLOCK_START + rollingContent + BLOCK_END).complete();
+                }
+            }
+            while (offset < text.length()) {
+                final var end = cut(text, offset, MAX_CONTENT);
+                rollingContent.setLength(0);
+                rollingContent.append(text, offset, end);
+                rollingMessageId = channel.sendMessage(BLOCK_START + rollingContent + BLOCK_END).complete().getIdLong();
+                offset = end;
+            }
+        } catch (Exception e) {
+            ProcessConsole.LOGGER.error("Exception sending console output to Discord: ", e);
+            rollingMessageId = 0;
+        }
+    }
+
+    /**
+     * Finds the end of the next chunk of the text, preferring to cut after a line break.
+     */
+    private static int cut(final String text, final int start, final int maxLength) {
+        if (text.length() - start <= maxLength) return text.length();
+        final var lineEnd = text.lastIndexOf('\n', start + maxLength - 1);
+        return lineEnd >= start ? lineEnd + 1 : start + maxLength;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -25,6 +25,7 @@ import com.mcmoddev.relauncher.Config;
 import com.mcmoddev.relauncher.Main;
 import com.mcmoddev.relauncher.api.BaseProcessManager;
 import com.mcmoddev.relauncher.api.DiscordIntegration;
+import com.mcmoddev.relauncher.discord.commands.ConsoleCommand;
 import com.mcmoddev.relauncher.discord.commands.ProfilingCommand;
 import com.mcmoddev.relauncher.discord.commands.ShutdownCommand;
 import com.mcmoddev.relauncher.discord.commands.StartCommand;
@@ -35,7 +36,9 @@ import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.JDABuilder;
 import net.dv8tion.jda.api.OnlineStatus;
 import net.dv8tion.jda.api.entities.Activity;
+import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.exceptions.InvalidTokenException;
+import org.jetbrains.annotations.Nullable;
 
 import java.nio.file.Path;
 import java.util.concurrent.Executors;
@@ -43,9 +46,14 @@ import java.util.function.Supplier;
 
 public final class DefaultDiscordIntegration implements DiscordIntegration {
     private final JDA jda;
+    private final String alertsChannel;
+    @Nullable
+    private final ConsoleChannelBridge consoleBridge;
+    private final FileCommand fileCommand;
 
     public DefaultDiscordIntegration(final Path basePath, final Config.Discord config, final Supplier<BaseProcessManager> updater) {
         final var statusCmd = new StatusCommand(updater, config);
+        fileCommand = new FileCommand(basePath, config);
         final var commandClient = new CommandClientBuilder()
                 .setOwnerId("0000000000")
                 .setActivity(null)
@@ -56,8 +64,9 @@ public final class DefaultDiscordIntegration implements DiscordIntegration {
                         new ShutdownCommand(updater, config),
                         new StartCommand(updater, config),
                         statusCmd,
-                        new FileCommand(basePath, config),
-                        new ProfilingCommand(updater, config)
+                        fileCommand,
+                        new ProfilingCommand(updater, config),
+                        new ConsoleCommand(updater, config)
                 )
                 .build();
 
@@ -77,6 +86,13 @@ public final class DefaultDiscordIntegration implements DiscordIntegration {
             throw new RuntimeException("Please provide a valid bot token!");
         }
 
+        alertsChannel = config.alertsChannel.isBlank() ? config.console.channelId : config.alertsChannel;
+        if (!config.console.channelId.isBlank()) {
+            consoleBridge = new ConsoleChannelBridge(jda, config.console);
+            Main.CONSOLE.addListener(consoleBridge);
+        } else {
+            consoleBridge = null;
+        }
     }
 
     @Override
@@ -84,8 +100,23 @@ public final class DefaultDiscordIntegration implements DiscordIntegration {
         jda.getPresence().setActivity(Activity.of(Activity.ActivityType.valueOf(type.name()), name));
     }
 
+    @Override
+    public void sendAlert(final String message) {
+        if (alertsChannel.isBlank()) return;
+        final var channel = jda.getTextChannelById(alertsChannel);
+        if (channel != null) {
+            final var content = ":warning: " + message;
+            channel.sendMessage(content.length() > Message.MAX_CONTENT_LENGTH ? content.substring(0, Message.MAX_CONTENT_LENGTH) : content).queue();
+        }
+    }
+
     @Override
     public void shutdown() {
+        if (consoleBridge != null) {
+            Main.CONSOLE.removeListener(consoleBridge);
+            consoleBridge.shutdown();
+        }
+        fileCommand.shutdown();
         jda.shutdown();
     }
 }
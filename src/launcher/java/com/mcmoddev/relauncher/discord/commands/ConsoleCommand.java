@@ -0,0 +1,62 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.discord.commands;
+
+import com.jagrosh.jdautilities.command.SlashCommandEvent;
+import com.mcmoddev.relauncher.Config;
+import com.mcmoddev.relauncher.Main;
+import com.mcmoddev.relauncher.ProcessConsole;
+import com.mcmoddev.relauncher.api.BaseProcessManager;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Supplier;
+
+public class ConsoleCommand extends RLCommand {
+    public ConsoleCommand(final Supplier<BaseProcessManager> jarUpdater, final Config.Discord config) {
+        super(jarUpdater, config);
+        name = "console";
+        help = "Sends a command to the console of the process.";
+        options = List.of(
+                new OptionData(OptionType.STRING, "command", "The command to send.", true)
+        );
+    }
+
+    @Override
+    protected void exec(final SlashCommandEvent event) {
+        final var process = processManager.get().getProcess();
+        if (process == null) {
+            event.deferReply(true).setContent("No process is running! Use `/start` to start it.").queue();
+            return;
+        }
+        final var command = event.getOption("command", "", OptionMapping::getAsString);
+        try {
+            Main.CONSOLE.sendCommand(command);
+            ProcessConsole.LOGGER.warn("Sent command '{}' to the process at the request of {} via Discord.", command, event.getUser().getName());
+            event.deferReply().setContent("Sent command `%s` to the process.".formatted(command.replace("`", ""))).queue();
+        } catch (IOException e) {
+            event.deferReply(true).setContent("Could not send the command: " + e.getLocalizedMessage()).queue();
+        }
+    }
+}
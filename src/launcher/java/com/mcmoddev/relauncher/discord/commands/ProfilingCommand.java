@@ -25,6 +25,10 @@ import com.mcmoddev.relauncher.Config;
 import com.mcmoddev.relauncher.Constants;
 import com.mcmoddev.relauncher.Main;
 import com.mcmoddev.relauncher.api.BaseProcessManager;
+import com.mcmoddev.relauncher.api.connector.MethodTimingReport;
+import com.mcmoddev.relauncher.api.connector.Payloads;
+import com.mcmoddev.relauncher.profiling.FlameGraphRenderer;
+import com.mcmoddev.relauncher.profiling.JfrRecordings;
 import net.dv8tion.jda.api.interactions.commands.OptionMapping;
 import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.OptionData;
@@ -34,11 +38,29 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 public class ProfilingCommand extends RLCommand {
     public static final Path DIRECTORY_PATH = Main.RELAUNCHER_DIR.resolve("profiling");
+    public static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        final var thread = new Thread(Main.THREAD_GROUP, r, "ReLauncherProfiling");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * The maximum size of a JFR recording which is attached to the reply. Larger recordings are only saved on disk.
+     */
+    public static final long MAX_ATTACHMENT_SIZE = 10 * 1024 * 1024;
+    public static final long JFR_MAX_SIZE = 512 * 1024 * 1024;
+    public static final int ALLOCATION_SAMPLE_RATE = 1000;
 
     public ProfilingCommand(final Supplier<BaseProcessManager> jarUpdater, final Config.Discord config) {
         super(jarUpdater, config);
@@ -47,6 +69,19 @@ public class ProfilingCommand extends RLCommand {
         options = List.of(
                 new OptionData(OptionType.STRING, "type", "The type of the profiler to run.")
                         .addChoice("Process", "process")
+                        .addChoice("CPU Sampling", "cpu")
+                        .addChoice("JFR Recording", "jfr")
+                        .addChoice("Allocations", "alloc")
+                        .addChoice("Method Timing", "methods"),
+                new OptionData(OptionType.INTEGER, "duration", "The duration of the profiling, in seconds. Defaults to 30.")
+                        .setRequiredRange(1, 600),
+                new OptionData(OptionType.INTEGER, "interval", "The interval between CPU samples, in milliseconds. Defaults to 10.")
+                        .setRequiredRange(1, 1000),
+                new OptionData(OptionType.STRING, "threads", "Only sample the CPU of the threads whose name contains this, e.g. 'Server thread'. Defaults to all threads."),
+                new OptionData(OptionType.STRING, "settings", "The JFR settings profile to record with. Defaults to 'profile'.")
+                        .addChoice("Default (low overhead)", "default")
+                        .addChoice("Profile (more detail)", "profile"),
+                new OptionData(OptionType.STRING, "methods", "Comma-separated methods to time, e.g. 'com.example.Owner#tick'. Defaults to the configured methods.")
         );
     }
 
@@ -59,28 +94,138 @@ public class ProfilingCommand extends RLCommand {
             event.deferReply(true).setContent("The process is not running or the agent wasn't attached!").queue();
             return;
         }
-        event.deferReply()
-                .flatMap(hook -> {
-                    try {
-                        if (!Files.exists(DIRECTORY_PATH)) {
-                            Files.createDirectories(DIRECTORY_PATH);
+        final var type = event.getOption("type", "", OptionMapping::getAsString);
+        final var duration = event.getOption("duration", 30L, OptionMapping::getAsLong);
+        final var interval = event.getOption("interval", 10L, OptionMapping::getAsLong);
+        final var threads = event.getOption("threads", "", OptionMapping::getAsString);
+        final var settings = event.getOption("settings", "profile", OptionMapping::getAsString);
+        final var methods = event.getOption("methods", "", OptionMapping::getAsString);
+        // Profiling may take a while, so don't block the JDA threads
+        event.deferReply().queue(hook -> EXECUTOR.execute(() -> {
+            try {
+                if (!Files.exists(DIRECTORY_PATH)) {
+                    Files.createDirectories(DIRECTORY_PATH);
+                }
+                switch (type) {
+                    case "process" -> {
+                        final var result = Payloads.decompress(connector.getProcessInfoProfilingCompressed(), HashMap.class);
+                        final var file = DIRECTORY_PATH.resolve(Instant.now().getEpochSecond() + ".json");
+                        try (final var writer = Files.newBufferedWriter(file, StandardOpenOption.CREATE)) {
+                            Constants.GSON.toJson(result, writer);
                         }
-                        return switch (event.getOption("type", "", OptionMapping::getAsString)) {
-                            case "process" -> {
-                                final var result = connector.getProcessInfoProfiling();
-                                final var file = DIRECTORY_PATH.resolve(Instant.now().getEpochSecond() + ".json");
-                                try (final var writer = Files.newBufferedWriter(file, StandardOpenOption.CREATE)) {
-                                    Constants.GSON.toJson(result, writer);
-                                    yield hook.editOriginalAttachments(AttachedFile.fromData(file.toFile(), "profiling.json"));
-                                }
+                        hook.editOriginalAttachments(AttachedFile.fromData(file.toFile(), "profiling.json")).queue();
+                    }
+                    case "cpu" -> {
+                        hook.editOriginal("Sampling the process for %s seconds...".formatted(duration)).queue();
+                        final var collapsed = connector.profileCpu(TimeUnit.SECONDS.toMillis(duration), interval, threads);
+                        final var graph = new FlameGraphRenderer("CPU samples over %ss every %sms".formatted(duration, interval)).add(collapsed);
+                        final var prefix = Instant.now().getEpochSecond() + "-cpu";
+                        final var collapsedFile = Files.writeString(DIRECTORY_PATH.resolve(prefix + ".collapsed"), collapsed);
+                        final var svgFile = Files.writeString(DIRECTORY_PATH.resolve(prefix + ".svg"), graph.render());
+                        hook.editOriginal("Collected %s samples.".formatted(graph.getSamples())).queue();
+                        hook.editOriginalAttachments(
+                                AttachedFile.fromData(svgFile.toFile(), "flamegraph.svg"),
+                                AttachedFile.fromData(collapsedFile.toFile(), "stacks.collapsed")
+                        ).queue();
+                    }
+                    case "jfr" -> {
+                        hook.editOriginal("Recording the process for %s seconds...".formatted(duration)).queue();
+                        final var prefix = Instant.now().getEpochSecond() + "-" + settings;
+                        final var jfrFile = DIRECTORY_PATH.resolve(prefix + ".jfr");
+                        final var id = connector.startRecording("relauncher-" + prefix, settings, JFR_MAX_SIZE, 0);
+                        final long size;
+                        try {
+                            Thread.sleep(TimeUnit.SECONDS.toMillis(duration));
+                            size = connector.dumpRecording(id, true);
+                            JfrRecordings.download(connector, id, size, jfrFile);
+                        } catch (Exception e) {
+                            // Don't let a failure to close the recording mask the original failure
+                            try {
+                                connector.closeRecording(id);
+                            } catch (Exception closeException) {
+                                e.addSuppressed(closeException);
                             }
-                            default -> hook.editOriginal("Invalid type provided!");
-                        };
-                    } catch (Exception e) {
-                        Main.LOG.error("Exception getting profiling results: ", e);
-                        return hook.editOriginal("There was an exception getting profiling results: " + e.getLocalizedMessage());
+                            throw e;
+                        }
+                        connector.closeRecording(id);
+                        final var summaryFile = Files.writeString(DIRECTORY_PATH.resolve(prefix + "-summary.md"), JfrRecordings.summarize(jfrFile));
+                        if (size <= MAX_ATTACHMENT_SIZE) {
+                            hook.editOriginal("Recorded %s of JFR data.".formatted(StatusCommand.bytesToFriendly(size / 1024))).queue();
+                            hook.editOriginalAttachments(
+                                    AttachedFile.fromData(summaryFile.toFile(), "summary.md"),
+                                    AttachedFile.fromData(jfrFile.toFile(), "recording.jfr")
+                            ).queue();
+                        } else {
+                            hook.editOriginal("The recording is too large to be attached (%s), it was saved at `%s`.".formatted(
+                                    StatusCommand.bytesToFriendly(size / 1024), jfrFile.toAbsolutePath()
+                            )).queue();
+                            hook.editOriginalAttachments(AttachedFile.fromData(summaryFile.toFile(), "summary.md")).queue();
+                        }
                     }
-                })
-                .queue();
+                    case "alloc" -> {
+                        hook.editOriginal("Sampling allocations for %s seconds...".formatted(duration)).queue();
+                        final var report = connector.profileAllocations(TimeUnit.SECONDS.toMillis(duration), ALLOCATION_SAMPLE_RATE);
+                        final var graph = new FlameGraphRenderer("Allocations over %ss".formatted(duration), "bytes").add(report.collapsedBytes());
+                        final var prefix = Instant.now().getEpochSecond() + "-alloc";
+                        final var reportFile = Files.writeString(DIRECTORY_PATH.resolve(prefix + ".md"), JfrRecordings.formatAllocations(report));
+                        final var svgFile = Files.writeString(DIRECTORY_PATH.resolve(prefix + ".svg"), graph.render());
+                        hook.editOriginal("Collected %s allocation samples.".formatted(report.samples())).queue();
+                        hook.editOriginalAttachments(
+                                AttachedFile.fromData(reportFile.toFile(), "allocations.md"),
+                                AttachedFile.fromData(svgFile.toFile(), "allocations.svg")
+                        ).queue();
+                    }
+                    case "methods" -> {
+                        final MethodTimingReport report;
+                        if (methods.isBlank()) {
+                            report = connector.getMethodTimings();
+                            if (report == null) {
+                                hook.editOriginal("No methods are configured to be timed, please provide the methods to time.").queue();
+                                return;
+                            }
+                        } else {
+                            connector.startMethodTiming(Arrays.stream(methods.split(",")).map(String::trim).filter(m -> !m.isEmpty()).toList());
+                            hook.editOriginal("Timing methods for %s seconds...".formatted(duration)).queue();
+                            try {
+                                Thread.sleep(TimeUnit.SECONDS.toMillis(duration));
+                            } finally {
+                                report = connector.stopMethodTiming();
+                            }
+                        }
+                        final var reportFile = Files.writeString(DIRECTORY_PATH.resolve(Instant.now().getEpochSecond() + "-methods.md"), formatMethodTimings(report));
+                        hook.editOriginal("Timed %s method(s).".formatted(report.methods().size())).queue();
+                        hook.editOriginalAttachments(AttachedFile.fromData(reportFile.toFile(), "methods.md")).queue();
+                    }
+                    default -> hook.editOriginal("Invalid type provided!").queue();
+                }
+            } catch (Exception e) {
+                Main.LOG.error("Exception getting profiling results: ", e);
+                hook.editOriginal("There was an exception getting profiling results: " + e.getLocalizedMessage()).queue();
+            }
+        }));
+    }
+
+    /**
+     * Formats a method timing report as a Markdown table, with the durations in microseconds.
+     */
+    public static String formatMethodTimings(final MethodTimingReport report) {
+        final var builder = new StringBuilder("# Method timings\n\nSince ")
+                .append(DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochMilli(report.since()))).append("\n\n")
+                .append("| Method | Calls | Total (ms) | Mean (us) | p50 (us) | p99 (us) | Max (us) |\n")
+                .append("|---|---:|---:|---:|---:|---:|---:|\n");
+        for (final var method : report.methods()) {
+            final var latencies = method.latencies();
+            builder.append("| `").append(method.name()).append("` | ").append(latencies.total())
+                    .append(" | ").append(String.format(Locale.ROOT, "%.2f", latencies.sum() / 1_000_000d))
+                    .append(" | ").append(String.format(Locale.ROOT, "%.2f", latencies.mean() / 1000))
+                    .append(" | ").append(String.format(Locale.ROOT, "%.2f", latencies.percentile(50) / 1000d))
+                    .append(" | ").append(String.format(Locale.ROOT, "%.2f", latencies.percentile(99) / 1000d))
+                    .append(" | ").append(String.format(Locale.ROOT, "%.2f", latencies.max() / 1000d))
+                    .append(" |\n");
+        }
+        if (report.methods().isEmpty()) {
+            builder.append("\nNone of the timed methods were called.\n");
+        }
+        return builder.toString();
     }
 }
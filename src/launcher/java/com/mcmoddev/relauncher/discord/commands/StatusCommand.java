@@ -24,12 +24,17 @@ import com.jagrosh.jdautilities.command.SlashCommandEvent;
 import com.mcmoddev.relauncher.Config;
 import com.mcmoddev.relauncher.Main;
 import com.mcmoddev.relauncher.api.BaseProcessManager;
+import com.mcmoddev.relauncher.api.connector.MemorySnapshot;
+import com.mcmoddev.relauncher.api.connector.Payloads;
 import com.mcmoddev.relauncher.api.connector.ThreadInfo;
+import com.mcmoddev.relauncher.proc.ProcessStats;
+import com.mcmoddev.relauncher.threads.ThreadDumpAnalyzer;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.events.GenericEvent;
 import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
 import net.dv8tion.jda.api.hooks.EventListener;
 import net.dv8tion.jda.api.interactions.components.buttons.Button;
+import net.dv8tion.jda.api.utils.AttachedFile;
 import net.dv8tion.jda.api.utils.FileUpload;
 import net.dv8tion.jda.api.utils.TimeFormat;
 import org.jetbrains.annotations.NotNull;
@@ -41,13 +46,31 @@ import java.rmi.RemoteException;
 import java.text.DecimalFormat;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Locale;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 public class StatusCommand extends RLCommand implements EventListener {
 
     public static final String BUTTON_NAME = "thread_dump";
+    public static final String STUCK_BUTTON_NAME = "stuck_threads";
+    public static final int STUCK_SAMPLES = 5;
+    public static final long STUCK_INTERVAL = 1000;
+    /**
+     * The executor sampling the threads for the stuck thread reports, separate from the {@link ProfilingCommand#EXECUTOR profiling one}
+     * so that a report isn't queued behind a long profiling session.
+     */
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        final var thread = new Thread(Main.THREAD_GROUP, r, "ReLauncherThreadSampling");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private static final Pattern NMT_TOTAL = Pattern.compile("Total: reserved=(\\d+)KB, committed=(\\d+)KB");
 
     public StatusCommand(final Supplier<BaseProcessManager> jarUpdater, final Config.Discord config) {
         super(jarUpdater, config);
@@ -81,28 +104,138 @@ public class StatusCommand extends RLCommand implements EventListener {
                     .setTimestamp(Instant.now());
 
             final var connector = process.connector();
+            MemorySnapshot memory = null;
             if (connector != null) {
                 try {
-                    final var mem = connector.getMemoryUsage();
-                    final var memoryUsed = mem.totalMemory() - mem.freeMemory();
-                    embed.addField("Memory Usage", bytesToFriendly(memoryUsed / 1024) + "/" + bytesToFriendly(mem.totalMemory() / 1024), true);
+                    memory = connector.getMemorySnapshot();
+                } catch (RemoteException ignored) {
+                }
+            }
+
+            // Prefer the latest periodic sample, and only sample now (reusing the snapshot above) if there is none
+            var stats = Main.PROCESS_STATS.getLatest();
+            if (stats == null) {
+                stats = Main.PROCESS_STATS.sample(memory);
+            }
+            if (stats != null) {
+                embed.addField("Process Memory", processStats(stats, Main.PROCESS_STATS.getHistory()), false);
+            }
+
+            if (memory != null) {
+                try {
+                    embed.addField("Live Set (after GC)", (memory.liveSetAfterGc() < 0 ? "n/a" : bytesToFriendly(memory.liveSetAfterGc() / 1024)) + "/" + bytesToFriendly(memory.heapMax() / 1024), true);
+                    embed.addField("Heap Usage", bytesToFriendly(memory.heapUsed() / 1024) + "/" + bytesToFriendly(memory.heapCommitted() / 1024), true);
+                    embed.addField("Memory Breakdown", memoryBreakdown(memory), false);
 
                     embed.addField("CPU Load", connector.getCPULoad() * 100 + "%", true);
+
+                    final var watchdog = connector.getWatchdogReport();
+                    if (watchdog != null && watchdog.ticks().total() > 0) {
+                        final var ticks = watchdog.ticks();
+                        embed.addField("Tick Times", "%s (%s stalls)".formatted(ticks.summary(), watchdog.stallCount()), false);
+                    }
+
+                    final var metrics = connector.getJfrMetrics();
+                    if (metrics != null) {
+                        embed.addField("GC Pauses", "%s (%s pauses)".formatted(metrics.gcPauses().summary(), metrics.gcPauses().total()), false);
+                        embed.addField("Safepoints", metrics.safepoints().summary(), false);
+                        embed.addField("Allocation Rate", bytesToFriendly(metrics.allocationRate() / 1024) + "/s", true);
+                        final var contended = metrics.contendedMonitors().entrySet().stream().findFirst();
+                        embed.addField("Lock Contention", "%s contended enters (%s)%s".formatted(
+                                metrics.monitorEnters().total(), metrics.monitorEnters().summary(),
+                                contended.map(e -> ", mostly on `" + e.getKey() + "`").orElse("")
+                        ), false);
+                    }
                 } catch (RemoteException ignored) {
                 }
             }
 
             event.deferReply()
                     .addEmbeds(embed.build())
-                    .addActionRow(Button.primary(BUTTON_NAME, "\uD83D\uDCF7 Thread Dump"))
+                    .addActionRow(
+                            Button.primary(BUTTON_NAME, "\uD83D\uDCF7 Thread Dump"),
+                            Button.secondary(STUCK_BUTTON_NAME, "\u23F1 Stuck Threads")
+                    )
                     .queue();
         }
     }
 
+    /**
+     * Summarizes the pools of a memory snapshot: the heap pools with their usage after GC, metaspace, buffer pools and collectors.
+     */
+    public static String memoryBreakdown(final MemorySnapshot memory) {
+        final var builder = new StringBuilder();
+        for (final var pool : memory.pools()) {
+            if (!pool.heap() && !pool.name().equals("Metaspace")) continue;
+            builder.append(pool.name()).append(": ").append(bytesToFriendly(pool.used() / 1024));
+            if (pool.afterGc() >= 0) {
+                builder.append(" (").append(bytesToFriendly(pool.afterGc() / 1024)).append(" after GC)");
+            }
+            builder.append('\n');
+        }
+        for (final var pool : memory.bufferPools()) {
+            builder.append("Buffers (").append(pool.name()).append("): ").append(bytesToFriendly(pool.used() / 1024))
+                    .append(" in ").append(pool.count()).append(" buffers\n");
+        }
+        for (final var collector : memory.collectors()) {
+            builder.append(collector.name()).append(": ").append(collector.count()).append(" collections, ")
+                    .append(collector.time()).append(" ms\n");
+        }
+        if (memory.nativeMemory() != null) {
+            final var total = NMT_TOTAL.matcher(memory.nativeMemory());
+            if (total.find()) {
+                builder.append("Native (NMT): ").append(bytesToFriendly(Long.parseLong(total.group(2)))).append(" committed, ")
+                        .append(bytesToFriendly(Long.parseLong(total.group(1)))).append(" reserved\n");
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Summarizes the OS-level statistics of the process: its resident memory and how much of it isn't accounted for by the JVM,
+     * the trend of the RSS over the sampled history, the file descriptors and threads, and the CPU usage since the previous sample.
+     */
+    public static String processStats(final ProcessStats stats, final List<ProcessStats> history) {
+        final var builder = new StringBuilder();
+        if (stats.rss() >= 0) {
+            builder.append("RSS: ").append(bytesToFriendly(stats.rss() / 1024));
+            if (stats.pss() >= 0) builder.append(", PSS: ").append(bytesToFriendly(stats.pss() / 1024));
+            if (stats.swap() > 0) builder.append(", swapped: ").append(bytesToFriendly(stats.swap() / 1024));
+            builder.append('\n');
+        }
+        if (stats.offHeapGap() >= 0) {
+            builder.append("Off-heap gap: ").append(bytesToFriendly(stats.offHeapGap() / 1024))
+                    .append(" (RSS not accounted for by heap, non-heap and buffers)\n");
+        }
+        if (!history.isEmpty() && stats.rss() >= 0 && history.get(0).rss() >= 0) {
+            final var first = history.get(0);
+            final var delta = stats.rss() - first.rss();
+            builder.append("RSS trend: ").append(delta < 0 ? "-" : "+").append(bytesToFriendly(Math.abs(delta) / 1024))
+                    .append(" since ").append(TimeFormat.RELATIVE.format(first.timestamp())).append('\n');
+        }
+        if (stats.fds() >= 0) builder.append("File descriptors: ").append(stats.fds()).append('\n');
+        if (stats.threads() >= 0) builder.append("OS threads: ").append(stats.threads()).append('\n');
+        if (stats.cpuTime() >= 0) {
+            // The stats are usually the latest entry of the history, so compare them with the last sample taken before them
+            for (var i = history.size() - 1; i >= 0; i--) {
+                final var previous = history.get(i);
+                final var wall = stats.timestamp() - previous.timestamp();
+                if (wall > 0) {
+                    if (previous.cpuTime() >= 0) {
+                        builder.append("CPU: %.1f%% of a core".formatted((stats.cpuTime() - previous.cpuTime()) * 100d / wall)).append('\n');
+                    }
+                    break;
+                }
+            }
+        }
+        return builder.isEmpty() ? "Unavailable" : builder.toString();
+    }
+
     @Override
     public void onEvent(@NotNull final GenericEvent e$) {
         if (!(e$ instanceof ButtonInteractionEvent event)) return;
-        if (event.getButton().getId() == null || !event.getButton().getId().equals(BUTTON_NAME) || !event.isFromGuild()) {
+        final var buttonId = event.getButton().getId();
+        if (buttonId == null || !(buttonId.equals(BUTTON_NAME) || buttonId.equals(STUCK_BUTTON_NAME)) || !event.isFromGuild()) {
             event.deferEdit().queue();
             return;
         }
@@ -117,16 +250,31 @@ public class StatusCommand extends RLCommand implements EventListener {
             return;
         }
         final var connector = process.connector();
-        if (connector != null) {
+        if (connector != null && buttonId.equals(STUCK_BUTTON_NAME)) {
+            // Sampling takes a few seconds, so don't block the JDA threads
+            event.deferReply().queue(hook -> EXECUTOR.execute(() -> {
+                try {
+                    final var samples = Payloads.decompressThreads(connector.sampleThreads(STUCK_SAMPLES, STUCK_INTERVAL));
+                    final var reportPath = Main.RELAUNCHER_DIR.resolve("thread-dumps").resolve(Instant.now().getEpochSecond() + "-progress.md");
+                    Files.createDirectories(reportPath.getParent());
+                    Files.writeString(reportPath, ThreadDumpAnalyzer.compareSamples(samples, STUCK_INTERVAL));
+                    hook.editOriginalAttachments(AttachedFile.fromData(reportPath.toFile(), "progress.md")).queue();
+                } catch (Exception e) {
+                    hook.editOriginal("Could not sample process threads!").queue();
+                    Main.LOG.error("Error sampling process threads: ", e);
+                }
+            }));
+        } else if (connector != null) {
             try {
-                final var threads = connector.getThreads();
+                final var threads = Payloads.decompressThreads(connector.getThreadsCompressed())[0];
+                final var analysis = ThreadDumpAnalyzer.analyze(threads);
                 final var dumpPath = Main.RELAUNCHER_DIR.resolve("thread-dumps").resolve(Instant.now().getEpochSecond() + ".md");
                 if (!Files.exists(dumpPath.getParent())) {
                     Files.createDirectories(dumpPath.getParent());
                 }
                 try (final var writer = Files.newBufferedWriter(dumpPath, StandardOpenOption.CREATE)) {
-                    writer.write(getThreadDump(threads));
-                    event.deferReply().addFiles(FileUpload.fromData(dumpPath.toFile(), "dump.md")).queue();
+                    writer.write(getThreadDump(threads, analysis));
+                    event.deferReply().setContent(analysis.headline()).addFiles(FileUpload.fromData(dumpPath.toFile(), "dump.md")).queue();
                 }
             } catch (Exception e) {
                 event.deferReply(true).setContent("Could not retrieve process threads!").queue();
@@ -138,39 +286,75 @@ public class StatusCommand extends RLCommand implements EventListener {
     }
 
     public String getThreadDump(ThreadInfo[] threads) {
+        return getThreadDump(threads, ThreadDumpAnalyzer.analyze(threads));
+    }
+
+    public String getThreadDump(ThreadInfo[] threads, ThreadDumpAnalyzer.Analysis analysis) {
         final var builder = new StringBuilder();
         builder.append("# Thread dump at ")
                 .append(DateTimeFormatter.ISO_INSTANT.format(Instant.now()))
                 .append(System.lineSeparator())
                 .append(System.lineSeparator());
-        builder.append("## All active threads:");
-        for (final var info : threads) {
-            builder
-                    .append(System.lineSeparator())
-                    .append("- ")
-                    .append(info.name())
-                    .append(info.group() == null ? "" : "[" + info.group().name() + "]")
-                    .append('@')
-                    .append(info.id());
-        }
-        builder.append(System.lineSeparator())
-                .append(System.lineSeparator())
-                .append("## Detailed information about each thread:")
+        builder.append(analysis.summary())
                 .append(System.lineSeparator());
-        for (final var thread : threads) {
-            builder.append(System.lineSeparator());
-            builder.append("- ");
-            builder.append(buildThreadInfo(thread));
-            for (final var stack : thread.stackElements()) {
-                builder.append(System.lineSeparator())
-                        .append("    ")
-                        .append("at ")
-                        .append(stack.toString());
+        builder.append("## Threads grouped by stack:")
+                .append(System.lineSeparator());
+        for (final var group : ThreadDumpAnalyzer.groupByStack(threads)) {
+            final var first = group.get(0);
+            builder.append(System.lineSeparator()).append("- ");
+            if (group.size() == 1) {
+                builder.append(buildThreadInfo(first));
+            } else {
+                builder.append(group.size()).append(" threads ")
+                        .append(first.state().toString().toLowerCase(Locale.ROOT)).append(": ")
+                        .append(group.stream().map(t -> t.name() + "@" + t.id()).collect(Collectors.joining(", ")));
             }
+            appendStack(builder, first, group.size() == 1);
         }
         return builder.toString();
     }
 
+    /**
+     * Appends the stack of a thread, with its lock information.
+     *
+     * @param builder  the builder to append to
+     * @param thread   the thread
+     * @param identity if the identity of the locks should be included, which is only meaningful for a single thread
+     */
+    private void appendStack(final StringBuilder builder, final ThreadInfo thread, final boolean identity) {
+        final var stack = thread.stackElements();
+        for (var i = 0; i < stack.length; i++) {
+            builder.append(System.lineSeparator())
+                    .append("    ")
+                    .append("at ")
+                    .append(stack[i].toString());
+            if (i == 0 && thread.lock() != null) {
+                builder.append(System.lineSeparator())
+                        .append("    - ")
+                        .append(thread.state() == Thread.State.BLOCKED ? "waiting to lock " : "waiting on ")
+                        .append(identity ? thread.lock().toString() : "(a " + thread.lock().className() + ")");
+                if (identity && thread.lockOwnerName() != null) {
+                    builder.append(" owned by \"").append(thread.lockOwnerName()).append("\"@").append(thread.lockOwnerId());
+                }
+            }
+            for (final var monitor : thread.lockedMonitors()) {
+                if (monitor.stackDepth() == i) {
+                    builder.append(System.lineSeparator())
+                            .append("    - locked ")
+                            .append(identity ? monitor.lock().toString() : "(a " + monitor.lock().className() + ")");
+                }
+            }
+        }
+        if (identity && thread.lockedSynchronizers().length > 0) {
+            builder.append(System.lineSeparator())
+                    .append("    Locked synchronizers: ");
+            for (final var synchronizer : thread.lockedSynchronizers()) {
+                builder.append(synchronizer).append(' ');
+            }
+        }
+        builder.append(System.lineSeparator());
+    }
+
     public String buildThreadInfo(final ThreadInfo thread) {
         return "\"%s@%s\" %sprio=%s %s".formatted(
                 thread.group() == null ? thread.name() : thread.name() + " [" + thread.group().name() + "]",
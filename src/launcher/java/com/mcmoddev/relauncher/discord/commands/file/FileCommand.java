@@ -23,59 +23,105 @@ package com.mcmoddev.relauncher.discord.commands.file;
 import com.jagrosh.jdautilities.command.SlashCommand;
 import com.jagrosh.jdautilities.command.SlashCommandEvent;
 import com.mcmoddev.relauncher.Config;
+import com.mcmoddev.relauncher.DefaultJarUpdater;
 import com.mcmoddev.relauncher.Main;
+import com.mcmoddev.relauncher.api.JarUpdater;
+import com.mcmoddev.relauncher.archive.IncrementalSnapshots;
+import com.mcmoddev.relauncher.archive.ZipArchiver;
+import com.mcmoddev.relauncher.backup.Snapshotter;
 import com.mcmoddev.relauncher.discord.commands.RLCommand;
+import com.mcmoddev.relauncher.discord.commands.StatusCommand;
+import net.dv8tion.jda.api.interactions.InteractionHook;
 import net.dv8tion.jda.api.interactions.commands.OptionMapping;
 import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.OptionData;
-import net.dv8tion.jda.api.utils.AttachedFile;
 import net.dv8tion.jda.api.utils.FileUpload;
+import org.jetbrains.annotations.Nullable;
 
-import java.io.ByteArrayOutputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.net.URL;
-import java.nio.channels.Channels;
-import java.nio.file.FileVisitResult;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
-import java.util.function.Predicate;
 import java.util.regex.Pattern;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.regex.PatternSyntaxException;
 
 public class FileCommand extends RLCommand {
+    public static final Path TEMP_DIRECTORY = Main.RELAUNCHER_DIR.resolve("tmp");
+    public static final Path SNAPSHOTS_DIRECTORY = Main.RELAUNCHER_DIR.resolve("snapshots");
+    public static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        final var thread = new Thread(Main.THREAD_GROUP, r, "ReLauncherFiles");
+        thread.setDaemon(true);
+        return thread;
+    });
+    /**
+     * The maximum size of a file which can be uploaded to Discord, used when the guild of the interaction is unknown.
+     */
+    public static final long DEFAULT_MAX_UPLOAD_SIZE = 10 * 1024 * 1024;
+    /**
+     * The room left in the requests uploading the parts of split files for the rest of the request.
+     */
+    public static final long PART_MARGIN = 512 * 1024;
+    /**
+     * The maximum amount of parts a file is split in. Larger files are sent as a {@link FileLinkServer link} if enabled, as
+     * uploading more parts would take too long for the interaction, which expires after 15 minutes.
+     */
+    public static final int MAX_PARTS = 10;
+    /**
+     * The minimum interval between the progress updates of uploads, in nanoseconds.
+     */
+    public static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toNanos(2);
+    /**
+     * The maximum amount of characters returned by {@code tail} and {@code grep}, sent as an attachment.
+     */
+    public static final int MAX_SCAN_OUTPUT = 4 * 1024 * 1024;
+    /**
+     * The maximum amount of characters of {@code tail} and {@code grep} results sent in the reply message itself.
+     */
+    public static final int MAX_INLINE_OUTPUT = 1900;
+    /**
+     * The maximum duration of a {@code grep}, after which it fails, so that a costly pattern can't hog the executor.
+     */
+    public static final Duration GREP_TIMEOUT = Duration.ofSeconds(30);
+
     private final Path basePath;
-    private final List<Pred> predicates;
+    private final FilePolicy policy;
+    private final IncrementalSnapshots snapshots;
+    @Nullable
+    private final FileLinkServer linkServer;
+    private final FileDownloader downloader;
 
     public FileCommand(final Path basePath, final Config.Discord config) {
         super(() -> null, config);
         this.basePath = basePath;
+        this.snapshots = new IncrementalSnapshots(new ZipArchiver(config.zipCompression, TEMP_DIRECTORY), SNAPSHOTS_DIRECTORY);
+        FileLinkServer links = null;
+        try {
+            links = FileLinkServer.start(config.fileLinks);
+        } catch (IOException e) {
+            Main.LOG.error("Could not start the file link server: ", e);
+        }
+        this.linkServer = links;
+        this.downloader = new FileDownloader(HttpClient.newBuilder()
+                .executor(Main.getHttpClientExecutor())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(FileDownloader.CONNECT_TIMEOUT)
+                .build(), config.uploadSizeLimit < 0 ? -1 : config.uploadSizeLimit * 1024 * 1024, Main.SERVICE);
         name = "file";
         help = "File management commands.";
 
-        if (config.filePatterns.isEmpty()) {
-            predicates = List.of(new Pred(s -> false, true));
-        } else {
-            predicates = config.filePatterns.stream()
-                    .map(str -> {
-                        if (str.equals("*")) {
-                            return new Pred(s -> true, false);
-                        } else if (str.startsWith("!") && str.length() > 1) {
-                            final var regex = Pattern.compile(str.substring(1)).asPredicate();
-                            return new Pred(s -> !regex.test(s), true);
-                        } else {
-                            final var regex = Pattern.compile(str);
-                            return new Pred(regex.asPredicate(), false);
-                        }
-                    })
-                    .toList();
-        }
+        this.policy = FilePolicy.compile(config.filePatterns);
 
         this.children = new SlashCommand[]{
                 new Cmd(this::onFileGet) {
@@ -86,7 +132,11 @@ public class FileCommand extends RLCommand {
                         help = "Gets a file.";
                         options = List.of(
                                 new OptionData(OptionType.STRING, "path", "The path of the file to get.", true),
-                                new OptionData(OptionType.BOOLEAN, "zip", "If true, the provided directory at the path, will be zipped and sent.")
+                                new OptionData(OptionType.BOOLEAN, "zip", "If true, the provided directory at the path, will be zipped and sent."),
+                                new OptionData(OptionType.BOOLEAN, "incremental", "If true, only the files changed since the last export of the directory are zipped."),
+                                new OptionData(OptionType.STRING, "mode", "How to send the file. Defaults to attaching it, split in parts if too large.")
+                                        .addChoice("Attachment", "attach")
+                                        .addChoice("Link", "link")
                         );
                     }
                 },
@@ -100,13 +150,125 @@ public class FileCommand extends RLCommand {
                         options = List.of(
                                 new OptionData(OptionType.STRING, "path", "The path to upload the file to.", true),
                                 new OptionData(OptionType.ATTACHMENT, "file", "The file to upload. Mutually exclusive with 'url'"),
-                                new OptionData(OptionType.STRING, "url", "An url to download the file from, if it is too big. Mutually exclusive with 'file'")
+                                new OptionData(OptionType.STRING, "url", "An url to download the file from, if it is too big. Mutually exclusive with 'file'"),
+                                new OptionData(OptionType.STRING, "sha256", "The expected SHA-256 of the file. The file is not replaced if it doesn't match."),
+                                new OptionData(OptionType.BOOLEAN, "restart", "If true and the file is the jar of the process, the process is restarted once the file is replaced.")
+                        );
+                    }
+                },
+
+                new Cmd(this::onFileTail) {
+
+                    @Override
+                    public void init() {
+                        name = "tail";
+                        help = "Gets the last lines of a file.";
+                        options = List.of(
+                                new OptionData(OptionType.STRING, "path", "The path of the file.", true),
+                                new OptionData(OptionType.INTEGER, "lines", "The amount of lines to get. Defaults to 100.")
+                                        .setRequiredRange(1, 100_000),
+                                new OptionData(OptionType.STRING, "from", "Only include the lines logged from this time (HH:mm[:ss])."),
+                                new OptionData(OptionType.STRING, "to", "Only include the lines logged until this time (HH:mm[:ss]).")
+                        );
+                    }
+                },
+
+                new Cmd(this::onFileGrep) {
+
+                    @Override
+                    public void init() {
+                        name = "grep";
+                        help = "Searches a file for the lines matching a regex.";
+                        options = List.of(
+                                new OptionData(OptionType.STRING, "path", "The path of the file.", true),
+                                new OptionData(OptionType.STRING, "pattern", "The regex to search for.", true),
+                                new OptionData(OptionType.INTEGER, "context", "The amount of lines to include before and after each match. Defaults to 0.")
+                                        .setRequiredRange(0, 50),
+                                new OptionData(OptionType.INTEGER, "limit", "The maximum amount of matches. Defaults to 500.")
+                                        .setRequiredRange(1, 100_000),
+                                new OptionData(OptionType.BOOLEAN, "ignore_case", "If true, the search is case insensitive."),
+                                new OptionData(OptionType.STRING, "from", "Only search the lines logged from this time (HH:mm[:ss])."),
+                                new OptionData(OptionType.STRING, "to", "Only search the lines logged until this time (HH:mm[:ss]).")
                         );
                     }
                 }
         };
     }
 
+    protected void onFileTail(final SlashCommandEvent event) {
+        final var lines = event.getOption("lines", 100, OptionMapping::getAsInt);
+        scanFile(event, "tail", (file, range) -> LogScanner.tail(file, lines, range, MAX_SCAN_OUTPUT));
+    }
+
+    protected void onFileGrep(final SlashCommandEvent event) {
+        final Pattern pattern;
+        try {
+            pattern = Pattern.compile(event.getOption("pattern", "", OptionMapping::getAsString),
+                    event.getOption("ignore_case", false, OptionMapping::getAsBoolean) ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0);
+        } catch (PatternSyntaxException e) {
+            event.deferReply(true).setContent("Invalid pattern: " + e.getDescription()).queue();
+            return;
+        }
+        final var context = event.getOption("context", 0, OptionMapping::getAsInt);
+        final var limit = event.getOption("limit", 500, OptionMapping::getAsInt);
+        scanFile(event, "grep", (file, range) -> LogScanner.grep(file, pattern, context, limit, range, MAX_SCAN_OUTPUT, GREP_TIMEOUT));
+    }
+
+    /**
+     * Scans a file, and replies with the result inline if short enough, or as an attachment otherwise.
+     */
+    private void scanFile(final SlashCommandEvent event, final String type, final Scan scan) {
+        if (event.getMember() == null || event.getMember().getRoles().stream().noneMatch(role -> roles.contains(role.getId()))) {
+            event.deferReply(true).setContent("You do not have the required permissions to run this command.").queue();
+            return;
+        }
+        final var file = basePath.resolve(event.getOption("path", "", OptionMapping::getAsString));
+        if (!canAccessFile(file)) {
+            event.deferReply(true).setContent("You do not have access to the specified path.").queue();
+            return;
+        }
+        if (!Files.isRegularFile(file)) {
+            event.deferReply(true).setContent("The specified path is not a file.").queue();
+            return;
+        }
+        final LogScanner.TimeRange range;
+        try {
+            range = LogScanner.TimeRange.parse(event.getOption("from", OptionMapping::getAsString), event.getOption("to", OptionMapping::getAsString));
+        } catch (IllegalArgumentException e) {
+            event.deferReply(true).setContent(e.getMessage()).queue();
+            return;
+        }
+        // Scanning large files may take a while, so don't block the JDA threads
+        event.deferReply().queue(hook -> EXECUTOR.execute(() -> {
+            final LogScanner.Result result;
+            try {
+                result = scan.scan(file, range);
+            } catch (VirtualMachineError e) {
+                throw e;
+            } catch (IOException | RuntimeException | Error e) {
+                // e.g. an InternalError if the file is truncated while mapped, which would otherwise leave the reply pending
+                Main.LOG.error("Exception scanning file '{}': ", file, e);
+                hook.editOriginal("Exception scanning file: " + e.getLocalizedMessage()).queue();
+                return;
+            }
+            final var summary = "%s line(s)%s".formatted(result.lines(), result.truncated() ? ", truncated to the size limit" : "");
+            if (result.text().isEmpty()) {
+                hook.editOriginal("Nothing found.").queue();
+            } else if (result.text().length() <= MAX_INLINE_OUTPUT && !result.text().contains("```")) {
+                hook.editOriginal(summary + ":\n```\n" + result.text() + "\n```").queue();
+            } else {
+                hook.editOriginal(summary + ".").queue();
+                hook.editOriginalAttachments(FileUpload.fromData(result.text().getBytes(StandardCharsets.UTF_8),
+                        file.getFileName() + "." + type + ".txt")).queue();
+            }
+        }));
+    }
+
+    @FunctionalInterface
+    private interface Scan {
+        LogScanner.Result scan(Path file, LogScanner.TimeRange range) throws IOException;
+    }
+
     protected void onFileUpload(final SlashCommandEvent event) {
         if (event.getMember() == null || event.getMember().getRoles().stream().noneMatch(role -> roles.contains(role.getId()))) {
             event.deferReply(true).setContent("You do not have the required permissions to run this command.").queue();
@@ -124,44 +286,60 @@ public class FileCommand extends RLCommand {
         final var attach = event.getOption("file", OptionMapping::getAsAttachment);
         final var url = event.getOption("url", OptionMapping::getAsString);
         if (attach == null && url == null) {
-            event.deferReply(true).setContent("Please provide either the file to upload or a link to it.");
+            event.deferReply(true).setContent("Please provide either the file to upload or a link to it.").queue();
             return;
         }
-        event.deferReply()
-                .queue(hook -> {
-                    if (attach != null) {
-                        attach.getProxy().downloadToFile(file.toFile())
-                                .whenComplete(($, e) -> {
-                                    if (e == null) {
-                                        hook.editOriginal("File downloaded successfully.").queue();
-                                        Main.LOG.info("Downloaded file {} from Discord at the request of {}.", $, event.getUser().getName());
-                                    } else {
-                                        hook.editOriginal("The downloaded encountered an error: " + e.getLocalizedMessage()).queue();
-                                        Main.LOG.error("Error downloading file {} from discord at the request of {}: {}", file, event.getUser().getName(), e);
-                                    }
-                                });
-                    } else {
-                        try {
-                            Objects.requireNonNull(url);
-                            Files.deleteIfExists(file);
-                            final var parent = file.toAbsolutePath().getParent();
-                            if (parent != null) {
-                                Files.createDirectories(parent);
-                            }
-                            try (final var readChannel = Channels.newChannel(new URL(url).openStream())) {
-                                Files.createFile(file);
-                                try (final var writeChannel = new FileOutputStream(file.toFile()).getChannel()) {
-                                    writeChannel.transferFrom(readChannel, 0, Long.MAX_VALUE);
-                                    hook.editOriginal("Successfully downloaded file.").queue();
-                                    Main.LOG.info("Downloaded file {} from {} at the request of {} via Discord.", file, url, event.getUser().getName());
-                                }
-                            }
-                        } catch (IOException e) {
-                            hook.editOriginal("The downloaded encountered an error: " + e.getLocalizedMessage()).queue();
-                            Main.LOG.info("Error downloading file {} from {} at the request of {} via Discord: {}", file, url, event.getUser().getName(), e);
-                        }
+        final var sha256 = event.getOption("sha256", OptionMapping::getAsString);
+        final var restart = event.getOption("restart", false, OptionMapping::getAsBoolean);
+        final var source = attach == null ? url : attach.getUrl();
+        final var expectedSize = attach == null ? -1L : attach.getSize();
+        event.deferReply().queue(hook -> EXECUTOR.execute(() -> {
+            final var lastProgress = new AtomicLong(System.nanoTime());
+            try {
+                final var result = downloader.download(URI.create(source), file, expectedSize, sha256, downloaded -> {
+                    final var now = System.nanoTime();
+                    final var last = lastProgress.get();
+                    if (now - last >= PROGRESS_INTERVAL && lastProgress.compareAndSet(last, now)) {
+                        hook.editOriginal("Downloading... %s%s".formatted(StatusCommand.bytesToFriendly(downloaded / 1024),
+                                expectedSize < 0 ? "" : " / " + StatusCommand.bytesToFriendly(expectedSize / 1024))).queue();
                     }
                 });
+                Main.LOG.info("Downloaded file {} from {} at the request of {} via Discord.", file, source, event.getUser().getName());
+                final var message = new StringBuilder("Successfully downloaded file (%s, SHA-256 `%s`).".formatted(
+                        StatusCommand.bytesToFriendly(result.size() / 1024), result.sha256()));
+                if (restart) {
+                    message.append('\n').append(restartWithJar(file, event.getUser().getName()));
+                }
+                hook.editOriginal(message.toString()).queue();
+            } catch (IllegalArgumentException | IOException e) {
+                hook.editOriginal("The download encountered an error: " + e.getLocalizedMessage()).queue();
+                Main.LOG.error("Error downloading file {} from {} at the request of {} via Discord: ", file, source, event.getUser().getName(), e);
+            }
+        }));
+    }
+
+    /**
+     * Restarts the process if the given file is its jar.
+     *
+     * @param file      the uploaded file
+     * @param requester the name of the user who requested the restart
+     * @return a message describing the outcome
+     */
+    private static String restartWithJar(final Path file, final String requester) {
+        if (!(Main.getProcessManager() instanceof JarUpdater updater)
+                || !updater.getJarPath().toAbsolutePath().normalize().equals(file.toAbsolutePath().normalize())) {
+            return "The uploaded file is not the jar of the process, so it was not restarted.";
+        }
+        DefaultJarUpdater.LOGGER.warn("Restarting process with an uploaded jar at the request of {} via Discord.", requester);
+        final var process = updater.getProcess();
+        if (process == null) {
+            updater.startProcess();
+            return "The process was started.";
+        }
+        process.process().onExit().thenRun(updater::startProcess);
+        process.process().destroy();
+        updater.clearProcess();
+        return "The process is restarting.";
     }
 
     protected void onFileGet(final SlashCommandEvent event) {
@@ -169,20 +347,49 @@ public class FileCommand extends RLCommand {
             event.deferReply(true).setContent("You do not have the required permissions to run this command.").queue();
             return;
         }
+        final var link = event.getOption("mode", "attach", OptionMapping::getAsString).equals("link");
+        if (link && linkServer == null) {
+            event.deferReply(true).setContent("The link server is not enabled.").queue();
+            return;
+        }
         final var doZip = event.getOption("zip", false, OptionMapping::getAsBoolean);
         if (doZip) {
             final var dir = basePath.resolve(event.getOption("path", "", OptionMapping::getAsString));
-            event.deferReply()
-                    .flatMap(hook -> {
-                        try {
-                            final var data = filesZip(dir);
-                            return hook.editOriginalAttachments(AttachedFile.fromData(data, "dir.zip"));
-                        } catch (IOException e) {
-                            Main.LOG.error("Exception trying to zip directory '{}': ", dir, e);
-                            return hook.editOriginal("Exception trying to zip directory: " + e.getLocalizedMessage());
-                        }
-                    })
-                    .queue();
+            if (!canAccessFile(dir)) {
+                event.deferReply(true).setContent("You do not have access to the specified path.").queue();
+                return;
+            }
+            if (!Files.isDirectory(dir)) {
+                event.deferReply(true).setContent("The specified path is not a directory.").queue();
+                return;
+            }
+            final var incremental = event.getOption("incremental", false, OptionMapping::getAsBoolean);
+            // Zipping may take a while, so don't block the JDA threads
+            event.deferReply().queue(hook -> EXECUTOR.execute(() -> {
+                final Zipped zip;
+                try {
+                    zip = zipToTemp(dir, incremental);
+                } catch (IOException e) {
+                    Main.LOG.error("Exception trying to zip directory '{}': ", dir, e);
+                    hook.editOriginal("Exception trying to zip directory: " + e.getLocalizedMessage()).queue();
+                    return;
+                }
+                final var result = zip.result();
+                if (result.incremental()) {
+                    hook.editOriginal("Changes since the last export: %s added or changed file(s), %s deleted (listed in `%s`), %s unchanged.".formatted(
+                            result.changed(), result.deleted(), IncrementalSnapshots.DELETED_ENTRY, result.unchanged()
+                    )).queue();
+                }
+                final var name = dir.toAbsolutePath().normalize().getFileName() + (result.incremental() ? "-changes.zip" : ".zip");
+                // Only make this export the baseline of the next incremental ones once it was delivered
+                deliver(hook, zip.file(), name, true, link, () -> {
+                    try {
+                        snapshots.commit(result);
+                    } catch (IOException e) {
+                        Main.LOG.error("Could not record the export of directory '{}': ", dir, e);
+                    }
+                });
+            }));
             return;
         }
 
@@ -199,42 +406,155 @@ public class FileCommand extends RLCommand {
             event.deferReply(true).setContent("The specified file doesn't exist.").queue();
             return;
         }
-        event.deferReply()
-                .flatMap(hook -> hook.editOriginalAttachments(FileUpload.fromData(file.toFile())))
-                .queue();
+        event.deferReply().queue(hook -> EXECUTOR.execute(() -> deliver(hook, file, file.getFileName().toString(), false, link, () -> {})));
+    }
+
+    /**
+     * Sends a file in reply to a command: as an attachment if it is small enough, in {@link FileSplitter split parts} if it is not,
+     * or as a {@link FileLinkServer link}, which is also used for files needing more than {@link #MAX_PARTS} parts.
+     *
+     * @param hook      the hook of the reply
+     * @param file      the file to send
+     * @param name      the name to send the file as
+     * @param temporary if the file should be deleted once sent
+     * @param link      if the file should be sent as a link
+     * @param delivered called once the file was successfully sent, or shared
+     */
+    protected void deliver(final InteractionHook hook, final Path file, final String name, final boolean temporary, final boolean link,
+                           final Runnable delivered) {
+        final Runnable cleanup = () -> {
+            if (temporary) delete(file);
+        };
+        try {
+            final var size = Files.size(file);
+            // The upload limit depends on the boost tier of the guild
+            final var guild = hook.getInteraction().getGuild();
+            final var maxUploadSize = guild == null ? DEFAULT_MAX_UPLOAD_SIZE : guild.getMaxFileSize();
+            final var partSize = Math.max(maxUploadSize - PART_MARGIN, maxUploadSize / 2);
+            final var tooManyParts = size > maxUploadSize && (size + partSize - 1) / partSize > MAX_PARTS;
+            if (tooManyParts && linkServer == null) {
+                cleanup.run();
+                hook.editOriginal("`%s` is too large to be sent (%s MB, more than %s parts). Enable the file links to download it.".formatted(
+                        name, size / 1024 / 1024, MAX_PARTS
+                )).queue();
+                return;
+            }
+            if (link || tooManyParts) {
+                final var url = Objects.requireNonNull(linkServer).share(file, name, temporary);
+                hook.editOriginal("%sDownload `%s` (%s MB) from <%s>. The link expires in %s minutes.".formatted(
+                        link ? "" : "The file is too large to be uploaded. ", name, size / 1024 / 1024, url, linkServer.getExpiry()
+                )).queue();
+                delivered.run();
+                return;
+            }
+            if (size <= maxUploadSize) {
+                hook.editOriginalAttachments(FileUpload.fromData(file.toFile(), name)).queue($ -> {
+                    cleanup.run();
+                    delivered.run();
+                }, $ -> cleanup.run());
+                return;
+            }
+
+            Files.createDirectories(TEMP_DIRECTORY);
+            final var directory = Files.createTempDirectory(TEMP_DIRECTORY, "split-");
+            final FileSplitter.Result split;
+            try {
+                split = FileSplitter.split(file, name, directory, partSize);
+            } catch (IOException | RuntimeException e) {
+                // Don't leave the parts written before the failure behind
+                try {
+                    Snapshotter.deleteRecursively(directory);
+                } catch (IOException deleteException) {
+                    e.addSuppressed(deleteException);
+                }
+                throw e;
+            } finally {
+                cleanup.run();
+            }
+            hook.editOriginal("`%s` is too large to be uploaded at once (%s MB), so it is sent in %s parts. Reassemble them following the manifest, and check the SHA-256 of the result: `%s`".formatted(
+                    name, size / 1024 / 1024, split.parts().size(), split.manifest().sha256()
+            )).queue();
+
+            // All parts are queued at once, JDA takes care of respecting the rate limits
+            final var remaining = new AtomicInteger(split.parts().size() + 1);
+            final var failed = new AtomicBoolean();
+            final Consumer<Path> sent = part -> {
+                delete(part);
+                if (remaining.decrementAndGet() == 0) {
+                    delete(directory);
+                    if (!failed.get()) delivered.run();
+                }
+            };
+            hook.sendFiles(FileUpload.fromData(split.manifestFile().toFile(), split.manifestFile().getFileName().toString()))
+                    .queue($ -> sent.accept(split.manifestFile()), e -> {
+                        Main.LOG.error("Could not upload the manifest '{}': ", split.manifestFile(), e);
+                        failed.set(true);
+                        sent.accept(split.manifestFile());
+                    });
+            for (final var part : split.parts()) {
+                hook.sendFiles(FileUpload.fromData(part.toFile(), part.getFileName().toString()))
+                        .queue($ -> sent.accept(part), e -> {
+                            Main.LOG.error("Could not upload part '{}': ", part, e);
+                            failed.set(true);
+                            sent.accept(part);
+                        });
+            }
+        } catch (IOException e) {
+            cleanup.run();
+            Main.LOG.error("Exception sending file '{}': ", file, e);
+            hook.editOriginal("Exception sending file: " + e.getLocalizedMessage()).queue();
+        }
+    }
+
+    /**
+     * Stops the {@link FileLinkServer link server}, if running.
+     */
+    public void shutdown() {
+        if (linkServer != null) {
+            linkServer.stop();
+        }
+    }
+
+    private static void delete(final Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            Main.LOG.warn("Could not delete temporary file '{}': ", file, e);
+        }
     }
 
     public boolean canAccessFile(final Path file) {
-        final var ts = file.toAbsolutePath().toString();
         if (file.startsWith(Main.RELAUNCHER_DIR)) return false;
-        for (final var pred : predicates) {
-            final var res = pred.test(ts);
-            if (!pred.ignore(res)) return res;
+        return policy.canAccess(file);
+    }
+
+    /**
+     * Zips the accessible files of a directory into a temporary file, which should be deleted once used. <br>
+     * The export must be {@link IncrementalSnapshots#commit(IncrementalSnapshots.Result) committed} once delivered, so that the
+     * next incremental exports only contain the changes since this one.
+     *
+     * @param directory   the directory to zip
+     * @param incremental if only the changes since the last export should be archived
+     * @return the temporary archive
+     */
+    public Zipped zipToTemp(final Path directory, final boolean incremental) throws IOException {
+        Files.createDirectories(TEMP_DIRECTORY);
+        final var zip = Files.createTempFile(TEMP_DIRECTORY, "zip-", ".zip");
+        try (final var out = Files.newOutputStream(zip)) {
+            return new Zipped(zip, snapshots.snapshot(directory, dir -> !dir.startsWith(Main.RELAUNCHER_DIR) && policy.canEnter(dir), this::canAccessFile, incremental, out));
+        } catch (IOException e) {
+            Files.deleteIfExists(zip);
+            throw e;
         }
-        return true;
     }
 
-    public byte[] filesZip(Path directory) throws IOException {
-        final var bo = new ByteArrayOutputStream();
-        final var zipOut = new ZipOutputStream(bo);
-        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
-            @Override
-            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
-                try {
-                    if (canAccessFile(file.toAbsolutePath())) {
-                        final var zipEntry = new ZipEntry(file.toString());
-                        zipOut.putNextEntry(zipEntry);
-                        zipOut.write(Files.readAllBytes(file));
-                        zipOut.closeEntry();
-                    }
-                } catch (IOException e) {
-                    sneakyThrow(e);
-                }
-                return FileVisitResult.CONTINUE;
-            }
-        });
-        zipOut.close();
-        return bo.toByteArray();
+    /**
+     * A zipped directory.
+     *
+     * @param file   the temporary archive
+     * @param result the result of the snapshot of the directory
+     */
+    public record Zipped(Path file, IncrementalSnapshots.Result result) {
     }
 
     /**
@@ -268,23 +588,4 @@ public class FileCommand extends RLCommand {
 
         public abstract void init();
     }
-
-    public static final class Pred implements Predicate<String> {
-        private final Predicate<? super String> predicate;
-        private final boolean ignoreIf;
-
-        public Pred(final Predicate<? super String> predicate, final boolean ignoreIf) {
-            this.predicate = predicate;
-            this.ignoreIf = ignoreIf;
-        }
-
-        @Override
-        public boolean test(final String s) {
-            return predicate.test(s);
-        }
-
-        public boolean ignore(final boolean bool) {
-            return bool == ignoreIf;
-        }
-    }
 }
@@ -0,0 +1,227 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.discord.commands.file;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import java.util.zip.ZipFile;
+
+/**
+ * Downloads files safely: the content is streamed to a temporary file next to the target, capped in size, verified,
+ * and only then atomically moved in place of the target. A failed download never leaves a partially written target. <br>
+ * A download which stalls, either while waiting for the response or while receiving the body, fails instead of blocking
+ * the calling thread indefinitely.
+ */
+public final class FileDownloader {
+    /**
+     * The maximum time to wait for a connection to be established, which should be configured on the client.
+     */
+    public static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(30);
+    /**
+     * The maximum time to wait for the response headers.
+     */
+    public static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(1);
+    /**
+     * The maximum time to wait for more data while receiving the body.
+     */
+    public static final Duration READ_TIMEOUT = Duration.ofMinutes(1);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final HttpClient client;
+    private final long maxSize;
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param client    the client to download files with
+     * @param maxSize   the maximum size of the downloaded files, in bytes, or a negative number for no limit
+     * @param scheduler the executor checking for stalled downloads
+     */
+    public FileDownloader(final HttpClient client, final long maxSize, final ScheduledExecutorService scheduler) {
+        this.client = client;
+        this.maxSize = maxSize;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * A completed download.
+     *
+     * @param size   the size of the file
+     * @param sha256 the SHA-256 of the file
+     */
+    public record Result(long size, String sha256) {
+    }
+
+    /**
+     * Downloads a file.
+     *
+     * @param source         the URI to download the file from
+     * @param target         the file to download to, which is replaced once the download is verified
+     * @param expectedSize   the expected size of the file, or a negative number if unknown
+     * @param expectedSha256 the expected SHA-256 of the file, in hex, or {@code null} if unknown
+     * @param progress       a consumer of the amount of bytes downloaded so far, called for each read chunk
+     * @return the download result
+     */
+    public Result download(final URI source, final Path target, final long expectedSize, @Nullable final String expectedSha256,
+                           final LongConsumer progress) throws IOException {
+        if (maxSize >= 0 && expectedSize > maxSize) {
+            throw new IOException(tooLarge(expectedSize));
+        }
+        final HttpResponse<InputStream> response;
+        try {
+            response = client.send(HttpRequest.newBuilder(source).timeout(REQUEST_TIMEOUT).GET().build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while downloading " + source, e);
+        }
+
+        try (final var in = response.body()) {
+            if (response.statusCode() / 100 != 2) {
+                throw new IOException("The server responded with status code " + response.statusCode());
+            }
+            final var length = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+            if (maxSize >= 0 && length > maxSize) {
+                throw new IOException(tooLarge(length));
+            }
+
+            final var parent = target.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            // The temporary file is in the same directory as the target, so that it can be moved atomically
+            final var temp = Files.createTempFile(parent, "." + target.getFileName(), ".download");
+            try {
+                final var digest = sha256();
+                var size = 0L;
+                // Reads of the body can't time out by themselves, so interrupt the download if it stops receiving data
+                final var watchdog = new ReadWatchdog(Thread.currentThread());
+                final var check = scheduler.scheduleWithFixedDelay(watchdog, 1, 1, TimeUnit.SECONDS);
+                try (final var out = Files.newOutputStream(temp)) {
+                    final var buffer = new byte[BUFFER_SIZE];
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        watchdog.lastRead = System.nanoTime();
+                        size += read;
+                        if (maxSize >= 0 && size > maxSize) {
+                            throw new IOException(tooLarge(size));
+                        }
+                        digest.update(buffer, 0, read);
+                        out.write(buffer, 0, read);
+                        progress.accept(size);
+                    }
+                } catch (IOException e) {
+                    if (watchdog.finish()) {
+                        throw new IOException("No data was received for " + READ_TIMEOUT.toSeconds() + " seconds", e);
+                    }
+                    throw e;
+                } finally {
+                    check.cancel(false);
+                    watchdog.finish();
+                }
+
+                final var sha256 = HexFormat.of().formatHex(digest.digest());
+                verify(temp, target, size, length >= 0 ? length : expectedSize, sha256, expectedSha256);
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                return new Result(size, sha256);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    private static void verify(final Path temp, final Path target, final long size, final long expectedSize,
+                               final String sha256, @Nullable final String expectedSha256) throws IOException {
+        if (expectedSize >= 0 && size != expectedSize) {
+            throw new IOException("The download is incomplete: received %s bytes out of %s".formatted(size, expectedSize));
+        }
+        if (expectedSha256 != null && !expectedSha256.equalsIgnoreCase(sha256)) {
+            throw new IOException("Checksum mismatch: expected SHA-256 %s, got %s".formatted(expectedSha256, sha256));
+        }
+        final var name = target.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".jar") || name.endsWith(".zip")) {
+            // Opening the archive reads its central directory, which is at the very end of the file
+            try (final var zip = new ZipFile(temp.toFile())) {
+                zip.size();
+            } catch (IOException e) {
+                throw new IOException("The downloaded file is not a valid archive: " + e.getLocalizedMessage(), e);
+            }
+        }
+    }
+
+    private static final class ReadWatchdog implements Runnable {
+        private final Thread thread;
+        private volatile long lastRead = System.nanoTime();
+        private boolean finished;
+        private boolean timedOut;
+
+        private ReadWatchdog(final Thread thread) {
+            this.thread = thread;
+        }
+
+        @Override
+        public synchronized void run() {
+            if (!finished && !timedOut && System.nanoTime() - lastRead > READ_TIMEOUT.toNanos()) {
+                timedOut = true;
+                thread.interrupt();
+            }
+        }
+
+        /**
+         * Stops watching the download, clearing the interrupt caused by a timeout.
+         *
+         * @return if the download timed out
+         */
+        private synchronized boolean finish() {
+            finished = true;
+            if (timedOut) {
+                Thread.interrupted();
+            }
+            return timedOut;
+        }
+    }
+
+    private String tooLarge(final long size) {
+        return "The file is too large (%s bytes), the maximum is %s bytes".formatted(size, maxSize);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+}
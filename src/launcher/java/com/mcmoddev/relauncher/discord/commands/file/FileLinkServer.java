@@ -0,0 +1,162 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.discord.commands.file;
+
+import com.mcmoddev.relauncher.Config;
+import com.mcmoddev.relauncher.Main;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small HTTP server which serves files through short-lived, unguessable links, for files too large to be uploaded to Discord.
+ */
+public final class FileLinkServer {
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final String publicUrl;
+    private final long expiry;
+    private final Map<String, Link> links = new ConcurrentHashMap<>();
+
+    private record Link(Path file, String name, boolean temporary) {
+    }
+
+    private FileLinkServer(final HttpServer server, final ExecutorService executor, final String publicUrl, final long expiry) {
+        this.server = server;
+        this.executor = executor;
+        this.publicUrl = publicUrl.endsWith("/") ? publicUrl.substring(0, publicUrl.length() - 1) : publicUrl;
+        this.expiry = expiry;
+    }
+
+    /**
+     * Starts a link server, if enabled.
+     *
+     * @param config the config of the server
+     * @return the server, or {@code null} if disabled
+     */
+    @Nullable
+    public static FileLinkServer start(final Config.FileLinks config) throws IOException {
+        if (!config.enabled) return null;
+        final var server = HttpServer.create(new InetSocketAddress(config.bindAddress, config.port), 0);
+        final var executor = Executors.newFixedThreadPool(2, r -> {
+            final var thread = new Thread(Main.THREAD_GROUP, r, "ReLauncherFileLinks");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        final var links = new FileLinkServer(server, executor, config.publicUrl, config.expiry);
+        server.createContext("/", links::handle);
+        server.start();
+        return links;
+    }
+
+    /**
+     * Shares a file through a new link, which expires after the configured time.
+     *
+     * @param file      the file to share
+     * @param name      the name the file is downloaded as
+     * @param temporary if the file should be deleted once the link expires
+     * @return the URL of the link
+     */
+    public String share(final Path file, final String name, final boolean temporary) {
+        final var bytes = new byte[24];
+        RANDOM.nextBytes(bytes);
+        final var token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        links.put(token, new Link(file, name, temporary));
+        Main.SERVICE.schedule(() -> expire(token), expiry, TimeUnit.MINUTES);
+        return publicUrl + "/" + token + "/" + URLEncoder.encode(name, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    /**
+     * @return the amount of minutes after which links expire
+     */
+    public long getExpiry() {
+        return expiry;
+    }
+
+    private void expire(final String token) {
+        final var link = links.remove(token);
+        if (link != null && link.temporary()) {
+            try {
+                Files.deleteIfExists(link.file());
+            } catch (IOException e) {
+                Main.LOG.warn("Could not delete expired shared file '{}': ", link.file(), e);
+            }
+        }
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        try (exchange) {
+            // The path is /<token>/<name>, only the token matters
+            final var path = exchange.getRequestURI().getPath();
+            final var end = path.indexOf('/', 1);
+            final var link = links.get(end == -1 ? path.substring(1) : path.substring(1, end));
+            if (!exchange.getRequestMethod().equals("GET") || link == null || !Files.isRegularFile(link.file())) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/octet-stream");
+            exchange.getResponseHeaders().add("Content-Disposition", "attachment; filename=\"" + link.name().replace("\"", "") + "\"");
+            try (final var channel = FileChannel.open(link.file(), StandardOpenOption.READ)) {
+                // The file may still be written to (e.g. a log), so only send the bytes it had when the headers were sent
+                final var size = channel.size();
+                exchange.sendResponseHeaders(200, size == 0 ? -1 : size);
+                final var out = Channels.newChannel(exchange.getResponseBody());
+                var position = 0L;
+                while (position < size) {
+                    final var sent = channel.transferTo(position, size - position, out);
+                    if (sent <= 0) {
+                        throw new IOException("The file was truncated while being sent");
+                    }
+                    position += sent;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the server, expiring all the links.
+     */
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+        links.keySet().forEach(this::expire);
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.discord.commands.file;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
+
+/**
+ * The compiled form of the {@link com.mcmoddev.relauncher.Config.Discord#filePatterns file patterns}, deciding which
+ * files can be accessed through the file command. <br>
+ * The patterns are ordered rules, tested against the absolute path of a file: the first matching rule decides
+ * (a plain pattern allows, a {@code !} pattern denies), {@code *} matches any file, and files matching no rule are allowed.
+ * An empty list denies every file. <br>
+ * Compared to testing every regex against every file:
+ * <ul>
+ *     <li>rules after a {@code *} are dropped, as they can never be reached;</li>
+ *     <li>patterns which are plain literals are tested with string searches instead of regexes;</li>
+ *     <li>all the rules are merged into a single regex, which decides in a single pass when no rule matches;</li>
+ *     <li>the decision for whole directories is cached when it can be proven for all their descendants, so that
+ *     {@link #canAccess(Path) file checks} in such directories are a map lookup, and denied subtrees can be pruned
+ *     from walks through {@link #canEnter(Path)}.</li>
+ * </ul>
+ */
+public final class FilePolicy {
+    /**
+     * The maximum amount of cached directory decisions, after which the cache is cleared.
+     */
+    private static final int MAX_CACHED_DIRECTORIES = 16_384;
+    /**
+     * Constructs whose match on a path may stop matching once the path is extended, such as end anchors and lookaheads.
+     */
+    private static final Pattern NON_MONOTONE = Pattern.compile("\\$|\\\\[zZbB]|\\(\\?<?[=!]");
+    private static final Pattern LITERAL = Pattern.compile("(\\^?)((?:[^\\\\\\[\\](){}.*+?^$|]|\\\\[^a-zA-Z0-9])*)(\\$?)");
+
+    /**
+     * The decision for all the descendants of a directory.
+     */
+    public enum Decision {
+        ALLOW,
+        DENY,
+        /**
+         * The descendants have to be tested individually.
+         */
+        MIXED
+    }
+
+    private record Rule(Predicate<String> test, boolean allow, boolean monotone) {
+    }
+
+    private final List<Rule> rules;
+    /**
+     * The decision of the files matching none of the rules.
+     */
+    private final boolean fallback;
+    /**
+     * All the rules merged together, or {@code null} if they can't be.
+     */
+    @Nullable
+    private final Pattern combined;
+    private final Map<Path, Decision> directories = new ConcurrentHashMap<>();
+
+    private FilePolicy(final List<Rule> rules, final boolean fallback, @Nullable final Pattern combined) {
+        this.rules = rules;
+        this.fallback = fallback;
+        this.combined = combined;
+    }
+
+    /**
+     * Compiles a policy from the configured patterns.
+     *
+     * @param patterns the patterns
+     * @return the policy
+     * @throws java.util.regex.PatternSyntaxException if a pattern is malformed
+     */
+    public static FilePolicy compile(final List<String> patterns) {
+        if (patterns.isEmpty()) {
+            return new FilePolicy(List.of(), false, null);
+        }
+        final var rules = new ArrayList<Rule>();
+        final var regexes = new ArrayList<String>();
+        var fallback = true;
+        for (final var pattern : patterns) {
+            if (pattern.equals("*")) {
+                // Nothing after a wildcard can be reached
+                fallback = true;
+                break;
+            }
+            final var deny = pattern.startsWith("!") && pattern.length() > 1;
+            final var regex = deny ? pattern.substring(1) : pattern;
+            final var compiled = Pattern.compile(regex);
+            rules.add(new Rule(literal(regex).orElse(s -> compiled.matcher(s).find()), !deny, !NON_MONOTONE.matcher(regex).find()));
+            regexes.add(regex);
+        }
+        return new FilePolicy(List.copyOf(rules), fallback, combine(regexes));
+    }
+
+    @Nullable
+    private static Pattern combine(final List<String> regexes) {
+        // Backreferences are numbered, so they can't be merged with other patterns
+        if (regexes.isEmpty() || regexes.stream().anyMatch(r -> r.matches("(?s).*\\\\[0-9k].*"))) return null;
+        try {
+            return Pattern.compile(regexes.stream().map(r -> "(?:" + r + ")").collect(Collectors.joining("|")));
+        } catch (PatternSyntaxException e) {
+            // e.g. the same named group in several patterns
+            return null;
+        }
+    }
+
+    /**
+     * Creates a string test equivalent to a regex find, if the regex is a (possibly anchored) literal.
+     */
+    private static Optional<Predicate<String>> literal(final String regex) {
+        final var matcher = LITERAL.matcher(regex);
+        if (!matcher.matches()) return Optional.empty();
+        final var start = !matcher.group(1).isEmpty();
+        final var end = !matcher.group(3).isEmpty();
+        final var text = matcher.group(2).replaceAll("\\\\(.)", "$1");
+        if (start && end) return Optional.of(text::equals);
+        if (start) return Optional.of(s -> s.startsWith(text));
+        if (end) return Optional.of(s -> s.endsWith(text));
+        return Optional.of(s -> s.contains(text));
+    }
+
+    /**
+     * Checks if a file can be accessed.
+     *
+     * @param file the file
+     * @return if the file can be accessed
+     */
+    public boolean canAccess(final Path file) {
+        final var absolute = file.toAbsolutePath();
+        final var parent = absolute.getParent();
+        if (parent != null) {
+            final var decision = getDecision(parent);
+            if (decision != Decision.MIXED) return decision == Decision.ALLOW;
+        }
+        return test(absolute.toString());
+    }
+
+    /**
+     * Checks if a walk should enter a directory, which is not the case if all of its descendants are denied.
+     *
+     * @param directory the directory
+     * @return if any descendant of the directory may be accessed
+     */
+    public boolean canEnter(final Path directory) {
+        return getDecision(directory.toAbsolutePath()) != Decision.DENY;
+    }
+
+    /**
+     * Gets the decision for all the descendants of a directory, from the cache if possible.
+     *
+     * @param directory the absolute path of the directory
+     * @return the decision
+     */
+    public Decision getDecision(final Path directory) {
+        final var cached = directories.get(directory);
+        if (cached != null) return cached;
+        if (directories.size() >= MAX_CACHED_DIRECTORIES) {
+            directories.clear();
+        }
+        final var decision = decide(directory.toString());
+        directories.put(directory, decision);
+        return decision;
+    }
+
+    private boolean test(final String path) {
+        if (combined != null && !combined.matcher(path).find()) return fallback;
+        for (final var rule : rules) {
+            if (rule.test().test(path)) return rule.allow();
+        }
+        return fallback;
+    }
+
+    /**
+     * Decides for all the paths starting with the given directory. <br>
+     * A monotone rule matching the directory matches all its descendants, so it decides for all of them if the rules
+     * before it, which may match some of the descendants, all lead to the same decision.
+     */
+    private Decision decide(final String directory) {
+        var uniform = true;
+        for (final var rule : rules) {
+            uniform &= rule.allow() == rules.get(0).allow();
+            if (rule.monotone() && rule.test().test(directory)) {
+                return uniform ? (rule.allow() ? Decision.ALLOW : Decision.DENY) : Decision.MIXED;
+            }
+        }
+        if (rules.isEmpty() || (uniform && rules.get(0).allow() == fallback)) {
+            return fallback ? Decision.ALLOW : Decision.DENY;
+        }
+        return Decision.MIXED;
+    }
+}
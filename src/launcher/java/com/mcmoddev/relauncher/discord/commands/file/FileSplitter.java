@@ -0,0 +1,137 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.discord.commands.file;
+
+import com.mcmoddev.relauncher.Constants;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Splits files which are too large to be uploaded to Discord into numbered parts, described by a {@link Manifest manifest}
+ * with the checksums needed to verify the reassembled file.
+ */
+public final class FileSplitter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The manifest of a split file.
+     *
+     * @param name         the name of the file
+     * @param size         the size of the file
+     * @param sha256       the SHA-256 of the file
+     * @param parts        the parts of the file, in order
+     * @param instructions how to reassemble the parts
+     */
+    public record Manifest(String name, long size, String sha256, List<Part> parts, String instructions) {
+    }
+
+    /**
+     * A part of a split file.
+     *
+     * @param name   the name of the part
+     * @param size   the size of the part
+     * @param sha256 the SHA-256 of the part
+     */
+    public record Part(String name, long size, String sha256) {
+    }
+
+    /**
+     * The result of a split.
+     *
+     * @param manifest     the manifest of the split file
+     * @param manifestFile the file the manifest was written to
+     * @param parts        the files of the parts, in order
+     */
+    public record Result(Manifest manifest, Path manifestFile, List<Path> parts) {
+    }
+
+    /**
+     * Splits a file into parts of at most the given size, streaming it so that only a small buffer is held in memory.
+     *
+     * @param file      the file to split
+     * @param name      the name to give to the file in the manifest, and which the part names are derived from
+     * @param directory the directory to write the parts and the manifest to
+     * @param partSize  the maximum size of a part
+     * @return the result of the split
+     */
+    public static Result split(final Path file, final String name, final Path directory, final long partSize) throws IOException {
+        final var whole = sha256();
+        final var parts = new ArrayList<Part>();
+        final var partFiles = new ArrayList<Path>();
+        final var buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        final long size;
+        try (final var in = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = in.size();
+            var position = 0L;
+            while (position < size) {
+                final var partName = "%s.part%03d".formatted(name, parts.size() + 1);
+                final var partFile = directory.resolve(partName);
+                final var digest = sha256();
+                var remaining = Math.min(partSize, size - position);
+                final var partLength = remaining;
+                try (final var out = FileChannel.open(partFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    while (remaining > 0) {
+                        buffer.clear().limit((int) Math.min(buffer.capacity(), remaining));
+                        final var read = in.read(buffer);
+                        if (read < 0) throw new IOException("File " + file + " shrunk while being split");
+                        buffer.flip();
+                        whole.update(buffer.duplicate());
+                        digest.update(buffer.duplicate());
+                        while (buffer.hasRemaining()) {
+                            out.write(buffer);
+                        }
+                        remaining -= read;
+                    }
+                }
+                position += partLength;
+                parts.add(new Part(partName, partLength, HexFormat.of().formatHex(digest.digest())));
+                partFiles.add(partFile);
+            }
+        }
+
+        final var manifest = new Manifest(name, size, HexFormat.of().formatHex(whole.digest()), List.copyOf(parts),
+                "Concatenate the parts in order: 'cat %1$s.part* > %1$s' on Unix, or 'copy /b %1$s.part001 + %1$s.part002 + ... %1$s' on Windows. Then check the SHA-256 of the result.".formatted(name));
+        final var manifestFile = Files.writeString(directory.resolve(name + ".manifest.json"), Constants.GSON.toJson(manifest));
+        return new Result(manifest, manifestFile, List.copyOf(partFiles));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    private FileSplitter() {
+        throw new UnsupportedOperationException("Cannot instantiate a utility class");
+    }
+}
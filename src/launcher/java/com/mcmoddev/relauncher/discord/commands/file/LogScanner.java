@@ -0,0 +1,367 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.discord.commands.file;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.regex.Pattern;
+
+/**
+ * Scans (potentially very large) log files by memory-mapping them in windows, so that only the requested lines are
+ * decoded and returned, instead of the whole file.
+ */
+public final class LogScanner {
+    /**
+     * The size of the mapped windows of the file. Lines longer than a window are split.
+     */
+    private static final int WINDOW = 64 * 1024 * 1024;
+    /**
+     * The maximum length of a returned line, in bytes, longer lines are cut.
+     */
+    private static final int MAX_LINE_LENGTH = 2000;
+    private static final Pattern TIME = Pattern.compile("\\b(\\d{2}):(\\d{2}):(\\d{2})\\b");
+    /**
+     * The amount of characters at the start of a line in which its timestamp is searched.
+     */
+    private static final int TIME_PREFIX = 40;
+
+    /**
+     * The result of a scan.
+     *
+     * @param text      the returned lines
+     * @param lines     the amount of returned lines
+     * @param truncated if the result was cut, because it was larger than the maximum size
+     */
+    public record Result(String text, int lines, boolean truncated) {
+    }
+
+    /**
+     * A time-of-day range, matched against the timestamps of the log lines (e.g. {@code [12:34:56]}). Lines without a
+     * timestamp, like stack traces, have the time of the last line with one. The range wraps around midnight if its
+     * start is after its end.
+     *
+     * @param from the start of the range, inclusive, or {@code null} for no start
+     * @param to   the end of the range, inclusive, or {@code null} for no end
+     */
+    public record TimeRange(@Nullable LocalTime from, @Nullable LocalTime to) {
+        public static final TimeRange ALL = new TimeRange(null, null);
+
+        /**
+         * Parses a time range from its bounds, in the {@code HH:mm[:ss]} format.
+         *
+         * @throws IllegalArgumentException if a bound is malformed
+         */
+        public static TimeRange parse(@Nullable final String from, @Nullable final String to) {
+            return new TimeRange(parseTime(from), parseTime(to));
+        }
+
+        @Nullable
+        private static LocalTime parseTime(@Nullable final String time) {
+            if (time == null || time.isBlank()) return null;
+            try {
+                return LocalTime.parse(time.trim());
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Invalid time '%s', expected HH:mm or HH:mm:ss".formatted(time));
+            }
+        }
+
+        public boolean isAll() {
+            return from == null && to == null;
+        }
+
+        public boolean contains(@Nullable final LocalTime time) {
+            if (isAll()) return true;
+            if (time == null) return false;
+            if (from != null && to != null && from.isAfter(to)) {
+                return !time.isBefore(from) || !time.isAfter(to);
+            }
+            return (from == null || !time.isBefore(from)) && (to == null || !time.isAfter(to));
+        }
+    }
+
+    /**
+     * Gets the last lines of a file.
+     *
+     * @param file    the file
+     * @param lines   the amount of lines to get
+     * @param range   the time range of the lines to get
+     * @param maxSize the maximum amount of characters to return, the oldest lines are dropped if exceeded
+     * @return the result
+     */
+    public static Result tail(final Path file, final int lines, final TimeRange range, final int maxSize) throws IOException {
+        try (final var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Without a time range, only the end of the file needs to be read
+            final var start = range.isAll() ? findTailStart(channel, lines) : 0;
+            final var kept = new ArrayDeque<String>();
+            final var size = new long[1];
+            final var truncated = new boolean[1];
+            final var filter = new TimeFilter(range);
+            forEachLine(channel, start, (number, line) -> {
+                if (!filter.test(line)) return true;
+                kept.addLast(line);
+                size[0] += line.length() + 1;
+                if (kept.size() > lines) {
+                    size[0] -= kept.removeFirst().length() + 1;
+                }
+                while (size[0] > maxSize) {
+                    size[0] -= kept.removeFirst().length() + 1;
+                    truncated[0] = true;
+                }
+                return true;
+            });
+            return new Result(String.join("\n", kept), kept.size(), truncated[0]);
+        }
+    }
+
+    /**
+     * Gets the lines of a file matching a pattern, with the lines around them, in the format of {@code grep -n}:
+     * matching lines are prefixed by {@code number:}, context lines by {@code number-}, and non-contiguous groups are
+     * separated by {@code --}.
+     *
+     * @param file       the file
+     * @param pattern    the pattern to find in the lines
+     * @param context    the amount of lines to include before and after each match
+     * @param maxMatches the maximum amount of matches to return
+     * @param range      the time range of the lines to search
+     * @param maxSize    the maximum amount of characters to return, the scan stops once exceeded
+     * @param timeout    the maximum duration of the scan, which also bounds pathological patterns that backtrack excessively
+     * @return the result, whose {@link Result#lines() line count} is the amount of matches
+     * @throws IOException if the file could not be read, if the scan took longer than the timeout, or if the pattern is too complex
+     */
+    public static Result grep(final Path file, final Pattern pattern, final int context, final int maxMatches,
+                              final TimeRange range, final int maxSize, final Duration timeout) throws IOException {
+        final var deadline = System.nanoTime() + timeout.toNanos();
+        try (final var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final var out = new StringBuilder();
+            final var before = new ArrayDeque<Numbered>(context);
+            final var state = new long[]{0, -1, -1}; // matches, last printed line, print context until line
+            final var truncated = new boolean[1];
+            final var filter = new TimeFilter(range);
+            forEachLine(channel, 0, (number, line) -> {
+                if (!filter.test(line)) return true;
+                if (pattern.matcher(new DeadlineCharSequence(line, deadline)).find()) {
+                    if (state[0] >= maxMatches) {
+                        truncated[0] = true;
+                        return false;
+                    }
+                    state[0]++;
+                    final var first = before.isEmpty() ? number : before.peekFirst().number();
+                    if (state[1] != -1 && first > state[1] + 1) out.append("--\n");
+                    for (final var previous : before) {
+                        out.append(previous.number()).append('-').append(previous.line()).append('\n');
+                    }
+                    before.clear();
+                    out.append(number).append(':').append(line).append('\n');
+                    state[1] = number;
+                    state[2] = number + context;
+                } else if (number <= state[2]) {
+                    out.append(number).append('-').append(line).append('\n');
+                    state[1] = number;
+                } else if (context > 0) {
+                    if (before.size() == context) before.removeFirst();
+                    before.addLast(new Numbered(number, line));
+                }
+                if (out.length() > maxSize) {
+                    out.setLength(maxSize);
+                    truncated[0] = true;
+                    return false;
+                }
+                return true;
+            });
+            return new Result(out.toString(), (int) state[0], truncated[0]);
+        } catch (DeadlineCharSequence.DeadlineExceededException e) {
+            throw new IOException("The search took longer than " + timeout.toSeconds() + " seconds");
+        } catch (StackOverflowError e) {
+            // Patterns with nested repetitions recurse for every repeated character
+            throw new IOException("The pattern is too complex for the lines of the file");
+        }
+    }
+
+    /**
+     * Finds the offset of the start of the last lines of a file, by scanning it backwards.
+     */
+    private static long findTailStart(final FileChannel channel, final int lines) throws IOException {
+        final var size = channel.size();
+        var end = size;
+        var count = 0;
+        while (end > 0) {
+            final var start = Math.max(0, end - WINDOW);
+            final var buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            for (var i = (int) (end - start) - 1; i >= 0; i--) {
+                // A trailing newline doesn't start another line
+                if (buffer.get(i) == '\n' && start + i != size - 1 && ++count == lines) {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return 0;
+    }
+
+    /**
+     * Visits the lines of a file, starting at the given offset.
+     *
+     * @param visitor the line visitor, returning {@code false} to stop the scan
+     */
+    private static void forEachLine(final FileChannel channel, final long offset, final LineVisitor visitor) throws IOException {
+        final var size = channel.size();
+        var position = offset;
+        var number = 1L;
+        while (position < size) {
+            final var length = (int) Math.min(WINDOW, size - position);
+            final var buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            var lineStart = 0;
+            for (var i = 0; i < length; i++) {
+                if (buffer.get(i) == '\n') {
+                    if (!visitor.visit(number++, decode(buffer, lineStart, i))) return;
+                    lineStart = i + 1;
+                }
+            }
+            if (position + length == size || lineStart == 0) {
+                // The last line of the file, or a line longer than a window
+                if (lineStart < length && !visitor.visit(number++, decode(buffer, lineStart, length))) return;
+                position += length;
+            } else {
+                // Map the next window from the start of the incomplete line
+                position += lineStart;
+            }
+        }
+    }
+
+    private static String decode(final MappedByteBuffer buffer, final int start, int end) {
+        if (end > start && buffer.get(end - 1) == '\r') end--;
+        var length = end - start;
+        if (length > MAX_LINE_LENGTH) {
+            length = MAX_LINE_LENGTH;
+            // Don't cut a multi-byte character: move the cut back to the first byte of the character it falls in
+            while (length > 0 && (buffer.get(start + length) & 0xC0) == 0x80) length--;
+        }
+        final var bytes = new byte[length];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    private interface LineVisitor {
+        boolean visit(long number, String line);
+    }
+
+    private record Numbered(long number, String line) {
+    }
+
+    /**
+     * A char sequence which fails once a deadline has passed, so that a regex matching against it can't run forever
+     * through catastrophic backtracking, as the matcher reads the sequence at every step.
+     */
+    private static final class DeadlineCharSequence implements CharSequence {
+        /**
+         * The amount of reads between deadline checks.
+         */
+        private static final int CHECK_INTERVAL = 1024;
+
+        private final String text;
+        private final long deadline;
+        private int reads;
+
+        private DeadlineCharSequence(final String text, final long deadline) {
+            this.text = text;
+            this.deadline = deadline;
+            check();
+        }
+
+        @Override
+        public char charAt(final int index) {
+            if (++reads == CHECK_INTERVAL) {
+                reads = 0;
+                check();
+            }
+            return text.charAt(index);
+        }
+
+        private void check() {
+            if (System.nanoTime() - deadline > 0) {
+                throw new DeadlineExceededException();
+            }
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public CharSequence subSequence(final int start, final int end) {
+            return new DeadlineCharSequence(text.substring(start, end), deadline);
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+
+        private static final class DeadlineExceededException extends RuntimeException {
+            private DeadlineExceededException() {
+                super(null, null, false, false);
+            }
+        }
+    }
+
+    /**
+     * Tests lines against a time range, tracking the time of the last line with a timestamp.
+     */
+    private static final class TimeFilter {
+        private final TimeRange range;
+        @Nullable
+        private LocalTime current;
+
+        private TimeFilter(final TimeRange range) {
+            this.range = range;
+        }
+
+        boolean test(final String line) {
+            if (range.isAll()) return true;
+            final var matcher = TIME.matcher(line).region(0, Math.min(line.length(), TIME_PREFIX));
+            if (matcher.find()) {
+                final var hour = Integer.parseInt(matcher.group(1));
+                final var minute = Integer.parseInt(matcher.group(2));
+                final var second = Integer.parseInt(matcher.group(3));
+                if (hour < 24 && minute < 60 && second < 60) {
+                    current = LocalTime.of(hour, minute, second);
+                }
+            }
+            return range.contains(current);
+        }
+    }
+
+    private LogScanner() {
+        throw new UnsupportedOperationException("Cannot instantiate a utility class");
+    }
+}
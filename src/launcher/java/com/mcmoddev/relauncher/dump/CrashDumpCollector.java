@@ -0,0 +1,136 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.dump;
+
+import com.mcmoddev.relauncher.Config;
+import com.mcmoddev.relauncher.Main;
+import com.mcmoddev.relauncher.ProcessListener;
+import com.mcmoddev.relauncher.Properties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the artifacts of a process crash in the dumps directory: the last output of the process, and
+ * the JVM error file and heap dump, if the JVM wrote them. <br>
+ * The JVM arguments which make the process write those artifacts, and configure the agent's
+ * {@code AutoDumper}, are provided by {@link #jvmArgs(Config.Dumps)}.
+ */
+public final class CrashDumpCollector implements ProcessListener {
+    public static final Logger LOGGER = LoggerFactory.getLogger("CrashDumps");
+    public static final Path DIRECTORY = Main.RELAUNCHER_DIR.resolve("dumps").toAbsolutePath();
+
+    private final Config.Dumps config;
+    private volatile boolean destroyRequested;
+
+    public CrashDumpCollector(final Config.Dumps config) {
+        this.config = config;
+    }
+
+    /**
+     * Creates the JVM arguments that configure the dumps of the process.
+     *
+     * @param config the dumps config
+     * @return the arguments, or an empty list if dumps are disabled
+     */
+    public static List<String> jvmArgs(final Config.Dumps config) {
+        if (!config.enabled) {
+            return List.of();
+        }
+        final var args = new ArrayList<String>();
+        args.add("-D" + Properties.DUMPS_DIRECTORY + "=" + DIRECTORY);
+        args.add("-D" + Properties.DUMPS_HEAP_THRESHOLD + "=" + config.heapThreshold);
+        args.add("-D" + Properties.DUMPS_HEAP + "=" + config.dumpHeap);
+        args.add("-D" + Properties.DUMPS_HANG_TIMEOUT + "=" + config.hangTimeout);
+        args.add("-D" + Properties.DUMPS_MAX_FILES + "=" + config.maxFiles);
+        args.add("-D" + Properties.DUMPS_MAX_SIZE + "=" + maxBytes(config));
+        if (config.heapDumpOnOom) {
+            args.add("-XX:+HeapDumpOnOutOfMemoryError");
+            args.add("-XX:HeapDumpPath=" + DIRECTORY);
+        }
+        args.add("-XX:ErrorFile=" + DIRECTORY.resolve("hs_err_pid%p.log"));
+        return args;
+    }
+
+    private static long maxBytes(final Config.Dumps config) {
+        return config.maxSize > 0 ? config.maxSize * 1024 * 1024 : -1;
+    }
+
+    @Override
+    public void onStart(final Process process) {
+        destroyRequested = false;
+        try {
+            Files.createDirectories(DIRECTORY);
+        } catch (IOException e) {
+            LOGGER.error("Could not create the dumps directory: ", e);
+        }
+    }
+
+    @Override
+    public void onDestroyRequested(final Process process) {
+        destroyRequested = true;
+    }
+
+    @Override
+    public void onExit(final Process process, final int exitCode) {
+        if (destroyRequested || exitCode == 0) {
+            return;
+        }
+        final var artifacts = new ArrayList<String>();
+        final var collected = new ArrayList<Path>();
+        try {
+            Files.createDirectories(DIRECTORY);
+            final var consoleLog = DIRECTORY.resolve(Instant.now().getEpochSecond() + "-crash-console.log");
+            Files.writeString(consoleLog, Main.CONSOLE.getRecentOutput());
+            artifacts.add(consoleLog.getFileName().toString());
+            collected.add(consoleLog);
+
+            final var errorFile = DIRECTORY.resolve("hs_err_pid" + process.pid() + ".log");
+            if (Files.exists(errorFile)) {
+                artifacts.add(errorFile.getFileName().toString());
+                collected.add(errorFile);
+            }
+            final var heapDump = DIRECTORY.resolve("java_pid" + process.pid() + ".hprof");
+            if (Files.exists(heapDump)) {
+                artifacts.add(heapDump.getFileName().toString());
+                collected.add(heapDump);
+            }
+            // Never delete the artifacts which are about to be reported
+            DumpRetention.prune(DIRECTORY, config.maxFiles, maxBytes(config), collected);
+        } catch (IOException e) {
+            LOGGER.error("Could not collect the crash artifacts of the process: ", e);
+        }
+        Main.alert("The process exited unexpectedly with code %s. Collected artifacts: %s".formatted(
+                exitCode, artifacts.isEmpty() ? "none" : String.join(", ", artifacts)
+        ));
+    }
+
+    @Override
+    public String toString() {
+        return "CrashDumpCollector[" + DIRECTORY + "]";
+    }
+}
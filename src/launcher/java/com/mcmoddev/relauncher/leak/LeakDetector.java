@@ -0,0 +1,170 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.leak;
+
+import com.mcmoddev.relauncher.Config;
+import com.mcmoddev.relauncher.Main;
+import com.mcmoddev.relauncher.ProcessListener;
+import com.mcmoddev.relauncher.api.connector.ClassHistogram;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically takes {@link ClassHistogram class histograms} of the process, and flags the classes whose live instance
+ * count grew in each of the last {@link Config.LeakDetection#samples samples} as leak suspects, which are raised as
+ * {@link Main#alert(String) launcher events}. <br>
+ * Only the growth streak of each class is kept between samples, not the histograms themselves.
+ */
+public final class LeakDetector implements ProcessListener {
+    public static final Logger LOGGER = LoggerFactory.getLogger("LeakDetector");
+    private static final int ALERT_SUSPECTS = 5;
+
+    private final Config.LeakDetection config;
+    private final Map<String, Trend> trends = new HashMap<>();
+    private final Set<String> reported = new HashSet<>();
+
+    @Nullable
+    private ScheduledFuture<?> sampler;
+
+    public LeakDetector(final Config.LeakDetection config) {
+        this.config = config;
+    }
+
+    @Override
+    public synchronized void onStart(final Process process) {
+        trends.clear();
+        reported.clear();
+        // Give the process time to start up, as the heap grows legitimately while it loads
+        sampler = Main.SERVICE.scheduleWithFixedDelay(this::sample, config.interval, config.interval, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public synchronized void onExit(final Process process, final int exitCode) {
+        if (sampler != null) {
+            sampler.cancel(false);
+            sampler = null;
+        }
+    }
+
+    private void sample() {
+        final var manager = Main.getProcessManager();
+        final var process = manager == null ? null : manager.getProcess();
+        final var connector = process == null ? null : process.connector();
+        if (connector == null) return;
+
+        final ClassHistogram histogram;
+        try {
+            histogram = connector.getClassHistogram(config.classes);
+        } catch (RemoteException e) {
+            LOGGER.debug("Could not take a class histogram: {}", e.toString());
+            return;
+        }
+
+        final var suspects = update(histogram);
+        if (suspects.isEmpty()) return;
+
+        final var builder = new StringBuilder("Possible memory leak: the live instances of %s class(es) grew in each of the last %s histograms (%s minutes apart):\n```\n"
+                .formatted(suspects.size(), config.samples, config.interval));
+        for (final var suspect : suspects.subList(0, Math.min(ALERT_SUSPECTS, suspects.size()))) {
+            builder.append(suspect.className()).append(": ").append(suspect.first()).append(" -> ").append(suspect.last())
+                    .append(" instances (").append(suspect.bytes() / 1024).append(" KB)\n");
+        }
+        builder.append("```");
+        Main.alert(builder.toString());
+    }
+
+    /**
+     * Updates the growth streaks with the given histogram.
+     *
+     * @param histogram the new histogram
+     * @return the new leak suspects, with the biggest instance growth first
+     */
+    synchronized List<Suspect> update(final ClassHistogram histogram) {
+        final var present = new HashSet<String>(histogram.entries().size());
+        final var suspects = new ArrayList<Suspect>();
+        for (final var entry : histogram.entries()) {
+            present.add(entry.className());
+            final var trend = trends.get(entry.className());
+            if (trend == null) {
+                trends.put(entry.className(), new Trend(entry.instances()));
+                continue;
+            }
+            if (entry.instances() > trend.last) {
+                trend.last = entry.instances();
+                trend.growths++;
+            } else {
+                trend.reset(entry.instances());
+            }
+
+            if (trend.growths >= config.samples - 1 && trend.last - trend.first >= config.minGrowth && reported.add(entry.className())) {
+                suspects.add(new Suspect(entry.className(), trend.first, trend.last, entry.bytes()));
+            }
+        }
+        // Classes which dropped out of the histogram can't be tracked reliably
+        trends.keySet().retainAll(present);
+        suspects.sort(Comparator.comparingLong((Suspect s) -> s.last() - s.first()).reversed());
+        return suspects;
+    }
+
+    /**
+     * A class whose live instance count grew monotonically.
+     *
+     * @param className the name of the class
+     * @param first     the instance count at the start of the growth
+     * @param last      the current instance count
+     * @param bytes     the current shallow size of the instances
+     */
+    record Suspect(String className, long first, long last, long bytes) {
+    }
+
+    private static final class Trend {
+        private long first;
+        private long last;
+        private int growths;
+
+        private Trend(final long instances) {
+            reset(instances);
+        }
+
+        private void reset(final long instances) {
+            first = instances;
+            last = instances;
+            growths = 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LeakDetector[" + config.interval + "m]";
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.proc;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * OS-level statistics of a process, read from {@code /proc/<pid>} on Linux. All sizes are in bytes, and are {@code -1}
+ * when unavailable.
+ *
+ * @param timestamp the epoch millis at which the statistics were sampled
+ * @param rss       the resident set size
+ * @param pss       the proportional set size, which splits shared pages between the processes sharing them
+ * @param swap      the swapped out memory
+ * @param fds       the amount of open file descriptors
+ * @param threads   the amount of OS threads
+ * @param cpuTime   the total CPU time of the process, in milliseconds
+ * @param jvm       the memory of the JVM reported by the agent at the same time, if available
+ */
+public record ProcessStats(long timestamp, long rss, long pss, long swap, int fds, int threads, long cpuTime,
+                           @Nullable JvmMemory jvm) {
+
+    /**
+     * The memory of the JVM, as reported by the agent.
+     *
+     * @param heapCommitted the committed heap
+     * @param nonHeapUsed   the used non-heap memory (metaspace, code cache...)
+     * @param buffers       the memory used by direct and mapped buffers
+     */
+    public record JvmMemory(long heapCommitted, long nonHeapUsed, long buffers) {
+    }
+
+    /**
+     * @return the resident memory which isn't accounted for by the JVM memory reported by the agent (thread stacks,
+     * GC structures, native libraries, malloc arenas...), or {@code -1} if unknown
+     */
+    public long offHeapGap() {
+        if (jvm == null || rss < 0) return -1;
+        return Math.max(0, rss - jvm.heapCommitted() - jvm.nonHeapUsed() - jvm.buffers());
+    }
+
+    /**
+     * Samples the statistics of a process.
+     *
+     * @param process the process
+     * @param jvm     the memory of the JVM reported by the agent, if available
+     * @return the statistics
+     */
+    public static ProcessStats sample(ProcessHandle process, @Nullable JvmMemory jvm) {
+        final var proc = Path.of("/proc", String.valueOf(process.pid()));
+        long rss = -1, swap = -1, pss = -1;
+        int threads = -1, fds = -1;
+        if (Files.isDirectory(proc)) {
+            try {
+                for (final var line : Files.readAllLines(proc.resolve("status"))) {
+                    if (line.startsWith("VmRSS:")) rss = kilobytes(line);
+                    else if (line.startsWith("VmSwap:")) swap = kilobytes(line);
+                    else if (line.startsWith("Threads:")) threads = Integer.parseInt(line.substring("Threads:".length()).trim());
+                }
+            } catch (IOException | NumberFormatException ignored) {
+            }
+            // smaps_rollup is cheap compared to smaps, and exists since Linux 4.14
+            try {
+                for (final var line : Files.readAllLines(proc.resolve("smaps_rollup"))) {
+                    if (line.startsWith("Pss:")) {
+                        pss = kilobytes(line);
+                        break;
+                    }
+                }
+            } catch (IOException | NumberFormatException ignored) {
+            }
+            try (final var stream = Files.list(proc.resolve("fd"))) {
+                fds = (int) stream.count();
+            } catch (IOException | UncheckedIOException ignored) {
+            }
+        }
+        final var cpu = process.info().totalCpuDuration().map(Duration::toMillis).orElse(-1L);
+        return new ProcessStats(System.currentTimeMillis(), rss, pss, swap, fds, threads, cpu, jvm);
+    }
+
+    /**
+     * Parses a {@code Name:   1234 kB} line of a {@code /proc} file.
+     */
+    private static long kilobytes(String line) {
+        final var value = line.substring(line.indexOf(':') + 1).trim();
+        final var space = value.indexOf(' ');
+        return Long.parseLong(space == -1 ? value : value.substring(0, space)) * 1024;
+    }
+}
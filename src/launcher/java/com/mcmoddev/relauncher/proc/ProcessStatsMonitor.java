@@ -0,0 +1,172 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.proc;
+
+import com.mcmoddev.relauncher.Config;
+import com.mcmoddev.relauncher.Main;
+import com.mcmoddev.relauncher.ProcessListener;
+import com.mcmoddev.relauncher.api.connector.MemorySnapshot;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically samples the {@link ProcessStats OS-level statistics} of the process, correlated with the JVM memory reported
+ * by the agent when it is attached, and keeps a history of the samples. <br>
+ * The statistics are read by the launcher, so they are available even when the agent is not attached.
+ */
+public final class ProcessStatsMonitor implements ProcessListener {
+    public static final Logger LOGGER = LoggerFactory.getLogger("ProcessStats");
+
+    /**
+     * The duration covered by the history, in seconds.
+     */
+    private static final long HISTORY_DURATION = TimeUnit.HOURS.toSeconds(1);
+
+    private final ArrayDeque<ProcessStats> history = new ArrayDeque<>();
+    private int historySize = 1;
+    private long interval = -1;
+    private long rssAlertThreshold = -1;
+    private boolean alerted;
+
+    @Nullable
+    private Process process;
+    @Nullable
+    private ScheduledFuture<?> sampler;
+
+    /**
+     * Applies the given config. The new sampling interval is used from the next process start.
+     *
+     * @param config the config
+     */
+    public synchronized void configure(final Config.ProcessStats config) {
+        this.interval = config.enabled ? config.sampleInterval : -1;
+        this.rssAlertThreshold = config.rssAlertThreshold * 1024 * 1024;
+    }
+
+    @Override
+    public synchronized void onStart(final Process process) {
+        this.process = process;
+        history.clear();
+        alerted = false;
+        if (interval > 0) {
+            historySize = (int) Math.max(1, HISTORY_DURATION / interval);
+            sampler = Main.SERVICE.scheduleWithFixedDelay(this::record, 0, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void onExit(final Process process, final int exitCode) {
+        if (sampler != null) {
+            sampler.cancel(false);
+            sampler = null;
+        }
+        this.process = null;
+    }
+
+    private void record() {
+        final var stats = sample();
+        if (stats == null) return;
+        synchronized (this) {
+            while (history.size() >= historySize) {
+                history.removeFirst();
+            }
+            history.addLast(stats);
+            if (rssAlertThreshold <= 0 || alerted || stats.rss() < rssAlertThreshold) return;
+            alerted = true;
+        }
+        LOGGER.warn("Process RSS reached {} MB", stats.rss() / 1024 / 1024);
+        Main.alert("The resident memory of the process reached %s MB (off-heap gap: %s).".formatted(
+                stats.rss() / 1024 / 1024,
+                stats.offHeapGap() < 0 ? "unknown" : stats.offHeapGap() / 1024 / 1024 + " MB"
+        ));
+    }
+
+    /**
+     * Samples the statistics of the process now.
+     *
+     * @return the statistics, or {@code null} if the process is not running
+     */
+    @Nullable
+    public ProcessStats sample() {
+        return sample(memorySnapshot());
+    }
+
+    /**
+     * Samples the statistics of the process now, correlated with an already retrieved memory snapshot.
+     *
+     * @param memory the memory snapshot of the process, or {@code null} if unknown
+     * @return the statistics, or {@code null} if the process is not running
+     */
+    @Nullable
+    public ProcessStats sample(@Nullable final MemorySnapshot memory) {
+        final Process current;
+        synchronized (this) {
+            current = process;
+        }
+        if (current == null || !current.isAlive()) return null;
+        return ProcessStats.sample(current.toHandle(), memory == null ? null : jvmMemory(memory));
+    }
+
+    /**
+     * @return the samples taken since the process started, oldest first, covering up to the last hour
+     */
+    public synchronized List<ProcessStats> getHistory() {
+        return List.copyOf(history);
+    }
+
+    /**
+     * @return the latest periodic sample, or {@code null} if none was taken since the process started
+     */
+    @Nullable
+    public synchronized ProcessStats getLatest() {
+        return history.peekLast();
+    }
+
+    @Nullable
+    private static MemorySnapshot memorySnapshot() {
+        final var manager = Main.getProcessManager();
+        final var info = manager == null ? null : manager.getProcess();
+        final var connector = info == null ? null : info.connector();
+        if (connector == null) return null;
+        try {
+            return connector.getMemorySnapshot();
+        } catch (Exception e) {
+            LOGGER.debug("Could not retrieve the JVM memory of the process: {}", e.toString());
+            return null;
+        }
+    }
+
+    private static ProcessStats.JvmMemory jvmMemory(final MemorySnapshot snapshot) {
+        final var buffers = snapshot.bufferPools().stream().mapToLong(MemorySnapshot.BufferPool::used).sum();
+        return new ProcessStats.JvmMemory(snapshot.heapCommitted(), snapshot.nonHeapUsed(), buffers);
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessStatsMonitor[" + interval + "s]";
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.profiling;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Renders stacks in collapsed format ({@code root;...;leaf count}) into a standalone SVG flame graph.
+ */
+public final class FlameGraphRenderer {
+    private static final int WIDTH = 1200;
+    private static final int PADDING = 10;
+    private static final int FRAME_HEIGHT = 16;
+    private static final int HEADER_HEIGHT = 40;
+    private static final double MIN_FRAME_WIDTH = 0.5;
+    private static final double CHAR_WIDTH = 6.6;
+
+    private final String title;
+    private final String unit;
+    private final Frame root = new Frame("all");
+    private int maxDepth;
+
+    public FlameGraphRenderer(final String title) {
+        this(title, "samples");
+    }
+
+    /**
+     * @param title the title of the graph
+     * @param unit  the unit of the stack counts, e.g. {@code samples} or {@code bytes}
+     */
+    public FlameGraphRenderer(final String title, final String unit) {
+        this.title = title;
+        this.unit = unit;
+    }
+
+    /**
+     * Adds the stacks of the given collapsed text to the graph.
+     *
+     * @param collapsed the collapsed stacks, one per line
+     * @return this renderer
+     */
+    public FlameGraphRenderer add(final String collapsed) {
+        for (final var line : collapsed.split("\n")) {
+            final var separator = line.lastIndexOf(' ');
+            if (separator <= 0) continue;
+            final long count;
+            try {
+                count = Long.parseLong(line.substring(separator + 1).trim());
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            final var frames = line.substring(0, separator).split(";");
+            var frame = root;
+            root.total += count;
+            for (final var name : frames) {
+                frame = frame.children.computeIfAbsent(name, Frame::new);
+                frame.total += count;
+            }
+            maxDepth = Math.max(maxDepth, frames.length);
+        }
+        return this;
+    }
+
+    /**
+     * @return the total of the stack counts in the graph
+     */
+    public long getSamples() {
+        return root.total;
+    }
+
+    /**
+     * Renders the graph.
+     *
+     * @return the SVG document
+     */
+    public String render() {
+        final var height = HEADER_HEIGHT + (maxDepth + 1) * FRAME_HEIGHT + PADDING;
+        final var svg = new StringBuilder();
+        svg.append("<?xml version=\"1.0\" standalone=\"no\"?>\n")
+                .append("<svg version=\"1.1\" xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(WIDTH)
+                .append("\" height=\"").append(height).append("\" viewBox=\"0 0 ").append(WIDTH).append(' ').append(height)
+                .append("\" font-family=\"Verdana, sans-serif\" font-size=\"12\">\n")
+                .append("<rect x=\"0\" y=\"0\" width=\"100%\" height=\"100%\" fill=\"#f8f8f8\"/>\n")
+                .append("<text x=\"").append(WIDTH / 2).append("\" y=\"24\" font-size=\"17\" text-anchor=\"middle\">")
+                .append(escape(title)).append(" (").append(root.total).append(' ').append(unit).append(")</text>\n");
+        if (root.total > 0) {
+            final var scale = (WIDTH - 2d * PADDING) / root.total;
+            renderFrame(svg, root, PADDING, height - PADDING - FRAME_HEIGHT, scale);
+        }
+        return svg.append("</svg>\n").toString();
+    }
+
+    private void renderFrame(final StringBuilder svg, final Frame frame, final double x, final int y, final double scale) {
+        final var width = frame.total * scale;
+        final var percent = frame.total * 100d / root.total;
+        svg.append("<g><title>").append(escape(frame.name)).append(" (").append(frame.total).append(' ').append(unit).append(", ")
+                .append(String.format(Locale.ROOT, "%.2f", percent)).append("%)</title>")
+                .append("<rect x=\"").append(num(x)).append("\" y=\"").append(y)
+                .append("\" width=\"").append(num(width)).append("\" height=\"").append(FRAME_HEIGHT - 1)
+                .append("\" fill=\"").append(colour(frame.name)).append("\" rx=\"2\"/>");
+        final var chars = (int) ((width - 6) / CHAR_WIDTH);
+        if (chars >= 3) {
+            final var label = frame.name.length() <= chars ? frame.name : frame.name.substring(0, chars - 2) + "..";
+            svg.append("<text x=\"").append(num(x + 3)).append("\" y=\"").append(y + FRAME_HEIGHT - 4).append("\">")
+                    .append(escape(label)).append("</text>");
+        }
+        svg.append("</g>\n");
+
+        var childX = x;
+        for (final var child : sortedChildren(frame)) {
+            if (child.total * scale >= MIN_FRAME_WIDTH) {
+                renderFrame(svg, child, childX, y - FRAME_HEIGHT, scale);
+            }
+            childX += child.total * scale;
+        }
+    }
+
+    private static String num(final double value) {
+        return String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    private static List<Frame> sortedChildren(final Frame frame) {
+        final var children = new ArrayList<>(frame.children.values());
+        children.sort((a, b) -> a.name.compareTo(b.name));
+        return children;
+    }
+
+    /**
+     * Picks a stable warm colour for a frame, based on its name.
+     */
+    private static String colour(final String name) {
+        final var hash = name.hashCode();
+        final var r = 205 + Math.floorMod(hash, 50);
+        final var g = Math.floorMod(hash >>> 8, 230);
+        final var b = Math.floorMod(hash >>> 16, 55);
+        return "rgb(" + r + "," + g + "," + b + ")";
+    }
+
+    private static String escape(final String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static final class Frame {
+        private final String name;
+        private final Map<String, Frame> children = new LinkedHashMap<>();
+        private long total;
+
+        private Frame(final String name) {
+            this.name = name;
+        }
+    }
+}
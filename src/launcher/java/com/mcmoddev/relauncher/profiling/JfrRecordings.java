@@ -0,0 +1,205 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.profiling;
+
+import com.mcmoddev.relauncher.api.connector.AllocationReport;
+import com.mcmoddev.relauncher.api.connector.ProcessConnector;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utilities for retrieving and summarizing JFR recordings of the process.
+ */
+public final class JfrRecordings {
+    public static final int CHUNK_SIZE = 1024 * 1024;
+    private static final int TOP_ENTRIES = 15;
+
+    /**
+     * Downloads the last dump of a recording, in chunks.
+     *
+     * @param connector the connector of the process
+     * @param id        the ID of the recording
+     * @param size      the size of the dump
+     * @param target    the file to download the dump to
+     */
+    public static void download(final ProcessConnector connector, final long id, final long size, final Path target) throws IOException {
+        try (final var out = Files.newOutputStream(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            var offset = 0L;
+            while (offset < size) {
+                final var chunk = connector.readRecording(id, offset, CHUNK_SIZE);
+                if (chunk.length == 0) break;
+                out.write(chunk);
+                offset += chunk.length;
+            }
+        }
+    }
+
+    /**
+     * Summarizes a recording: the amount of events of each type, the hottest methods, GC pauses and the longest blocking events.
+     *
+     * @param recording the recording file
+     * @return the summary, in Markdown
+     */
+    public static String summarize(final Path recording) throws IOException {
+        final Map<String, Long> eventCounts = new HashMap<>();
+        final Map<String, Long> hotMethods = new HashMap<>();
+        final Map<String, Long> blockingTime = new HashMap<>();
+        var samples = 0L;
+        var gcPauses = 0L;
+        var gcPauseTotal = Duration.ZERO;
+        var gcPauseMax = Duration.ZERO;
+        Instant start = null, end = null;
+
+        try (final var file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                final var event = file.readEvent();
+                final var type = event.getEventType().getName();
+                eventCounts.merge(type, 1L, Long::sum);
+                if (start == null || event.getStartTime().isBefore(start)) start = event.getStartTime();
+                if (end == null || event.getEndTime().isAfter(end)) end = event.getEndTime();
+
+                switch (type) {
+                    case "jdk.ExecutionSample" -> {
+                        samples++;
+                        final var frame = topFrame(event);
+                        if (frame != null) hotMethods.merge(frame, 1L, Long::sum);
+                    }
+                    case "jdk.GCPhasePause" -> {
+                        gcPauses++;
+                        gcPauseTotal = gcPauseTotal.plus(event.getDuration());
+                        if (event.getDuration().compareTo(gcPauseMax) > 0) gcPauseMax = event.getDuration();
+                    }
+                    case "jdk.JavaMonitorEnter", "jdk.JavaMonitorWait", "jdk.ThreadPark", "jdk.SocketRead", "jdk.FileRead" -> {
+                        final var frame = applicationFrame(event);
+                        if (frame != null) blockingTime.merge(type + " in " + frame, event.getDuration().toMillis(), Long::sum);
+                    }
+                    default -> {
+                    }
+                }
+            }
+        }
+
+        final var builder = new StringBuilder("# JFR recording summary\n\n");
+        if (start != null) {
+            builder.append("Recorded from ").append(start).append(" to ").append(end)
+                    .append(" (").append(Duration.between(start, end).toSeconds()).append("s)\n\n");
+        }
+        builder.append("## Hottest methods (").append(samples).append(" execution samples)\n");
+        appendTop(builder, hotMethods, samples, "samples");
+        builder.append("\n## GC pauses\n")
+                .append(gcPauses).append(" pauses, ").append(gcPauseTotal.toMillis()).append(" ms total, ")
+                .append(gcPauseMax.toMillis()).append(" ms max\n");
+        builder.append("\n## Longest blocking sites\n");
+        appendTop(builder, blockingTime, 0, "ms");
+        builder.append("\n## Events\n");
+        appendTop(builder, eventCounts, 0, "events");
+        return builder.toString();
+    }
+
+    /**
+     * Formats an allocation report: the top allocation sites by bytes and by samples, with their stacks.
+     *
+     * @param report the report
+     * @return the formatted report, in Markdown
+     */
+    public static String formatAllocations(final AllocationReport report) {
+        final var builder = new StringBuilder("# Allocation profile\n\n")
+                .append("Sampled for ").append(report.duration() / 1000).append("s: ")
+                .append(report.samples()).append(" samples, ~").append(report.totalBytes() / (1024 * 1024)).append(" MiB allocated")
+                .append(" (~").append(report.duration() == 0 ? 0 : report.totalBytes() * 1000 / report.duration() / (1024 * 1024)).append(" MiB/s)\n");
+        builder.append("\n## Top sites by bytes\n");
+        appendSites(builder, report.byBytes(), report);
+        builder.append("\n## Top sites by samples\n");
+        appendSites(builder, report.bySamples(), report);
+        return builder.toString();
+    }
+
+    private static void appendSites(final StringBuilder builder, final List<AllocationReport.Site> sites, final AllocationReport report) {
+        for (final var site : sites) {
+            builder.append("\n### ").append(site.objectClass()).append(": ~")
+                    .append(site.bytes() / 1024).append(" KiB (")
+                    .append(report.totalBytes() == 0 ? 0 : site.bytes() * 100 / report.totalBytes()).append("%), ")
+                    .append(site.samples()).append(" samples\n```\n");
+            for (final var frame : site.stack()) {
+                builder.append("at ").append(frame).append('\n');
+            }
+            builder.append("```\n");
+        }
+    }
+
+    private static String topFrame(final RecordedEvent event) {
+        final var stack = event.getStackTrace();
+        if (stack == null || stack.getFrames().isEmpty()) return null;
+        return format(stack.getFrames().get(0));
+    }
+
+    /**
+     * Finds the first frame of the stack of the event which isn't in the JDK, since blocking events are always
+     * raised from within the JDK (e.g. {@code Unsafe.park} or {@code Object.wait}), which says nothing about who blocked.
+     *
+     * @return the first application frame, the top frame if the whole stack is in the JDK, or {@code null} if the event has no stack
+     */
+    private static String applicationFrame(final RecordedEvent event) {
+        final var stack = event.getStackTrace();
+        if (stack == null || stack.getFrames().isEmpty()) return null;
+        for (final RecordedFrame frame : stack.getFrames()) {
+            if (frame.getMethod() == null || frame.getMethod().getType() == null) continue;
+            final var type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return format(frame);
+            }
+        }
+        return format(stack.getFrames().get(0));
+    }
+
+    private static String format(final RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+    }
+
+    private static void appendTop(final StringBuilder builder, final Map<String, Long> values, final long total, final String unit) {
+        values.entrySet()
+                .stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(TOP_ENTRIES)
+                .forEach(e -> {
+                    builder.append("- ").append(e.getKey()).append(": ").append(e.getValue()).append(' ').append(unit);
+                    if (total > 0) {
+                        builder.append(" (").append(e.getValue() * 100 / total).append("%)");
+                    }
+                    builder.append('\n');
+                });
+    }
+
+    private JfrRecordings() {
+        throw new UnsupportedOperationException("Cannot instantiate a utility class");
+    }
+}
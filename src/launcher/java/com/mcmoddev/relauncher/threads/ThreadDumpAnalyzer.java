@@ -0,0 +1,276 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.threads;
+
+import com.mcmoddev.relauncher.api.connector.ThreadInfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Analyzes the lock information of a thread dump. <br>
+ * Threads blocked on or waiting for a lock owned by another thread form a wait-for graph, in which each thread waits for
+ * at most one other thread. Cycles in that graph are deadlocks, and the locks with the most waiters are the most contended ones.
+ */
+public final class ThreadDumpAnalyzer {
+    private static final int TOP_CONTENDED = 5;
+    /**
+     * The result of an analysis.
+     *
+     * @param states    the amount of threads in each state
+     * @param deadlocks the deadlocked thread cycles
+     * @param contended the most contended locks, most waiters first
+     */
+    public record Analysis(Map<Thread.State, Integer> states, List<List<ThreadInfo>> deadlocks, List<ContendedLock> contended) {
+
+        /**
+         * @return a one line summary of the analysis
+         */
+        public String headline() {
+            if (!deadlocks.isEmpty()) {
+                return ":rotating_light: %s deadlock(s) detected!".formatted(deadlocks.size());
+            }
+            if (!contended.isEmpty()) {
+                final var top = contended.get(0);
+                return "Most contended lock: `%s`, held by `%s` with %s waiting thread(s).".formatted(
+                        top.lock(), top.owner() == null ? "unknown" : top.owner().name(), top.waiters().size()
+                );
+            }
+            return "No lock contention detected.";
+        }
+
+        /**
+         * @return the summary of the analysis, in Markdown
+         */
+        public String summary() {
+            final var builder = new StringBuilder("## Summary").append(System.lineSeparator());
+            builder.append("Threads: ").append(states.entrySet()
+                            .stream()
+                            .map(e -> e.getValue() + " " + e.getKey().toString().toLowerCase(Locale.ROOT))
+                            .collect(Collectors.joining(", ")))
+                    .append(System.lineSeparator());
+
+            if (deadlocks.isEmpty()) {
+                builder.append(System.lineSeparator()).append("No deadlocks found.").append(System.lineSeparator());
+            }
+            for (final var deadlock : deadlocks) {
+                builder.append(System.lineSeparator()).append("### Deadlock").append(System.lineSeparator());
+                for (final var thread : deadlock) {
+                    builder.append("- \"").append(thread.name()).append("\" waits for ").append(thread.lock())
+                            .append(" held by \"").append(thread.lockOwnerName()).append('"')
+                            .append(thread.stackElements().length > 0 ? " at " + thread.stackElements()[0] : "")
+                            .append(System.lineSeparator());
+                }
+            }
+
+            if (!contended.isEmpty()) {
+                builder.append(System.lineSeparator()).append("### Most contended locks").append(System.lineSeparator());
+                for (final var lock : contended) {
+                    builder.append("- ").append(lock.lock()).append(": ").append(lock.waiters().size()).append(" waiting, held by ");
+                    if (lock.owner() == null) {
+                        builder.append("unknown");
+                    } else {
+                        builder.append('"').append(lock.owner().name()).append('"');
+                        if (lock.owner().stackElements().length > 0) {
+                            builder.append(" at ").append(lock.owner().stackElements()[0]);
+                        }
+                    }
+                    builder.append(System.lineSeparator());
+                }
+            }
+            return builder.toString();
+        }
+    }
+
+    /**
+     * A lock which other threads are waiting for.
+     *
+     * @param lock    the lock
+     * @param owner   the thread holding the lock, if known
+     * @param waiters the threads waiting for the lock
+     */
+    public record ContendedLock(ThreadInfo.Lock lock, ThreadInfo owner, List<ThreadInfo> waiters) {
+    }
+
+    public static Analysis analyze(final ThreadInfo[] threads) {
+        final var states = new EnumMap<Thread.State, Integer>(Thread.State.class);
+        final var byId = new HashMap<Long, ThreadInfo>();
+        for (final var thread : threads) {
+            states.merge(thread.state(), 1, Integer::sum);
+            byId.put(thread.id(), thread);
+        }
+        return new Analysis(states, findDeadlocks(threads, byId), findContended(threads, byId));
+    }
+
+    private static List<List<ThreadInfo>> findDeadlocks(final ThreadInfo[] threads, final Map<Long, ThreadInfo> byId) {
+        final var deadlocks = new ArrayList<List<ThreadInfo>>();
+        final Set<Long> visited = new HashSet<>();
+        for (final var start : threads) {
+            if (visited.contains(start.id())) continue;
+            // Each thread waits for at most one other thread, so walk the chain until it ends, reaches an
+            // already visited thread or loops onto itself
+            final var path = new LinkedHashMap<Long, ThreadInfo>();
+            var current = start;
+            while (current != null && !visited.contains(current.id()) && !path.containsKey(current.id())) {
+                path.put(current.id(), current);
+                current = current.lockOwnerId() == -1 ? null : byId.get(current.lockOwnerId());
+            }
+            if (current != null && path.containsKey(current.id())) {
+                final var cycle = new ArrayList<ThreadInfo>();
+                var inCycle = false;
+                for (final var thread : path.values()) {
+                    inCycle |= thread.id() == current.id();
+                    if (inCycle) cycle.add(thread);
+                }
+                deadlocks.add(cycle);
+            }
+            visited.addAll(path.keySet());
+        }
+        return deadlocks;
+    }
+
+    private static List<ContendedLock> findContended(final ThreadInfo[] threads, final Map<Long, ThreadInfo> byId) {
+        final var waiters = new HashMap<ThreadInfo.Lock, List<ThreadInfo>>();
+        for (final var thread : threads) {
+            if (thread.lock() != null && thread.lockOwnerId() != -1) {
+                waiters.computeIfAbsent(thread.lock(), k -> new ArrayList<>()).add(thread);
+            }
+        }
+        final Function<Map.Entry<ThreadInfo.Lock, List<ThreadInfo>>, ContendedLock> toContended = e ->
+                new ContendedLock(e.getKey(), byId.get(e.getValue().get(0).lockOwnerId()), e.getValue());
+        return waiters.entrySet()
+                .stream()
+                .map(toContended)
+                .sorted(Comparator.comparingInt((ContendedLock c) -> c.waiters().size()).reversed())
+                .limit(TOP_CONTENDED)
+                .toList();
+    }
+
+    /**
+     * Groups threads which are in the same state and have identical stacks.
+     *
+     * @param threads the threads to group
+     * @return the groups, largest first
+     */
+    public static List<List<ThreadInfo>> groupByStack(final ThreadInfo[] threads) {
+        final var groups = new LinkedHashMap<StackKey, List<ThreadInfo>>();
+        for (final var thread : threads) {
+            groups.computeIfAbsent(new StackKey(thread.state(), List.of(thread.stackElements())), k -> new ArrayList<>()).add(thread);
+        }
+        return groups.values()
+                .stream()
+                .sorted(Comparator.comparingInt((List<ThreadInfo> g) -> g.size()).reversed())
+                .toList();
+    }
+
+    /**
+     * Compares several thread dumps taken some time apart, and reports the threads which didn't make progress: threads
+     * whose stack stayed the same while they were runnable or blocked are stuck, while threads which stayed waiting on the
+     * same stack are idle. <br>
+     * Threads blocked in native I/O (selectors, socket accepts and reads, console reads, ...) are reported as runnable by the JVM,
+     * so those which stayed in one of the {@link NativeWaits known native waits}, or have no Java stack at all (such as the
+     * {@code Signal Dispatcher}), are counted as idle rather than stuck.
+     *
+     * @param samples  the thread dumps, oldest first
+     * @param interval the interval between the dumps, in milliseconds
+     * @return the report, in Markdown
+     */
+    public static String compareSamples(final ThreadInfo[][] samples, final long interval) {
+        final var last = samples[samples.length - 1];
+        final var previousSamples = new ArrayList<Map<Long, ThreadInfo>>();
+        for (var i = 0; i < samples.length - 1; i++) {
+            final var byId = new HashMap<Long, ThreadInfo>();
+            for (final var thread : samples[i]) {
+                byId.put(thread.id(), thread);
+            }
+            previousSamples.add(byId);
+        }
+        final var stuck = new ArrayList<ThreadInfo>();
+        var idle = 0;
+        var nativeWaits = 0;
+        var changed = 0;
+        var started = 0;
+        for (final var thread : last) {
+            var same = true;
+            var present = true;
+            for (var i = 0; i < previousSamples.size() && same && present; i++) {
+                final var previous = previousSamples.get(i).get(thread.id());
+                present = previous != null;
+                same = present && previous.state() == thread.state() && Arrays.equals(previous.stackElements(), thread.stackElements());
+            }
+            if (!present) {
+                started++;
+            } else if (!same) {
+                changed++;
+            } else if (thread.state() == Thread.State.BLOCKED || (thread.state() == Thread.State.RUNNABLE && !isNativeWait(thread))) {
+                stuck.add(thread);
+            } else if (thread.state() == Thread.State.RUNNABLE) {
+                nativeWaits++;
+            } else {
+                idle++;
+            }
+        }
+
+        final var builder = new StringBuilder("# Thread progress over ")
+                .append(samples.length).append(" dumps, ").append(interval).append(" ms apart")
+                .append(System.lineSeparator()).append(System.lineSeparator())
+                .append("- ").append(stuck.size()).append(" stuck (same stack while runnable or blocked)").append(System.lineSeparator())
+                .append("- ").append(changed).append(" progressing").append(System.lineSeparator())
+                .append("- ").append(idle).append(" idle (same stack while waiting)").append(System.lineSeparator())
+                .append("- ").append(nativeWaits).append(" waiting in native I/O (same stack while blocked in a native call)").append(System.lineSeparator())
+                .append("- ").append(started).append(" started during the sampling").append(System.lineSeparator());
+        if (!stuck.isEmpty()) {
+            builder.append(System.lineSeparator()).append("## Stuck threads").append(System.lineSeparator());
+            for (final var group : groupByStack(stuck.toArray(ThreadInfo[]::new))) {
+                builder.append(System.lineSeparator()).append("- ").append(group.size()).append(" thread(s) ")
+                        .append(group.get(0).state().toString().toLowerCase(Locale.ROOT)).append(": ")
+                        .append(group.stream().map(ThreadInfo::name).collect(Collectors.joining(", ")));
+                for (final var element : group.get(0).stackElements()) {
+                    builder.append(System.lineSeparator()).append("    at ").append(element);
+                }
+                builder.append(System.lineSeparator());
+            }
+        }
+        return builder.toString();
+    }
+
+    private static boolean isNativeWait(final ThreadInfo thread) {
+        return NativeWaits.isNativeWait(thread.stackElements());
+    }
+
+    private record StackKey(Thread.State state, List<StackTraceElement> stack) {
+    }
+
+    private ThreadDumpAnalyzer() {
+        throw new UnsupportedOperationException("Cannot instantiate a utility class");
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * ReLauncher - https://github.com/MinecraftModDevelopment/ReLauncher
+ * Copyright (C) 2016-2024 <MMD - MinecraftModDevelopment>
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation;
+ * Specifically version 2.1 of the License.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301
+ * USA
+ * https://www.gnu.org/licenses/old-licenses/lgpl-2.1.html
+ */
+package com.mcmoddev.relauncher.watchdog;
+
+import com.mcmoddev.relauncher.Config;
+import com.mcmoddev.relauncher.Main;
+import com.mcmoddev.relauncher.ProcessListener;
+import com.mcmoddev.relauncher.Properties;
+import com.mcmoddev.relauncher.api.connector.WatchdogReport;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.rmi.RemoteException;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls the tick watchdog of the agent, and raises stalls which exceed the {@link Config.Watchdog#alertThreshold alert threshold}
+ * as {@link Main#alert(String) launcher events}.
+ */
+public final class WatchdogMonitor implements ProcessListener {
+    public static final Logger LOGGER = LoggerFactory.getLogger("Watchdog");
+    private static final int ALERT_STACK_FRAMES = 6;
+
+    private final Config.Watchdog config;
+
+    private long lastStall;
+    private long lastOngoingAlert;
+    @Nullable
+    private ScheduledFuture<?> poller;
+
+    public WatchdogMonitor(final Config.Watchdog config) {
+        this.config = config;
+    }
+
+    /**
+     * Creates the JVM arguments that configure the watchdog of the agent.
+     *
+     * @param config the watchdog config
+     * @return the arguments, or an empty list if the watchdog is disabled
+     */
+    public static List<String> jvmArgs(final Config.Watchdog config) {
+        if (!config.enabled || config.thread.isBlank()) {
+            return List.of();
+        }
+        return List.of(
+                "-D" + Properties.WATCHDOG_THREAD + "=" + config.thread,
+                "-D" + Properties.WATCHDOG_INTERVAL + "=" + config.sampleInterval,
+                "-D" + Properties.WATCHDOG_THRESHOLD + "=" + config.stallThreshold,
+                "-D" + Properties.WATCHDOG_TICK_METHOD + "=" + config.tickMethod
+        );
+    }
+
+    @Override
+    public synchronized void onStart(final Process process) {
+        lastStall = 0;
+        lastOngoingAlert = 0;
+        if (config.alertThreshold > 0) {
+            poller = Main.SERVICE.scheduleWithFixedDelay(this::poll, config.pollInterval, config.pollInterval, TimeUnit.SECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void onExit(final Process process, final int exitCode) {
+        if (poller != null) {
+            poller.cancel(false);
+            poller = null;
+        }
+    }
+
+    private synchronized void poll() {
+        final var manager = Main.getProcessManager();
+        final var process = manager == null ? null : manager.getProcess();
+        final var connector = process == null ? null : process.connector();
+        if (connector == null) return;
+
+        final WatchdogReport report;
+        try {
+            report = connector.getWatchdogReport();
+        } catch (RemoteException e) {
+            LOGGER.debug("Could not poll the watchdog: {}", e.toString());
+            return;
+        }
+        if (report == null) return;
+
+        WatchdogReport.Stall longest = null;
+        var count = 0;
+        for (final var stall : report.stalls()) {
+            if (stall.id() <= lastStall) continue;
+            lastStall = stall.id();
+            if (stall.duration() < config.alertThreshold) continue;
+            count++;
+            if (longest == null || stall.duration() > longest.duration()) {
+                longest = stall;
+            }
+        }
+        if (longest != null && longest.id() != lastOngoingAlert) {
+            Main.alert("The '%s' thread stalled %s time(s) for more than %s ms. The longest stall took %s ms, mostly in:\n%s".formatted(
+                    report.thread(), count, config.alertThreshold, longest.duration(), describe(longest)
+            ));
+        }
+
+        final var ongoing = report.ongoingStall();
+        if (ongoing != null && ongoing.duration() >= config.alertThreshold && ongoing.id() != lastOngoingAlert) {
+            lastOngoingAlert = ongoing.id();
+            Main.alert("The '%s' thread has been stalled for %s ms, mostly in:\n%s".formatted(
+                    report.thread(), ongoing.duration(), describe(ongoing)
+            ));
+        }
+    }
+
+    /**
+     * Describes the hottest stack of a stall by its innermost frames.
+     */
+    private static String describe(final WatchdogReport.Stall stall) {
+        final var stack = stall.hottestStack();
+        if (stack == null) return "unknown";
+        final var frames = stack.split(";");
+        final var builder = new StringBuilder("```\n");
+        for (var i = frames.length - 1; i >= Math.max(0, frames.length - ALERT_STACK_FRAMES); i--) {
+            builder.append("at ").append(frames[i]).append('\n');
+        }
+        return builder.append("```").toString();
+    }
+
+    @Override
+    public String toString() {
+        return "WatchdogMonitor[" + config.thread + "]";
+    }
+}